@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
+
+/**
+ * Inverted index of one scan from annotation type to the annotated classes, fields, methods and constructors. A query
+ * is a lookup of the posting list of the annotation, only the hits are loaded.
+ *
+ * @author hoersch
+ */
+public interface AnnotationIndex {
+
+    /**
+     * @return the names of all annotation types found, sorted
+     */
+    SortedSet<String> getAnnotations();
+
+    /**
+     * @param annotation name of the annotation type
+     * @return the elements annotated with the annotation, sorted by class name
+     */
+    List<Posting> getPostings(String annotation);
+
+    /**
+     * Same as {@link ClassInspectionUtil#findAnnotatedClasses(Class, String)} but answered from the index.
+     *
+     * @param annotation
+     * @return the classes annotated with the annotation
+     */
+    Collection<Class<?>> findAnnotatedClasses(Class<? extends Annotation> annotation);
+
+    /**
+     * Same as {@link ClassInspectionUtil#findAnnotatedElements(Class, String)} but answered from the index. The
+     * annotated fields and methods are the declared ones of each class.
+     *
+     * @param annotation
+     * @return metadata of the classes that are annotated themselves or have annotated members
+     */
+    Collection<ClassAnnotationMetadata> findAnnotatedElements(Class<? extends Annotation> annotation);
+
+    /**
+     * An annotated element. Immutable.
+     */
+    final class Posting {
+        private final String _className;
+
+        private final ElementType _elementType;
+
+        private final String _memberName;
+
+        private final String _descriptor;
+
+        private final RetentionPolicy _retention;
+
+        /**
+         * @param className
+         * @param elementType
+         * @param memberName name of the field or method, <code>null</code> for a type or package
+         * @param descriptor descriptor of the field or method, <code>null</code> for a type or package
+         * @param retention {@link RetentionPolicy#RUNTIME} or {@link RetentionPolicy#CLASS}
+         */
+        public Posting(String className, ElementType elementType, String memberName, String descriptor, RetentionPolicy retention) {
+            _className = className;
+            _elementType = elementType;
+            _memberName = memberName;
+            _descriptor = descriptor;
+            _retention = retention;
+        }
+
+        /**
+         * @return name of the annotated class or of the class declaring the annotated member
+         */
+        public String getClassName() {
+            return _className;
+        }
+
+        /**
+         * @return {@link ElementType#TYPE}, {@link ElementType#ANNOTATION_TYPE}, {@link ElementType#PACKAGE},
+         *         {@link ElementType#FIELD}, {@link ElementType#METHOD} or {@link ElementType#CONSTRUCTOR}
+         */
+        public ElementType getElementType() {
+            return _elementType;
+        }
+
+        /**
+         * @return name of the annotated field or method, <code>null</code> for a type or package
+         */
+        public String getMemberName() {
+            return _memberName;
+        }
+
+        /**
+         * @return descriptor of the annotated field or method, i.e. <code>(Ljava/lang/String;)V</code>,
+         *         <code>null</code> for a type or package
+         */
+        public String getDescriptor() {
+            return _descriptor;
+        }
+
+        /**
+         * @return {@link RetentionPolicy#RUNTIME} if the annotation is visible by reflection, else
+         *         {@link RetentionPolicy#CLASS}
+         */
+        public RetentionPolicy getRetention() {
+            return _retention;
+        }
+
+        @Override
+        public String toString() {
+            return _elementType + " " + _className + (_memberName == null ? "" : "#" + _memberName + _descriptor) + " (" + _retention + ")";
+        }
+    }
+}
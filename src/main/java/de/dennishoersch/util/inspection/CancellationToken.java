@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token to stop a running scan. The scan checks the token between the
+ * entries it reads and inspects and stops as soon as the token was cancelled
+ * or its deadline passed. The elements collected until then are still
+ * available as partial result.
+ *
+ * @author hoersch
+ */
+public final class CancellationToken {
+
+    private final long _deadline;
+
+    private final boolean _hasDeadline;
+
+    private volatile boolean _cancelled;
+
+    /**
+     * Creates a token without deadline that stops a scan only when it is
+     * cancelled.
+     */
+    public CancellationToken() {
+        _deadline = 0;
+        _hasDeadline = false;
+    }
+
+    private CancellationToken(long deadline) {
+        _deadline = deadline;
+        _hasDeadline = true;
+    }
+
+    /**
+     * Creates a token that stops a scan when the timeout elapsed (counted from
+     * now) or when it is cancelled.
+     *
+     * @param timeout
+     * @param unit
+     * @return the token
+     */
+    public static CancellationToken withTimeout(long timeout, TimeUnit unit) {
+        return new CancellationToken(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * Requests the scan(s) using this token to stop.
+     */
+    public void cancel() {
+        _cancelled = true;
+    }
+
+    /**
+     * @return was {@link #cancel()} called?
+     */
+    public boolean isCancelled() {
+        return _cancelled;
+    }
+
+    /**
+     * @return has the deadline passed?
+     */
+    public boolean isTimedOut() {
+        return _hasDeadline && System.nanoTime() - _deadline >= 0;
+    }
+
+    /**
+     * @return should a scan using this token stop?
+     */
+    public boolean isStopRequested() {
+        return _cancelled || isTimedOut();
+    }
+
+    @Override
+    public String toString() {
+        return "CancellationToken [cancelled=" + _cancelled + ", timedOut=" + isTimedOut() + "]";
+    }
+}
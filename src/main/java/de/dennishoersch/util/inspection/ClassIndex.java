@@ -0,0 +1,648 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+import javassist.bytecode.AccessFlag;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * Binary index of the classes of a scan, queried in place: the index file is mapped into memory and nothing is read
+ * or built when it is opened, so opening takes the same time for any number of classes. Only the answer of a query is
+ * turned into objects.
+ * <p>
+ * Every class name, of the scanned classes as well as of their super types and annotations, has an id, its position
+ * in the names sorted by their UTF-8 bytes. The file consists of
+ * <ul>
+ * <li>a header with the counts and the offsets of the sections,</li>
+ * <li>the names, front coded in blocks of {@value #BLOCK_SIZE}, and the offset of each block,</li>
+ * <li>a minimal perfect hash from name to id: a displacement per bucket and the id per slot,</li>
+ * <li>a record of {@value #RECORD_SIZE} bytes per id: flags, super class, interfaces and direct subtypes,</li>
+ * <li>the posting lists of the annotations, sorted by the id of the annotation,</li>
+ * <li>a pool of the ids of the interfaces, subtypes and postings the records and postings point to.</li>
+ * </ul>
+ * Immutable and thread safe.
+ *
+ * @author hoersch
+ */
+public final class ClassIndex {
+    private static final int MAGIC = 0x43494458;
+
+    private static final int VERSION = 1;
+
+    private static final int BLOCK_SIZE = 16;
+
+    private static final int RECORD_SIZE = 24;
+
+    private static final int ANNOTATION_SIZE = 12;
+
+    /** A scanned class, not only a referenced one. */
+    private static final int INDEXED = 1 << 31;
+
+    private static final int HEADER_SIZE = 4 * 13;
+
+    private static final Comparator<byte[]> UTF8_ORDER = UnsignedBytes.lexicographicalComparator();
+
+    private final ByteBuffer _buffer;
+
+    private final int _names;
+
+    private final int _buckets;
+
+    private final int _annotations;
+
+    private final int _blockOffsets;
+
+    private final int _displacements;
+
+    private final int _slots;
+
+    private final int _records;
+
+    private final int _annotationTable;
+
+    private final int _pool;
+
+    private ClassIndex(ByteBuffer buffer) throws IOException {
+        _buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a class index");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported version " + buffer.getInt(4) + " of the class index");
+        }
+        _names = buffer.getInt(8);
+        _buckets = buffer.getInt(12);
+        _annotations = buffer.getInt(16);
+        // 20: number of indexed classes
+        _blockOffsets = buffer.getInt(24);
+        _displacements = buffer.getInt(28);
+        _slots = buffer.getInt(32);
+        _records = buffer.getInt(36);
+        _annotationTable = buffer.getInt(40);
+        _pool = buffer.getInt(44);
+        // 48: end of the index
+        if (buffer.getInt(48) != buffer.capacity()) {
+            throw new IOException("Truncated class index");
+        }
+    }
+
+    /**
+     * Maps the index file into memory, only the header is read.
+     *
+     * @param file
+     * @return the index
+     * @throws IOException
+     */
+    public static ClassIndex open(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r"); FileChannel channel = in.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            return new ClassIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @param buffer the content of an index file
+     * @return the index backed by the buffer
+     * @throws IOException if the buffer is no index
+     */
+    public static ClassIndex of(ByteBuffer buffer) throws IOException {
+        return new ClassIndex(buffer.duplicate());
+    }
+
+    /**
+     * @return a builder of an index
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the number of scanned classes
+     */
+    public int size() {
+        return _buffer.getInt(20);
+    }
+
+    /**
+     * @param className
+     * @return was the class scanned?
+     */
+    public boolean contains(String className) {
+        int id = idOf(className);
+        return id >= 0 && (flags(id) & INDEXED) != 0;
+    }
+
+    /**
+     * @return the names of the scanned classes, sorted
+     */
+    public List<String> getClassNames() {
+        List<String> classNames = Lists.newArrayListWithCapacity(size());
+        for (int id = 0; id < _names; id++) {
+            if ((flags(id) & INDEXED) != 0) {
+                classNames.add(nameOf(id));
+            }
+        }
+        return classNames;
+    }
+
+    /**
+     * @param className a scanned class
+     * @return the modifiers as of {@link java.lang.reflect.Modifier}
+     * @throws IllegalArgumentException if the class was not scanned
+     */
+    public int getModifiers(String className) {
+        return AccessFlag.toModifier(flags(indexedIdOf(className)) & 0xFFFF);
+    }
+
+    /**
+     * @param className a scanned class
+     * @return the name of the super class, <code>null</code> for {@link Object}
+     * @throws IllegalArgumentException if the class was not scanned
+     */
+    public String getSuperclass(String className) {
+        int superclass = _buffer.getInt(record(indexedIdOf(className)) + 4);
+        return superclass < 0 ? null : nameOf(superclass);
+    }
+
+    /**
+     * @param className a scanned class
+     * @return the names of the directly implemented interfaces
+     * @throws IllegalArgumentException if the class was not scanned
+     */
+    public List<String> getInterfaces(String className) {
+        int record = record(indexedIdOf(className));
+        return namesOf(_buffer.getInt(record + 8), _buffer.getInt(record + 12));
+    }
+
+    /**
+     * @param annotation name of the annotation
+     * @return the names of the scanned classes annotated with the annotation, sorted
+     */
+    public List<String> getClassesAnnotatedWith(String annotation) {
+        int id = idOf(annotation);
+        if (id < 0) {
+            return Collections.emptyList();
+        }
+        int low = 0;
+        int high = _annotations - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = _annotationTable + middle * ANNOTATION_SIZE;
+            int annotationId = _buffer.getInt(entry);
+            if (annotationId < id) {
+                low = middle + 1;
+            } else if (annotationId > id) {
+                high = middle - 1;
+            } else {
+                return namesOf(_buffer.getInt(entry + 4), _buffer.getInt(entry + 8));
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * @param type name of a class or interface, need not be scanned
+     * @return the names of the scanned classes extending or implementing the type, also indirectly, sorted
+     */
+    public List<String> getSubtypes(String type) {
+        int id = idOf(type);
+        if (id < 0) {
+            return Collections.emptyList();
+        }
+        BitSet subtypes = new BitSet(_names);
+        Queue<Integer> pending = new ArrayDeque<>();
+        pending.add(Integer.valueOf(id));
+        while (!pending.isEmpty()) {
+            int record = record(pending.remove().intValue());
+            int start = _buffer.getInt(record + 16);
+            int count = _buffer.getInt(record + 20);
+            for (int i = 0; i < count; i++) {
+                int subtype = _buffer.getInt(_pool + 4 * (start + i));
+                if (!subtypes.get(subtype)) {
+                    subtypes.set(subtype);
+                    pending.add(Integer.valueOf(subtype));
+                }
+            }
+        }
+        List<String> names = Lists.newArrayListWithCapacity(subtypes.cardinality());
+        for (int subtype = subtypes.nextSetBit(0); subtype >= 0; subtype = subtypes.nextSetBit(subtype + 1)) {
+            names.add(nameOf(subtype));
+        }
+        return names;
+    }
+
+    private int flags(int id) {
+        return _buffer.getInt(record(id));
+    }
+
+    private int record(int id) {
+        return _records + id * RECORD_SIZE;
+    }
+
+    private int indexedIdOf(String className) {
+        int id = idOf(className);
+        if (id < 0 || (flags(id) & INDEXED) == 0) {
+            throw new IllegalArgumentException("Class '" + className + "' is not indexed");
+        }
+        return id;
+    }
+
+    private List<String> namesOf(int start, int count) {
+        List<String> names = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            names.add(nameOf(_buffer.getInt(_pool + 4 * (start + i))));
+        }
+        return names;
+    }
+
+    /**
+     * @return the id of the name, -1 if unknown
+     */
+    private int idOf(String name) {
+        if (_names == 0) {
+            return -1;
+        }
+        byte[] bytes = name.getBytes(Charsets.UTF_8);
+        int displacement = _buffer.getInt(_displacements + 4 * bucket(bytes, _buckets));
+        int id = _buffer.getInt(_slots + 4 * slot(bytes, displacement, _names));
+        // Any name hashes to some slot, compare to tell known names from unknown ones
+        return Arrays.equals(bytes, bytesOf(id)) ? id : -1;
+    }
+
+    private String nameOf(int id) {
+        return new String(bytesOf(id), Charsets.UTF_8);
+    }
+
+    private byte[] bytesOf(int id) {
+        ByteBuffer block = _buffer.duplicate();
+        block.position(_buffer.getInt(_blockOffsets + 4 * (id / BLOCK_SIZE)));
+        byte[] bytes = new byte[readVarInt(block)];
+        block.get(bytes);
+        for (int i = id % BLOCK_SIZE; i > 0; i--) {
+            int prefix = readVarInt(block);
+            byte[] next = new byte[prefix + readVarInt(block)];
+            System.arraycopy(bytes, 0, next, 0, prefix);
+            block.get(next, prefix, next.length - prefix);
+            bytes = next;
+        }
+        return bytes;
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static int bucket(byte[] name, int buckets) {
+        return (Hashing.murmur3_32().hashBytes(name).asInt() & Integer.MAX_VALUE) % buckets;
+    }
+
+    private static int slot(byte[] name, int displacement, int slots) {
+        return (Hashing.murmur3_32(displacement).hashBytes(name).asInt() & Integer.MAX_VALUE) % slots;
+    }
+
+    /**
+     * Collects the classes of an index and writes it. Not thread safe.
+     */
+    public static final class Builder {
+        private final Map<String, IndexedClass> _classes = Maps.newHashMap();
+
+        Builder() {
+        }
+
+        /**
+         * @param className
+         * @param accessFlags the access flags of the class file
+         * @param superclass name of the super class, <code>null</code> for {@link Object}
+         * @param interfaces names of the directly implemented interfaces
+         * @param annotations names of the annotations of the class
+         * @return this builder
+         */
+        public Builder addClass(String className, int accessFlags, String superclass, Collection<String> interfaces, Collection<String> annotations) {
+            _classes.put(className, new IndexedClass(accessFlags, superclass, interfaces, annotations));
+            return this;
+        }
+
+        /**
+         * @param file
+         * @throws IOException
+         */
+        public void write(File file) throws IOException {
+            try (OutputStream out = new FileOutputStream(file)) {
+                out.write(toByteArray());
+            }
+        }
+
+        /**
+         * @return the content of the index file
+         */
+        public byte[] toByteArray() {
+            SortedMap<byte[], String> sortedNames = Maps.newTreeMap(UTF8_ORDER);
+            for (Map.Entry<String, IndexedClass> entry : _classes.entrySet()) {
+                sortedNames.put(entry.getKey().getBytes(Charsets.UTF_8), entry.getKey());
+                IndexedClass indexed = entry.getValue();
+                for (String name : indexed.referencedNames()) {
+                    sortedNames.put(name.getBytes(Charsets.UTF_8), name);
+                }
+            }
+            List<byte[]> names = Lists.newArrayList(sortedNames.keySet());
+            Map<String, Integer> ids = Maps.newHashMapWithExpectedSize(names.size());
+            for (byte[] name : names) {
+                ids.put(sortedNames.get(name), Integer.valueOf(ids.size()));
+            }
+            try {
+                return new Writer(names, ids).write();
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not write to memory", e);
+            }
+        }
+
+        private final class Writer {
+            private final List<byte[]> _names;
+
+            private final Map<String, Integer> _ids;
+
+            private final ByteArrayOutputStream _bytes = new ByteArrayOutputStream();
+
+            private final DataOutputStream _out = new DataOutputStream(_bytes);
+
+            private final List<Integer> _pool = Lists.newArrayList();
+
+            Writer(List<byte[]> names, Map<String, Integer> ids) {
+                _names = names;
+                _ids = ids;
+            }
+
+            byte[] write() throws IOException {
+                int count = _names.size();
+                _out.write(new byte[HEADER_SIZE]);
+
+                int[] blockOffsets = writeNames();
+                int blockOffsetsStart = _out.size();
+                writeInts(blockOffsets);
+
+                int buckets = Math.max(1, count / 2);
+                int[] displacements = new int[buckets];
+                int[] slots = new int[count];
+                buildPerfectHash(displacements, slots);
+                int displacementsStart = _out.size();
+                writeInts(displacements);
+                int slotsStart = _out.size();
+                writeInts(slots);
+
+                int recordsStart = _out.size();
+                writeRecords();
+
+                int annotationsStart = _out.size();
+                int annotations = writeAnnotations();
+
+                int poolStart = _out.size();
+                for (Integer id : _pool) {
+                    _out.writeInt(id.intValue());
+                }
+
+                ByteBuffer header = ByteBuffer.wrap(_bytes.toByteArray());
+                header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(buckets).putInt(annotations).putInt(_classes.size());
+                header.putInt(blockOffsetsStart).putInt(displacementsStart).putInt(slotsStart).putInt(recordsStart).putInt(annotationsStart).putInt(poolStart);
+                header.putInt(header.capacity());
+                return header.array();
+            }
+
+            private int[] writeNames() throws IOException {
+                int[] blockOffsets = new int[(_names.size() + BLOCK_SIZE - 1) / BLOCK_SIZE];
+                byte[] previous = null;
+                for (int id = 0; id < _names.size(); id++) {
+                    byte[] name = _names.get(id);
+                    if (id % BLOCK_SIZE == 0) {
+                        blockOffsets[id / BLOCK_SIZE] = _out.size();
+                        writeVarInt(name.length);
+                        _out.write(name);
+                    } else {
+                        int prefix = 0;
+                        while (prefix < name.length && prefix < previous.length && name[prefix] == previous[prefix]) {
+                            prefix++;
+                        }
+                        writeVarInt(prefix);
+                        writeVarInt(name.length - prefix);
+                        _out.write(name, prefix, name.length - prefix);
+                    }
+                    previous = name;
+                }
+                return blockOffsets;
+            }
+
+            /**
+             * Hash and displace: the names are distributed on the buckets, then for each bucket, the largest first, a
+             * displacement is searched that moves all its names to free slots.
+             */
+            private void buildPerfectHash(int[] displacements, int[] slots) {
+                List<List<Integer>> buckets = Lists.newArrayListWithCapacity(displacements.length);
+                for (int i = 0; i < displacements.length; i++) {
+                    buckets.add(Lists.<Integer> newArrayList());
+                }
+                for (int id = 0; id < _names.size(); id++) {
+                    buckets.get(bucket(_names.get(id), displacements.length)).add(Integer.valueOf(id));
+                }
+                Integer[] order = new Integer[displacements.length];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = Integer.valueOf(i);
+                }
+                final List<List<Integer>> bucketsBySize = buckets;
+                Arrays.sort(order, new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer o1, Integer o2) {
+                        return bucketsBySize.get(o2.intValue()).size() - bucketsBySize.get(o1.intValue()).size();
+                    }
+                });
+
+                BitSet taken = new BitSet(slots.length);
+                for (Integer bucket : order) {
+                    List<Integer> ids = buckets.get(bucket.intValue());
+                    if (ids.isEmpty()) {
+                        break;
+                    }
+                    int[] bucketSlots = new int[ids.size()];
+                    int displacement = 0;
+                    while (!fits(ids, ++displacement, slots.length, taken, bucketSlots)) {
+                        // Try the next one
+                    }
+                    displacements[bucket.intValue()] = displacement;
+                    for (int i = 0; i < ids.size(); i++) {
+                        taken.set(bucketSlots[i]);
+                        slots[bucketSlots[i]] = ids.get(i).intValue();
+                    }
+                }
+            }
+
+            private boolean fits(List<Integer> ids, int displacement, int slotCount, BitSet taken, int[] bucketSlots) {
+                for (int i = 0; i < ids.size(); i++) {
+                    int slot = slot(_names.get(ids.get(i).intValue()), displacement, slotCount);
+                    if (taken.get(slot)) {
+                        return false;
+                    }
+                    for (int j = 0; j < i; j++) {
+                        if (bucketSlots[j] == slot) {
+                            return false;
+                        }
+                    }
+                    bucketSlots[i] = slot;
+                }
+                return true;
+            }
+
+            private void writeRecords() throws IOException {
+                List<List<Integer>> subtypes = Lists.newArrayListWithCapacity(_names.size());
+                for (int id = 0; id < _names.size(); id++) {
+                    subtypes.add(Lists.<Integer> newArrayList());
+                }
+                String[] namesById = new String[_names.size()];
+                for (Map.Entry<String, Integer> entry : _ids.entrySet()) {
+                    namesById[entry.getValue().intValue()] = entry.getKey();
+                }
+                for (int id = 0; id < namesById.length; id++) {
+                    IndexedClass indexed = _classes.get(namesById[id]);
+                    if (indexed != null) {
+                        for (String supertype : indexed.supertypes()) {
+                            subtypes.get(_ids.get(supertype).intValue()).add(Integer.valueOf(id));
+                        }
+                    }
+                }
+                for (int id = 0; id < namesById.length; id++) {
+                    IndexedClass indexed = _classes.get(namesById[id]);
+                    if (indexed == null) {
+                        _out.writeInt(0);
+                        _out.writeInt(-1);
+                        _out.writeInt(0);
+                        _out.writeInt(0);
+                    } else {
+                        _out.writeInt(INDEXED | indexed.accessFlags & 0xFFFF);
+                        _out.writeInt(indexed.superclass == null ? -1 : _ids.get(indexed.superclass).intValue());
+                        _out.writeInt(_pool.size());
+                        _out.writeInt(indexed.interfaces.size());
+                        addToPool(indexed.interfaces);
+                    }
+                    _out.writeInt(_pool.size());
+                    _out.writeInt(subtypes.get(id).size());
+                    _pool.addAll(subtypes.get(id));
+                }
+            }
+
+            private int writeAnnotations() throws IOException {
+                SortedMap<Integer, SortedSet<Integer>> postings = Maps.newTreeMap();
+                for (Map.Entry<String, IndexedClass> entry : _classes.entrySet()) {
+                    for (String annotation : entry.getValue().annotations) {
+                        Integer annotationId = _ids.get(annotation);
+                        if (!postings.containsKey(annotationId)) {
+                            postings.put(annotationId, Sets.<Integer> newTreeSet());
+                        }
+                        postings.get(annotationId).add(_ids.get(entry.getKey()));
+                    }
+                }
+                for (Map.Entry<Integer, SortedSet<Integer>> posting : postings.entrySet()) {
+                    _out.writeInt(posting.getKey().intValue());
+                    _out.writeInt(_pool.size());
+                    _out.writeInt(posting.getValue().size());
+                    _pool.addAll(posting.getValue());
+                }
+                return postings.size();
+            }
+
+            private void addToPool(Collection<String> names) {
+                for (String name : names) {
+                    _pool.add(_ids.get(name));
+                }
+            }
+
+            private void writeInts(int[] values) throws IOException {
+                for (int value : values) {
+                    _out.writeInt(value);
+                }
+            }
+
+            private void writeVarInt(int value) throws IOException {
+                while ((value & ~0x7F) != 0) {
+                    _out.writeByte(value & 0x7F | 0x80);
+                    value >>>= 7;
+                }
+                _out.writeByte(value);
+            }
+        }
+    }
+
+    private static final class IndexedClass {
+        final int accessFlags;
+
+        final String superclass;
+
+        final List<String> interfaces;
+
+        final List<String> annotations;
+
+        IndexedClass(int accessFlags, String superclass, Collection<String> interfaces, Collection<String> annotations) {
+            this.accessFlags = accessFlags;
+            this.superclass = superclass;
+            this.interfaces = Lists.newArrayList(interfaces);
+            this.annotations = Lists.newArrayList(annotations);
+        }
+
+        List<String> supertypes() {
+            List<String> supertypes = Lists.newArrayList(interfaces);
+            if (superclass != null) {
+                supertypes.add(superclass);
+            }
+            return supertypes;
+        }
+
+        List<String> referencedNames() {
+            List<String> names = supertypes();
+            names.addAll(annotations);
+            return names;
+        }
+    }
+}
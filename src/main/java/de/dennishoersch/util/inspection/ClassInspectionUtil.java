@@ -15,16 +15,35 @@
  */
 package de.dennishoersch.util.inspection;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 import de.dennishoersch.util.inspection.impl.collect.ClassCollector;
+import de.dennishoersch.util.inspection.impl.collect.ParallelClassCollector;
 import de.dennishoersch.util.inspection.impl.inspect.AnnotatedElementsAnnotatedWith;
+import de.dennishoersch.util.inspection.impl.inspect.AnnotationIndexRecorder;
+import de.dennishoersch.util.inspection.impl.inspect.ClassIndexRecorder;
 import de.dennishoersch.util.inspection.impl.inspect.ClassesAnnotatedWith;
 import de.dennishoersch.util.inspection.impl.inspect.ClassesAssignableFrom;
 import de.dennishoersch.util.inspection.impl.inspect.ClassesImplementing;
+import de.dennishoersch.util.inspection.impl.inspect.FieldsMatching;
+import de.dennishoersch.util.inspection.impl.inspect.ImplementationsByTypeArgument;
+import de.dennishoersch.util.inspection.impl.inspect.MethodCallSites;
+import de.dennishoersch.util.inspection.impl.inspect.MethodsMatching;
+import de.dennishoersch.util.inspection.impl.inspect.SnapshotRecorder;
+import de.dennishoersch.util.inspection.impl.inspect.TypeDependencies;
 
 /**
  * Utilities to inspect and discover classes (elements) that match a specific
@@ -46,6 +65,144 @@ public class ClassInspectionUtil {
 		return new ClassCollector<T, CI>(inspector, packageName).findAndLetInspect().getElements();
 	}
 
+	/**
+	 * Collects elements that are matched by the given inspector on the whole
+	 * classpath, not only below a base package.
+	 * 
+	 * @param inspector
+	 * @return matched classes
+	 * @see ClassCollector#wholeClasspath(ClassInspector)
+	 */
+	public static <T, CI extends ClassInspector<T>> Collection<T> findElementsOnClasspath(CI inspector) {
+		return ClassCollector.<T, CI> wholeClasspath(inspector).findAndLetInspect().getElements();
+	}
+
+	/**
+	 * Same as {@link #findElementsOnClasspath(ClassInspector)} but inspects
+	 * each class as soon as it is found. Memory is bound by the result, not by
+	 * the size of the classpath.
+	 * 
+	 * @param inspector
+	 * @return matched classes
+	 * @see ClassCollector#setStreaming(boolean)
+	 */
+	public static <T, CI extends ClassInspector<T>> Collection<T> streamElementsOnClasspath(CI inspector) {
+		ClassCollector<T, CI> collector = ClassCollector.<T, CI> wholeClasspath(inspector);
+		collector.setStreaming(true);
+		return collector.findAndLetInspect().getElements();
+	}
+
+	/**
+	 * Collects elements that are matched by the given inspector in an exploded
+	 * web application, i.e. in <code>WEB-INF/classes</code> and the jars of
+	 * <code>WEB-INF/lib</code>.
+	 * 
+	 * @param inspector
+	 * @param webappDirectory
+	 *            the directory containing <code>WEB-INF</code>
+	 * @return matched classes
+	 * @see ClassCollector#webapp(ClassInspector, File)
+	 */
+	public static <T, CI extends ClassInspector<T>> Collection<T> findElementsInWebapp(CI inspector, File webappDirectory) {
+		return ClassCollector.<T, CI> webapp(inspector, webappDirectory).findAndLetInspect().getElements();
+	}
+
+	/**
+	 * Collects elements that are matched by the given inspector until all
+	 * classes are inspected or the token requests to stop.
+	 * 
+	 * @param inspector
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @param token
+	 *            token to cancel the scan or to give it a deadline
+	 * @return matched classes, partial if the scan was stopped early
+	 */
+	public static <T, CI extends ClassInspector<T>> ScanResult<T> findElements(CI inspector, String packageName, CancellationToken token) {
+		ClassCollector<T, CI> collector = new ClassCollector<T, CI>(inspector, packageName);
+		collector.setCancellationToken(token);
+		return collector.scan();
+	}
+
+	/**
+	 * Collects elements that are matched by the given inspector. Only roots,
+	 * packages and classes accepted by the filter are read.
+	 * 
+	 * @param inspector
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @param filter
+	 *            include and exclude rules
+	 * @return matched classes
+	 */
+	public static <T, CI extends ClassInspector<T>> Collection<T> findElements(CI inspector, String packageName, ScanFilter filter) {
+		ClassCollector<T, CI> collector = new ClassCollector<T, CI>(inspector, packageName);
+		collector.setFilter(filter);
+		return collector.findAndLetInspect().getElements();
+	}
+
+	/**
+	 * Collects elements that are matched by the given inspector without
+	 * blocking the calling thread. Directories and jars are read on a pool of
+	 * I/O threads, the class files are parsed on a pool bounded by the number
+	 * of processors.
+	 * 
+	 * @param inspector
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @return future of the matched classes
+	 */
+	public static <T, CI extends ClassInspector<T>> ListenableFuture<Collection<T>> findElementsAsync(CI inspector, String packageName) {
+		return Futures.transform(new ClassCollector<T, CI>(inspector, packageName).findAndLetInspectAsync(), ClassInspectionUtil.<T> elementsOf());
+	}
+
+	/**
+	 * Collects elements that are matched by the given inspector without
+	 * blocking the calling thread.
+	 * 
+	 * @param inspector
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @param ioExecutor
+	 *            executor to read directories and jars on
+	 * @return future of the matched classes
+	 */
+	public static <T, CI extends ClassInspector<T>> ListenableFuture<Collection<T>> findElementsAsync(CI inspector, String packageName, Executor ioExecutor) {
+		return Futures.transform(new ClassCollector<T, CI>(inspector, packageName).findAndLetInspectAsync(ioExecutor), ClassInspectionUtil.<T> elementsOf());
+	}
+
+	/**
+	 * Collects elements in parallel, each worker inspects into its own
+	 * accumulator of the collector.
+	 * 
+	 * @param collector
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @return collected elements
+	 * @see InspectionCollectors
+	 */
+	public static <A, T> Collection<T> collectElements(InspectionCollector<A, T> collector, String packageName) {
+		return new ParallelClassCollector<A, T>(collector, packageName).scan().getElements();
+	}
+
+	/**
+	 * Same as {@link #collectElements(InspectionCollector, String)} but does
+	 * not block the calling thread.
+	 * 
+	 * @param collector
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @param ioExecutor
+	 *            executor to read directories and jars on
+	 * @param parseExecutor
+	 *            executor to parse and inspect the class files on
+	 * @return future of the collected elements
+	 */
+	public static <A, T> ListenableFuture<ScanResult<T>> collectElementsAsync(InspectionCollector<A, T> collector, String packageName, Executor ioExecutor,
+			ListeningExecutorService parseExecutor) {
+		return new ParallelClassCollector<A, T>(collector, packageName).scanAsync(ioExecutor, parseExecutor);
+	}
+
 	/**
 	 * Collects classes that are assignable from the given class.
 	 * 
@@ -66,6 +223,50 @@ public class ClassInspectionUtil {
 		return findElements(new ClassesImplementing<T>(iface), packageName);
 	}
 
+	/**
+	 * Asynchronous variant of
+	 * {@link #findClassesAssignableFrom(Class, String)}.
+	 * 
+	 * @param clazz
+	 *            the class that matching classes should be assignable from
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @return future of the matched classes
+	 */
+	public static <T> ListenableFuture<Collection<Class<? extends T>>> findClassesAssignableFromAsync(Class<T> clazz, String packageName) {
+		return findElementsAsync(new ClassesAssignableFrom<T>(clazz), packageName);
+	}
+
+	/**
+	 * Asynchronous variant of {@link #findClassesImplementing(Class, String)}.
+	 * 
+	 * @param iface
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @return future of the matched classes
+	 */
+	public static <T> ListenableFuture<Collection<Class<? extends T>>> findClassesImplementingAsync(Class<T> iface, String packageName) {
+		if (!iface.isInterface()) {
+			throw new IllegalArgumentException("'" + iface + "' is no Interface!");
+		}
+		return findElementsAsync(new ClassesImplementing<T>(iface), packageName);
+	}
+
+	/**
+	 * Collects classes implementing the given interface anywhere on the
+	 * classpath, i.e. to find all implementations of a service provider
+	 * interface.
+	 * 
+	 * @param iface
+	 * @return matched classes
+	 */
+	public static <T> Collection<Class<? extends T>> findClassesImplementingOnClasspath(Class<T> iface) {
+		if (!iface.isInterface()) {
+			throw new IllegalArgumentException("'" + iface + "' is no Interface!");
+		}
+		return findElementsOnClasspath(new ClassesImplementing<T>(iface));
+	}
+
 	/**
 	 * Collects classes that are annotated with the annotation.
 	 * 
@@ -91,6 +292,167 @@ public class ClassInspectionUtil {
 		return findElements(new AnnotatedElementsAnnotatedWith(annotation), packageName);
 	}
 
+	/**
+	 * Records all annotations of the classes of the package and their members
+	 * in one scan. Each query of the index is then a lookup instead of a scan,
+	 * only the hits are loaded.
+	 * 
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @return the index
+	 */
+	public static AnnotationIndex buildAnnotationIndex(String packageName) {
+		return Iterables.getOnlyElement(findElements(new AnnotationIndexRecorder(Thread.currentThread().getContextClassLoader()), packageName));
+	}
+
+	/**
+	 * Asynchronous variant of {@link #findAnnotatedClasses(Class, String)}.
+	 * 
+	 * @param annotation
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @return future of the matched classes
+	 */
+	public static ListenableFuture<Collection<Class<?>>> findAnnotatedClassesAsync(Class<? extends Annotation> annotation, String packageName) {
+		return findElementsAsync(new ClassesAnnotatedWith(annotation), packageName);
+	}
+
+	/**
+	 * Asynchronous variant of {@link #findAnnotatedElements(Class, String)}.
+	 * 
+	 * @param annotation
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @return future of the matched classes
+	 */
+	public static ListenableFuture<Collection<ClassAnnotationMetadata>> findAnnotatedElementsAsync(Class<? extends Annotation> annotation, String packageName) {
+		return findElementsAsync(new AnnotatedElementsAnnotatedWith(annotation), packageName);
+	}
+
+	/**
+	 * Collects the call sites of the method in the byte code of the classes
+	 * of the package. The calling classes are not loaded.
+	 * 
+	 * @param method
+	 *            the called method
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @return the call sites
+	 */
+	public static Collection<MethodCallSite> findMethodCallSites(Method method, String packageName) {
+		return findElements(new MethodCallSites(method), packageName);
+	}
+
+	/**
+	 * Asynchronous variant of {@link #findMethodCallSites(Method, String)}.
+	 * 
+	 * @param method
+	 *            the called method
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @return future of the call sites
+	 */
+	public static ListenableFuture<Collection<MethodCallSite>> findMethodCallSitesAsync(Method method, String packageName) {
+		return findElementsAsync(new MethodCallSites(method), packageName);
+	}
+
+	/**
+	 * Runs the queries in one scan and records a snapshot of the scanned
+	 * classes and the classes each query matched.
+	 * 
+	 * @param queries
+	 *            the inspectors by query name
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @return the snapshot
+	 * @see ScanSnapshot#diff(ScanSnapshot)
+	 */
+	public static ScanSnapshot snapshot(Map<String, ? extends ClassInspector<?>> queries, String packageName) {
+		return Iterables.getOnlyElement(findElements(new SnapshotRecorder(queries), packageName));
+	}
+
+	/**
+	 * Scans the package and writes a binary index of the classes, their super
+	 * types and annotations. No class is loaded.
+	 * 
+	 * @param file
+	 *            the index file to write
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @return the written index, mapped into memory
+	 * @throws IOException
+	 * @see ClassIndex#open(File)
+	 */
+	public static ClassIndex writeClassIndex(File file, String packageName) throws IOException {
+		Iterables.getOnlyElement(findElements(new ClassIndexRecorder(), packageName)).write(file);
+		return ClassIndex.open(file);
+	}
+
+	/**
+	 * Collects the concrete implementations of the generic type by the type
+	 * arguments they bind, also through generic super classes. Only the
+	 * implementations are loaded.
+	 * 
+	 * @param type
+	 *            a generic class or interface
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @return the implementations by type argument
+	 */
+	public static <T> TypeArgumentIndex<T> findImplementationsByTypeArgument(Class<T> type, String packageName) {
+		return Iterables.getOnlyElement(findElements(new ImplementationsByTypeArgument<T>(type), packageName));
+	}
+
+	/**
+	 * Collects the methods declared by classes of the package that match the
+	 * signature. Only classes declaring a match are loaded.
+	 * 
+	 * @param signature
+	 *            modifiers, name and types of the methods
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @return matched methods
+	 */
+	public static Collection<Method> findMethods(MemberSignature signature, String packageName) {
+		return findElements(new MethodsMatching(signature), packageName);
+	}
+
+	/**
+	 * Collects the fields declared by classes of the package that match the
+	 * signature. Only classes declaring a match are loaded.
+	 * 
+	 * @param signature
+	 *            modifiers, name and type of the fields
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @return matched fields
+	 */
+	public static Collection<Field> findFields(MemberSignature signature, String packageName) {
+		return findElements(new FieldsMatching(signature), packageName);
+	}
+
+	/**
+	 * Collects which class of the package references which types. No class
+	 * is loaded.
+	 * 
+	 * @param packageName
+	 *            package name to scan recursively
+	 * @return the dependency graph
+	 */
+	public static TypeDependencyGraph findTypeDependencies(String packageName) {
+		return Iterables.getOnlyElement(findElements(new TypeDependencies(), packageName));
+	}
+
+	/**
+	 * Collects which class of the whole classpath references which types. No
+	 * class is loaded.
+	 * 
+	 * @return the dependency graph
+	 */
+	public static TypeDependencyGraph findTypeDependenciesOnClasspath() {
+		return Iterables.getOnlyElement(findElementsOnClasspath(new TypeDependencies()));
+	}
+
 	/**
 	 * @return function class to name
 	 */
@@ -98,6 +460,19 @@ public class ClassInspectionUtil {
 		return ToClassName.INSTANCE;
 	}
 
+	@SuppressWarnings("unchecked")
+	private static <T> Function<ClassInspector<T>, Collection<T>> elementsOf() {
+		return (Function<ClassInspector<T>, Collection<T>>) (Function<?, ?>) ToElements.INSTANCE;
+	}
+
+	private enum ToElements implements Function<ClassInspector<Object>, Collection<Object>> {
+		INSTANCE;
+		@Override
+		public Collection<Object> apply(ClassInspector<Object> input) {
+			return input.getElements();
+		}
+	}
+
 	private enum ToClassName implements Function<Class<?>, String> {
 		INSTANCE;
 		@Override
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+/**
+ * Optional extension of a {@link ClassInspector} to reject classes before they are parsed. A scan asks the inspector
+ * first with the name of a class, before the class file is read, and then with the raw content of the class file,
+ * before it is parsed. Only classes accepted by both are passed to {@link ClassInspector#inspect}.
+ * <p>
+ * Both methods may be called from several threads at the same time.
+ *
+ * @author hoersch
+ */
+public interface ClassPrefilter {
+
+    /**
+     * @param className fully qualified name of the class
+     * @return may the class match? <code>false</code> skips reading the class file
+     */
+    boolean acceptsClassName(String className);
+
+    /**
+     * @param className fully qualified name of the class
+     * @param content the unparsed class file
+     * @return may the class match? <code>false</code> skips parsing the class file
+     */
+    boolean acceptsClassContent(String className, byte[] content);
+}
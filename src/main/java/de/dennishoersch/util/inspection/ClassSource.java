@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import java.io.IOException;
+
+/**
+ * A source of class files to scan, i.e. a class directory, a jar or classes generated in memory. A scan may mix the
+ * roots of the class loader with any number of sources. Sources that hold resources open, i.e. jars, implement
+ * {@link java.io.Closeable} and are closed when the scan is done.
+ *
+ * @author hoersch
+ */
+public interface ClassSource {
+
+    /**
+     * Hands the class files of the package tree that are accepted by the filter to the handler until it asks to
+     * stop.
+     *
+     * @param packagePath path of the package to scan recursively with '/' as separator, the empty string for all
+     *            packages
+     * @param filter the include and exclude rules of packages and classes
+     * @param handler
+     * @throws IOException if the source could not be listed
+     */
+    void collect(String packagePath, ScanFilter filter, Handler handler) throws IOException;
+
+    /**
+     * Receives the class files of a source.
+     */
+    interface Handler {
+
+        /**
+         * @param className fully qualified name of the class
+         * @param content the class file, read on demand
+         * @return continue? <code>false</code> to stop, i.e. if the scan was cancelled
+         */
+        boolean handle(String className, Content content);
+    }
+
+    /**
+     * The content of a class file. Readable until the scan is done, possibly from another thread.
+     */
+    interface Content {
+
+        /**
+         * @return the class file
+         * @throws IOException
+         */
+        byte[] read() throws IOException;
+    }
+}
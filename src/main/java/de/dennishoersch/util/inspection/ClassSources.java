@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import javassist.ClassPool;
+import javassist.NotFoundException;
+
+import de.dennishoersch.util.inspection.impl.collect.DirectoryClassSource;
+import de.dennishoersch.util.inspection.impl.collect.InMemoryClassSource;
+import de.dennishoersch.util.inspection.impl.collect.JarClassSource;
+
+/**
+ * Factories of the {@link ClassSource}s shipped with the library.
+ *
+ * @author hoersch
+ */
+public final class ClassSources {
+
+    private ClassSources() {
+    }
+
+    /**
+     * @param directory a class directory, i.e. <code>WEB-INF/classes</code>
+     * @return the source of the class files below the directory
+     */
+    public static ClassSource directory(File directory) {
+        return new DirectoryClassSource(directory);
+    }
+
+    /**
+     * The jar is opened when collected and closed when the scan is done.
+     *
+     * @param jarfile
+     * @return the source of the class files of the jar
+     */
+    public static ClassSource jar(File jarfile) {
+        return new JarClassSource(jarfile);
+    }
+
+    /**
+     * Class files held in memory, i.e. generated at runtime. To load the matched classes the scan has to use a class
+     * loader that defines them.
+     *
+     * @param classes the class files by fully qualified class name. The map is copied, the arrays are not.
+     * @return the source
+     */
+    public static ClassSource inMemory(Map<String, byte[]> classes) {
+        return new InMemoryClassSource(classes);
+    }
+
+    /**
+     * Takes the current class files of the classes of the pool. Later changes of the classes are not seen.
+     *
+     * @param pool
+     * @param classNames fully qualified names of the classes
+     * @return the source
+     * @throws NotFoundException if the pool does not know a class
+     * @throws IOException if a class file could not be written
+     */
+    public static ClassSource inMemory(ClassPool pool, String... classNames) throws NotFoundException, IOException {
+        return InMemoryClassSource.of(pool, classNames);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import java.util.Collection;
+
+import javassist.bytecode.ClassFile;
+
+/**
+ * Inspector contract for parallel scans, modelled after <code>java.util.stream.Collector</code>. The scan creates one
+ * accumulator per worker, lets each worker inspect its share of the classes into its own accumulator and combines the
+ * accumulators when all are done. An accumulator is only ever used by one thread at a time, so neither it nor the
+ * collector need synchronization.
+ * <p>
+ * May implement {@link ClassPrefilter}, its methods are called from several threads at the same time.
+ *
+ * @author hoersch
+ * @param <A> type of the accumulator
+ * @param <T> type of the collected elements
+ * @see InspectionCollectors
+ */
+public interface InspectionCollector<A, T> {
+
+    /**
+     * The supplier: called once per worker.
+     *
+     * @return a new, empty accumulator
+     */
+    A newAccumulator();
+
+    /**
+     * The accumulator: called repeatedly with the candidate classes of one worker.
+     *
+     * @param accumulator the accumulator of the worker
+     * @param type
+     * @param helper the helper of the worker
+     */
+    void accumulate(A accumulator, ClassFile type, InspectionHelper helper);
+
+    /**
+     * The combiner: merges the accumulators of two workers, the classes of <code>left</code> were found before the
+     * ones of <code>right</code>.
+     *
+     * @param left
+     * @param right
+     * @return the merged accumulator, may be one of the given ones
+     */
+    A combine(A left, A right);
+
+    /**
+     * The finisher: called once with the accumulator of all workers.
+     *
+     * @param accumulator
+     * @return the collected elements
+     */
+    Collection<T> finish(A accumulator);
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import java.util.Collection;
+import java.util.List;
+
+import javassist.bytecode.ClassFile;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+
+/**
+ * Adapters to use {@link ClassInspector}s where an {@link InspectionCollector} is expected.
+ *
+ * @author hoersch
+ */
+public final class InspectionCollectors {
+
+    private InspectionCollectors() {
+    }
+
+    /**
+     * Gives each worker its own inspector, created by the factory, and concatenates their elements. Lock free, but the
+     * elements of an inspector must only depend on the classes it inspected. Duplicates are not removed.
+     *
+     * @param factory creates new, empty inspectors
+     * @return the collector
+     */
+    public static <T> InspectionCollector<?, T> perWorker(Supplier<? extends ClassInspector<T>> factory) {
+        return new PerWorker<T>(factory);
+    }
+
+    /**
+     * Lets all workers inspect into the same inspector, one at a time. For inspectors that can't be split, i.e. ones
+     * that need all classes to compute their elements.
+     *
+     * @param inspector
+     * @return the collector
+     */
+    public static <T> InspectionCollector<?, T> shared(ClassInspector<T> inspector) {
+        return new Shared<T>(inspector);
+    }
+
+    private static boolean acceptsClassName(Object inspector, String className) {
+        return !(inspector instanceof ClassPrefilter) || ((ClassPrefilter) inspector).acceptsClassName(className);
+    }
+
+    private static boolean acceptsClassContent(Object inspector, String className, byte[] content) {
+        return !(inspector instanceof ClassPrefilter) || ((ClassPrefilter) inspector).acceptsClassContent(className, content);
+    }
+
+    /**
+     * The accumulator of {@link PerWorker}: the inspector of a worker and the elements of the workers combined into it.
+     */
+    private static final class Accumulator<T> {
+        final ClassInspector<T> inspector;
+
+        final List<T> combined = Lists.newArrayList();
+
+        Accumulator(ClassInspector<T> inspector) {
+            this.inspector = inspector;
+        }
+
+        Collection<T> getElements() {
+            List<T> elements = Lists.newArrayList(combined);
+            elements.addAll(inspector.getElements());
+            return elements;
+        }
+    }
+
+    private static final class PerWorker<T> implements InspectionCollector<Accumulator<T>, T>, ClassPrefilter {
+        private final Supplier<? extends ClassInspector<T>> _factory;
+
+        /** Answers the prefilter questions for all workers. */
+        private final ClassInspector<T> _prefilter;
+
+        PerWorker(Supplier<? extends ClassInspector<T>> factory) {
+            _factory = factory;
+            _prefilter = factory.get();
+        }
+
+        @Override
+        public Accumulator<T> newAccumulator() {
+            return new Accumulator<T>(_factory.get());
+        }
+
+        @Override
+        public void accumulate(Accumulator<T> accumulator, ClassFile type, InspectionHelper helper) {
+            accumulator.inspector.inspect(type, helper);
+        }
+
+        @Override
+        public Accumulator<T> combine(Accumulator<T> left, Accumulator<T> right) {
+            left.combined.addAll(right.getElements());
+            return left;
+        }
+
+        @Override
+        public Collection<T> finish(Accumulator<T> accumulator) {
+            return accumulator.getElements();
+        }
+
+        @Override
+        public boolean acceptsClassName(String className) {
+            return InspectionCollectors.acceptsClassName(_prefilter, className);
+        }
+
+        @Override
+        public boolean acceptsClassContent(String className, byte[] content) {
+            return InspectionCollectors.acceptsClassContent(_prefilter, className, content);
+        }
+
+        @Override
+        public String toString() {
+            return "perWorker(" + _prefilter + ")";
+        }
+    }
+
+    private static final class Shared<T> implements InspectionCollector<ClassInspector<T>, T>, ClassPrefilter {
+        private final ClassInspector<T> _inspector;
+
+        Shared(ClassInspector<T> inspector) {
+            _inspector = inspector;
+        }
+
+        @Override
+        public ClassInspector<T> newAccumulator() {
+            return _inspector;
+        }
+
+        @Override
+        public void accumulate(ClassInspector<T> accumulator, ClassFile type, InspectionHelper helper) {
+            synchronized (accumulator) {
+                accumulator.inspect(type, helper);
+            }
+        }
+
+        @Override
+        public ClassInspector<T> combine(ClassInspector<T> left, ClassInspector<T> right) {
+            return left;
+        }
+
+        @Override
+        public Collection<T> finish(ClassInspector<T> accumulator) {
+            synchronized (accumulator) {
+                return accumulator.getElements();
+            }
+        }
+
+        @Override
+        public boolean acceptsClassName(String className) {
+            return InspectionCollectors.acceptsClassName(_inspector, className);
+        }
+
+        @Override
+        public boolean acceptsClassContent(String className, byte[] content) {
+            return InspectionCollectors.acceptsClassContent(_inspector, className, content);
+        }
+
+        @Override
+        public String toString() {
+            return "shared(" + _inspector + ")";
+        }
+    }
+}
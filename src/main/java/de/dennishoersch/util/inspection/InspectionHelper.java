@@ -52,6 +52,17 @@ public interface InspectionHelper {
 	 */
 	ClassInfo toClassInfo(ClassFile type);
 
+	/**
+	 * Gets the canonical instance of a class name or descriptor of this scan.
+	 * Inspectors keeping names in their results should keep the canonical
+	 * ones, so equal names are kept once.
+	 *
+	 * @param name
+	 * @return the equal canonical name, <code>null</code> for
+	 *         <code>null</code>
+	 */
+	String intern(String name);
+
 	/**
 	 * Simple wrapper of classes, may be backed by real classes or just
 	 * {@link ClassFile}.
@@ -71,6 +82,20 @@ public interface InspectionHelper {
 		 * @return all interfaces of this class
 		 */
 		public String[] getInterfaces();
+
+		/**
+		 * @return the modifiers as of {@link java.lang.reflect.Modifier}, i.e.
+		 *         to tell interfaces and abstract classes
+		 */
+		public int getModifiers();
+
+		/**
+		 * @return the generic signature of the class, i.e.
+		 *         <code>&lt;T:Ljava/lang/Object;&gt;Ljava/lang/Object;La/Handler&lt;TT;&gt;;</code>,
+		 *         or <code>null</code> if the class is not generic and has no
+		 *         generic super types
+		 */
+		public String getGenericSignature();
 	}
 
 }
@@ -19,53 +19,208 @@ package de.dennishoersch.util.inspection;
 import static com.google.common.base.Predicates.not;
 import static com.google.common.collect.Iterables.filter;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.apache.log4j.Logger;
 
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 /**
  * Collecting instances of a given interface. Instances can be Enum constants. Normal classes are just constructed with their defulat constrcutor.
+ * <p>
+ * By default all instances are created when the collector is created. A {@link #lazy(Class, String) lazy} collector creates the instances of an
+ * implementation when they are first accessed, a {@link #parallel(Class, String, Executor) parallel} collector creates them concurrently. The
+ * collector is thread safe.
+ * <p>
+ * The implementations are taken from the {@link ServiceRegistry} generated at build time if present and not stale, otherwise they are found
+ * by scanning the base package.
  * 
  * @param <T>
  */
 public class InstanceCollector<T> {
-    private final Logger logger = Logger.getLogger(getClass());
-    private final Set<T> _instances;
+    private static final Logger logger = Logger.getLogger(InstanceCollector.class);
 
-    public InstanceCollector(Class<T> interfaceClass, String basePackage) {
+    private final Map<Class<? extends T>, Instances<T>> _registry;
+
+    private volatile Set<T> _instances;
 
-        Collection<Class<? extends T>> implementations = ClassInspectionUtil.findClassesImplementing(interfaceClass, basePackage);
+    public InstanceCollector(Class<T> interfaceClass, String basePackage) {
+        this(findImplementations(interfaceClass, basePackage));
+        instances();
+    }
 
-        ImmutableSet.Builder<T> instances = ImmutableSet.builder();
+    private InstanceCollector(Collection<Class<? extends T>> implementations) {
+        ImmutableMap.Builder<Class<? extends T>, Instances<T>> registry = ImmutableMap.builder();
         for (Class<? extends T> impl : filter(implementations, not(isAnonymous()))) {
-            instances.addAll(getInstances(impl));
+            registry.put(impl, new Instances<T>(impl));
         }
+        _registry = registry.build();
+    }
 
-        _instances = instances.build();
+    /**
+     * Creates a collector that creates the instances of an implementation when they are first accessed.
+     * 
+     * @param interfaceClass
+     * @param basePackage
+     * @return the collector
+     */
+    public static <T> InstanceCollector<T> lazy(Class<T> interfaceClass, String basePackage) {
+        return new InstanceCollector<T>(findImplementations(interfaceClass, basePackage));
     }
 
-    public Collection<T> instances() {
-        return _instances;
+    /**
+     * Takes the implementations from the generated {@link ServiceRegistry} if there is one that is up to date, scans for them otherwise.
+     */
+    private static <T> Collection<Class<? extends T>> findImplementations(Class<T> interfaceClass, String basePackage) {
+        Collection<Class<? extends T>> implementations = ServiceRegistry.read(Thread.currentThread().getContextClassLoader(), interfaceClass, basePackage);
+        if (implementations != null) {
+            logger.debug("Using registry of '" + interfaceClass.getName() + "'.");
+            return implementations;
+        }
+        return ClassInspectionUtil.findClassesImplementing(interfaceClass, basePackage);
     }
 
-    private Collection<T> getInstances(Class<? extends T> clazz) {
-        if (clazz.isEnum()) {
-            T[] enumConstants = clazz.getEnumConstants();
-            return Arrays.asList(enumConstants);
+    /**
+     * Creates a collector that creates all instances concurrently using the given executor, i.e. for implementations that are expensive to
+     * construct. Returns when all instances are created, even if some creations failed.
+     * 
+     * @param interfaceClass
+     * @param basePackage
+     * @param executor
+     * @return the collector
+     * @throws UncheckedExecutionException with the first failure if an implementation could not be initialized
+     */
+    public static <T> InstanceCollector<T> parallel(Class<T> interfaceClass, String basePackage, Executor executor) {
+        InstanceCollector<T> collector = lazy(interfaceClass, basePackage);
+        collector.createAll(executor);
+        return collector;
+    }
+
+    private void createAll(Executor executor) {
+        List<Future<?>> creations = Lists.newArrayList();
+        for (final Instances<T> instances : _registry.values()) {
+            FutureTask<Void> creation = new FutureTask<Void>(new Runnable() {
+                @Override
+                public void run() {
+                    instances.get();
+                }
+            }, null);
+            executor.execute(creation);
+            creations.add(creation);
         }
+        Throwable failure = null;
         try {
-            T instance = clazz.newInstance();
-            return Arrays.asList(instance);
-        } catch (IllegalAccessException | InstantiationException e) {
-            logger.error("Can not create instance of '" + clazz + "'!", e);
+            for (Future<?> creation : creations) {
+                try {
+                    creation.get();
+                } catch (ExecutionException e) {
+                    logger.error("Could not create instances!", e.getCause());
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw new UncheckedExecutionException(failure);
+        }
+    }
+
+    /**
+     * @return the instances of all implementations, creates the instances that were not created yet
+     */
+    public Collection<T> instances() {
+        Set<T> instances = _instances;
+        if (instances == null) {
+            ImmutableSet.Builder<T> builder = ImmutableSet.builder();
+            for (Instances<T> impl : _registry.values()) {
+                builder.addAll(impl.get());
+            }
+            instances = builder.build();
+            _instances = instances;
+        }
+        return instances;
+    }
+
+    /**
+     * @param implementation
+     * @return the instances of the given implementation (one or the enum constants), empty if it is no known implementation
+     */
+    public Collection<T> instancesOf(Class<? extends T> implementation) {
+        Instances<T> instances = _registry.get(implementation);
+        if (instances == null) {
+            return Collections.emptyList();
+        }
+        return instances.get();
+    }
+
+    /**
+     * @return all found implementations
+     */
+    public Set<Class<? extends T>> implementations() {
+        return _registry.keySet();
+    }
+
+    /**
+     * The instances of one implementation, created once on first access.
+     */
+    private static final class Instances<T> {
+        private final Class<? extends T> _clazz;
+
+        private volatile List<T> _instances;
+
+        Instances(Class<? extends T> clazz) {
+            _clazz = clazz;
+        }
+
+        List<T> get() {
+            List<T> instances = _instances;
+            if (instances == null) {
+                synchronized (this) {
+                    instances = _instances;
+                    if (instances == null) {
+                        instances = create();
+                        _instances = instances;
+                    }
+                }
+            }
+            return instances;
+        }
+
+        private List<T> create() {
+            if (_clazz.isEnum()) {
+                T[] enumConstants = _clazz.getEnumConstants();
+                return ImmutableList.copyOf(Arrays.asList(enumConstants));
+            }
+            try {
+                // Only public constructors, classes without are skipped
+                Constructor<? extends T> constructor = _clazz.getConstructor();
+                return ImmutableList.<T> of(constructor.newInstance());
+            } catch (NoSuchMethodException | IllegalAccessException | InstantiationException e) {
+                logger.error("Can not create instance of '" + _clazz + "'!", e);
+            } catch (InvocationTargetException e) {
+                logger.error("Can not create instance of '" + _clazz + "'!", e.getCause());
+            }
+            return ImmutableList.of();
         }
-        return Collections.emptyList();
     }
 
     @SuppressWarnings("unchecked")
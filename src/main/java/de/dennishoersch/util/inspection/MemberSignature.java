@@ -0,0 +1,159 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Describes methods or fields by their declaration: modifiers, name and types. Inspectors match it against the
+ * descriptors of the class files, so classes are only loaded for actual hits. Types are matched exactly, not by
+ * assignability. Immutable.
+ *
+ * <pre>
+ * MemberSignature.builder().withModifiers(Modifier.PUBLIC | Modifier.STATIC).ofType(Config.class).build();
+ * </pre>
+ *
+ * @author hoersch
+ */
+public final class MemberSignature {
+    private final int _modifiers;
+
+    private final Pattern _name;
+
+    private final Class<?> _type;
+
+    private final List<Class<?>> _parameterTypes;
+
+    private MemberSignature(Builder builder) {
+        _modifiers = builder._modifiers;
+        _name = builder._name;
+        _type = builder._type;
+        _parameterTypes = builder._parameterTypes;
+    }
+
+    /**
+     * @return a builder for a signature that matches all members
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the modifiers a member must have at least
+     */
+    public int getModifiers() {
+        return _modifiers;
+    }
+
+    /**
+     * @return the pattern of the member name or <code>null</code> for any name
+     */
+    public Pattern getName() {
+        return _name;
+    }
+
+    /**
+     * @return the return type of a method or the type of a field, <code>null</code> for any type
+     */
+    public Class<?> getType() {
+        return _type;
+    }
+
+    /**
+     * @return the parameter types of a method, <code>null</code> for any parameters
+     */
+    public List<Class<?>> getParameterTypes() {
+        return _parameterTypes;
+    }
+
+    @Override
+    public String toString() {
+        return "members" + (_modifiers == 0 ? "" : " with modifiers '" + Modifier.toString(_modifiers) + "'") + (_name == null ? "" : " named " + _name)
+                + (_type == null ? "" : " of type " + _type.getName()) + (_parameterTypes == null ? "" : " with parameters " + _parameterTypes);
+    }
+
+    /**
+     * Builder of a {@link MemberSignature}.
+     */
+    public static final class Builder {
+        private int _modifiers;
+
+        private Pattern _name;
+
+        private Class<?> _type;
+
+        private List<Class<?>> _parameterTypes;
+
+        Builder() {
+        }
+
+        /**
+         * @param modifiers the {@link Modifier}s a member must have at least
+         * @return this builder
+         */
+        public Builder withModifiers(int modifiers) {
+            _modifiers = modifiers;
+            return this;
+        }
+
+        /**
+         * @param glob glob on the member name, '*' matches any characters
+         * @return this builder
+         */
+        public Builder named(String glob) {
+            _name = Pattern.compile(ScanFilter.globToRegex(glob, null));
+            return this;
+        }
+
+        /**
+         * @param regex regular expression on the member name
+         * @return this builder
+         */
+        public Builder namedLike(String regex) {
+            _name = Pattern.compile(regex);
+            return this;
+        }
+
+        /**
+         * @param type the return type of a method or the type of a field
+         * @return this builder
+         */
+        public Builder ofType(Class<?> type) {
+            _type = type;
+            return this;
+        }
+
+        /**
+         * @param parameterTypes the exact parameter types of a method
+         * @return this builder
+         */
+        public Builder withParameters(Class<?>... parameterTypes) {
+            _parameterTypes = ImmutableList.copyOf(parameterTypes);
+            return this;
+        }
+
+        /**
+         * @return the signature
+         */
+        public MemberSignature build() {
+            return new MemberSignature(this);
+        }
+    }
+}
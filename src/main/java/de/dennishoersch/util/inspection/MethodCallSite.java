@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import com.google.common.base.Objects;
+
+/**
+ * A call of a method found in the byte code of a class. The calling class is not loaded, so it is given by name.
+ *
+ * @author hoersch
+ */
+public final class MethodCallSite {
+    private final String _callingClass;
+
+    private final String _callingMethod;
+
+    private final String _callingMethodDescriptor;
+
+    private final int _offset;
+
+    private final int _lineNumber;
+
+    /**
+     * @param callingClass fully qualified name of the calling class
+     * @param callingMethod name of the calling method
+     * @param callingMethodDescriptor descriptor of the calling method
+     * @param offset offset of the invoke instruction in the byte code of the calling method
+     * @param lineNumber line of the call or <code>-1</code> if not known
+     */
+    public MethodCallSite(String callingClass, String callingMethod, String callingMethodDescriptor, int offset, int lineNumber) {
+        _callingClass = callingClass;
+        _callingMethod = callingMethod;
+        _callingMethodDescriptor = callingMethodDescriptor;
+        _offset = offset;
+        _lineNumber = lineNumber;
+    }
+
+    /**
+     * @return fully qualified name of the calling class
+     */
+    public String getCallingClass() {
+        return _callingClass;
+    }
+
+    /**
+     * @return name of the calling method, <code>&lt;init&gt;</code> for constructors and <code>&lt;clinit&gt;</code>
+     *         for static initializers
+     */
+    public String getCallingMethod() {
+        return _callingMethod;
+    }
+
+    /**
+     * @return descriptor of the calling method, i.e. <code>(Ljava/lang/String;)V</code>
+     */
+    public String getCallingMethodDescriptor() {
+        return _callingMethodDescriptor;
+    }
+
+    /**
+     * @return offset of the invoke instruction in the byte code of the calling method
+     */
+    public int getOffset() {
+        return _offset;
+    }
+
+    /**
+     * @return line of the call or <code>-1</code> if the class was compiled without line numbers
+     */
+    public int getLineNumber() {
+        return _lineNumber;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof MethodCallSite)) {
+            return false;
+        }
+        MethodCallSite other = (MethodCallSite) obj;
+        return _callingClass.equals(other._callingClass) && _callingMethod.equals(other._callingMethod)
+                && _callingMethodDescriptor.equals(other._callingMethodDescriptor) && _offset == other._offset;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(_callingClass, _callingMethod, _callingMethodDescriptor, Integer.valueOf(_offset));
+    }
+
+    @Override
+    public String toString() {
+        return _callingClass + "." + _callingMethod + _callingMethodDescriptor + "@" + _offset + (_lineNumber < 0 ? "" : " (line " + _lineNumber + ")");
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Include and exclude rules of a scan. The rules are evaluated while the
+ * class files are enumerated, so excluded roots, packages and classes are
+ * never read.
+ * <ul>
+ * <li><b>roots</b> - globs on the path of a jar or class directory. A glob
+ * without '/' is matched against the file name only. '*' matches within a
+ * path element, '**' across path elements.</li>
+ * <li><b>packages</b> - package prefixes including all sub packages. The
+ * longest matching prefix decides, so a package can be included inside an
+ * excluded one and vice versa.</li>
+ * <li><b>classes</b> - globs or regular expressions on the fully qualified
+ * class name. '*' matches any characters.</li>
+ * </ul>
+ * Without include rules on a level everything not excluded is included on that
+ * level.
+ *
+ * @author hoersch
+ */
+public final class ScanFilter {
+
+    /** Filter that accepts everything. */
+    public static final ScanFilter ALL = builder().build();
+
+    private final Pattern _includedRoots;
+
+    private final Pattern _excludedRoots;
+
+    private final PackageNode _packages;
+
+    private final boolean _includesPackagesOnly;
+
+    private final Pattern _includedClasses;
+
+    private final Pattern _excludedClasses;
+
+    private ScanFilter(Builder builder) {
+        _includedRoots = anyOf(builder._includedRoots);
+        _excludedRoots = anyOf(builder._excludedRoots);
+        _packages = builder._packages.copy();
+        _includesPackagesOnly = builder._includesPackagesOnly;
+        _includedClasses = anyOf(builder._includedClasses);
+        _excludedClasses = anyOf(builder._excludedClasses);
+    }
+
+    /**
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param path path of a jar or class directory
+     * @return should the root be scanned?
+     */
+    public boolean acceptsRoot(String path) {
+        if (_includedRoots == null && _excludedRoots == null) {
+            return true;
+        }
+        path = path.replace('\\', '/');
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        String fileName = path.substring(path.lastIndexOf('/') + 1);
+        if (_includedRoots != null && !matchesRoot(_includedRoots, path, fileName)) {
+            return false;
+        }
+        return _excludedRoots == null || !matchesRoot(_excludedRoots, path, fileName);
+    }
+
+    private static boolean matchesRoot(Pattern pattern, String path, String fileName) {
+        return pattern.matcher(path).matches() || pattern.matcher(fileName).matches();
+    }
+
+    /**
+     * @param packageName name of the package, either separated by '.' or '/'
+     * @return should the classes directly in the package be scanned?
+     */
+    public boolean acceptsPackage(String packageName) {
+        return decidePackage(packageName, false);
+    }
+
+    /**
+     * @param packageName name of the package, either separated by '.' or '/'
+     * @return should the package or any of its sub packages be scanned?
+     */
+    public boolean acceptsPackageTree(String packageName) {
+        return decidePackage(packageName, true);
+    }
+
+    private boolean decidePackage(String packageName, boolean orAnySubPackage) {
+        PackageNode node = _packages;
+        if (node.children.isEmpty() && node.included == null) {
+            return true;
+        }
+        Boolean decision = node.included;
+        for (int i = 0; i < packageName.length(); i++) {
+            char c = separatorToDot(packageName.charAt(i));
+            if (c == '.' && node.included != null) {
+                decision = node.included;
+            }
+            node = node.children.get(c);
+            if (node == null) {
+                return decision == null ? !_includesPackagesOnly : decision;
+            }
+        }
+        if (node.included != null) {
+            decision = node.included;
+        }
+        if (orAnySubPackage && includesSubPackage(node, packageName)) {
+            return true;
+        }
+        return decision == null ? !_includesPackagesOnly : decision;
+    }
+
+    /**
+     * The trie has one node per character, so rules of packages that only
+     * share a prefix, i.e. "com.acme" for "com.ac", must not count. Only
+     * rules below the next separator do.
+     */
+    private static boolean includesSubPackage(PackageNode node, String packageName) {
+        if (packageName.isEmpty() || separatorToDot(packageName.charAt(packageName.length() - 1)) == '.') {
+            return node.includedBelow;
+        }
+        PackageNode below = node.children.get('.');
+        return below != null && below.includedBelow;
+    }
+
+    /**
+     * @param className fully qualified name of the class
+     * @return should the class be scanned?
+     */
+    public boolean acceptsClass(String className) {
+        if (_includedClasses != null && !_includedClasses.matcher(className).matches()) {
+            return false;
+        }
+        return _excludedClasses == null || !_excludedClasses.matcher(className).matches();
+    }
+
+    private static char separatorToDot(char c) {
+        return c == '/' ? '.' : c;
+    }
+
+    private static Pattern anyOf(List<String> regexes) {
+        if (regexes.isEmpty()) {
+            return null;
+        }
+        return Pattern.compile("(?:" + Joiner.on(")|(?:").join(regexes) + ")");
+    }
+
+    /**
+     * Converts a glob to a regular expression. '**' matches anything, '*' and
+     * '?' do not match the given separator.
+     */
+    static String globToRegex(String glob, String separator) {
+        String anyButSeparator = separator == null ? ".*" : "[^" + Pattern.quote(separator) + "]*";
+        String oneButSeparator = separator == null ? "." : "[^" + Pattern.quote(separator) + "]";
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                if (c == '?') {
+                    regex.append(oneButSeparator);
+                } else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    regex.append(".*");
+                    i++;
+                } else {
+                    regex.append(anyButSeparator);
+                }
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return regex.toString();
+    }
+
+    /**
+     * Node of the package prefix trie, one node per character.
+     */
+    private static final class PackageNode {
+        final Map<Character, PackageNode> children = Maps.newHashMap();
+
+        /** Decision for this package and its sub packages if set. */
+        Boolean included;
+
+        /** Is there an include rule for this or a sub package? */
+        boolean includedBelow;
+
+        PackageNode copy() {
+            PackageNode copy = new PackageNode();
+            copy.included = included;
+            copy.includedBelow = includedBelow;
+            for (Map.Entry<Character, PackageNode> child : children.entrySet()) {
+                copy.children.put(child.getKey(), child.getValue().copy());
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * Builder of {@link ScanFilter}s.
+     */
+    public static final class Builder {
+        final List<String> _includedRoots = Lists.newArrayList();
+
+        final List<String> _excludedRoots = Lists.newArrayList();
+
+        final PackageNode _packages = new PackageNode();
+
+        boolean _includesPackagesOnly;
+
+        final List<String> _includedClasses = Lists.newArrayList();
+
+        final List<String> _excludedClasses = Lists.newArrayList();
+
+        Builder() {
+        }
+
+        /**
+         * @param glob glob on the path or file name of a jar or class directory
+         * @return this builder
+         */
+        public Builder includeRoot(String glob) {
+            _includedRoots.add(globToRegex(glob.replace('\\', '/'), "/"));
+            return this;
+        }
+
+        /**
+         * @param glob glob on the path or file name of a jar or class directory
+         * @return this builder
+         */
+        public Builder excludeRoot(String glob) {
+            _excludedRoots.add(globToRegex(glob.replace('\\', '/'), "/"));
+            return this;
+        }
+
+        /**
+         * @param packageName the package to include with all its sub packages
+         * @return this builder
+         */
+        public Builder includePackage(String packageName) {
+            _includesPackagesOnly = true;
+            addPackage(packageName, true);
+            return this;
+        }
+
+        /**
+         * @param packageName the package to exclude with all its sub packages
+         * @return this builder
+         */
+        public Builder excludePackage(String packageName) {
+            addPackage(packageName, false);
+            return this;
+        }
+
+        private void addPackage(String packageName, boolean included) {
+            PackageNode node = _packages;
+            node.includedBelow |= included;
+            for (int i = 0; i < packageName.length(); i++) {
+                char c = separatorToDot(packageName.charAt(i));
+                PackageNode child = node.children.get(c);
+                if (child == null) {
+                    child = new PackageNode();
+                    node.children.put(c, child);
+                }
+                node = child;
+                node.includedBelow |= included;
+            }
+            node.included = Boolean.valueOf(included);
+        }
+
+        /**
+         * @param glob glob on the fully qualified class name, i.e.
+         *            "com.acme.*Test"
+         * @return this builder
+         */
+        public Builder includeClass(String glob) {
+            _includedClasses.add(globToRegex(glob, null));
+            return this;
+        }
+
+        /**
+         * @param glob glob on the fully qualified class name, i.e.
+         *            "*$$Proxy*"
+         * @return this builder
+         */
+        public Builder excludeClass(String glob) {
+            _excludedClasses.add(globToRegex(glob, null));
+            return this;
+        }
+
+        /**
+         * @param regex regular expression on the fully qualified class name
+         * @return this builder
+         */
+        public Builder includeClassPattern(String regex) {
+            _includedClasses.add(regex);
+            return this;
+        }
+
+        /**
+         * @param regex regular expression on the fully qualified class name
+         * @return this builder
+         */
+        public Builder excludeClassPattern(String regex) {
+            _excludedClasses.add(regex);
+            return this;
+        }
+
+        /**
+         * @return the compiled filter
+         */
+        public ScanFilter build() {
+            return new ScanFilter(this);
+        }
+    }
+}
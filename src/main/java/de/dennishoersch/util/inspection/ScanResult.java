@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import java.util.Collection;
+
+/**
+ * Result of a scan that may have been stopped before all classes were
+ * inspected.
+ *
+ * @author hoersch
+ * @param <T>
+ */
+public final class ScanResult<T> {
+
+    /**
+     * How a scan ended.
+     */
+    public enum Outcome {
+        /** All classes were inspected. */
+        COMPLETED,
+        /**
+         * The scan was stopped by {@link CancellationToken#cancel()} or by
+         * interrupting the scanning thread.
+         */
+        CANCELLED,
+        /** The deadline of the {@link CancellationToken} passed. */
+        TIMED_OUT
+    }
+
+    private final Collection<T> _elements;
+
+    private final Outcome _outcome;
+
+    private final int _inspectedClasses;
+
+    /**
+     * @param elements the collected elements
+     * @param outcome how the scan ended
+     * @param inspectedClasses number of classes that were inspected
+     */
+    public ScanResult(Collection<T> elements, Outcome outcome, int inspectedClasses) {
+        _elements = elements;
+        _outcome = outcome;
+        _inspectedClasses = inspectedClasses;
+    }
+
+    /**
+     * @return the collected elements, only a partial result if the scan did
+     *         not complete
+     */
+    public Collection<T> getElements() {
+        return _elements;
+    }
+
+    /**
+     * @return how the scan ended
+     */
+    public Outcome getOutcome() {
+        return _outcome;
+    }
+
+    /**
+     * @return were all classes inspected?
+     */
+    public boolean isComplete() {
+        return _outcome == Outcome.COMPLETED;
+    }
+
+    /**
+     * @return number of classes that were inspected
+     */
+    public int getInspectedClasses() {
+        return _inspectedClasses;
+    }
+
+    @Override
+    public String toString() {
+        return "ScanResult [outcome=" + _outcome + ", inspectedClasses=" + _inspectedClasses + ", elements=" + _elements + "]";
+    }
+}
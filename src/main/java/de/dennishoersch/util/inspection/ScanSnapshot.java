@@ -0,0 +1,294 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.UnsignedLongs;
+
+/**
+ * The classes of a scan with a hash of their content and the classes matched by each query of the scan. Classes are
+ * sorted by name, the index in this order is the id of a class. A snapshot is exported in a deterministic text format,
+ * so snapshots of different builds or deployments can be stored and compared by {@link #diff(ScanSnapshot)}.
+ * Immutable.
+ *
+ * @author hoersch
+ */
+public final class ScanSnapshot {
+    private static final String HEADER = "# class-inspection snapshot 1";
+
+    private static final Splitter FIELDS = Splitter.on(' ').omitEmptyStrings();
+
+    private final String[] _classes;
+
+    private final long[] _hashes;
+
+    private final SortedMap<String, int[]> _queries;
+
+    /**
+     * @param hashes the content hash by class name
+     * @param queries the names of the matched classes by query name, each must be a key of the hashes
+     */
+    public ScanSnapshot(Map<String, Long> hashes, Map<String, ? extends Collection<String>> queries) {
+        _classes = hashes.keySet().toArray(new String[hashes.size()]);
+        Arrays.sort(_classes);
+        _hashes = new long[_classes.length];
+        for (int i = 0; i < _classes.length; i++) {
+            _hashes[i] = hashes.get(_classes[i]).longValue();
+        }
+        ImmutableSortedMap.Builder<String, int[]> sortedQueries = ImmutableSortedMap.naturalOrder();
+        for (Map.Entry<String, ? extends Collection<String>> query : queries.entrySet()) {
+            int[] ids = new int[query.getValue().size()];
+            int i = 0;
+            for (String className : query.getValue()) {
+                ids[i] = Arrays.binarySearch(_classes, className);
+                if (ids[i] < 0) {
+                    throw new IllegalArgumentException("No hash of class '" + className + "' matched by query '" + query.getKey() + "'!");
+                }
+                i++;
+            }
+            Arrays.sort(ids);
+            sortedQueries.put(query.getKey(), ids);
+        }
+        _queries = sortedQueries.build();
+    }
+
+    private ScanSnapshot(String[] classes, long[] hashes, SortedMap<String, int[]> queries) {
+        _classes = classes;
+        _hashes = hashes;
+        _queries = queries;
+    }
+
+    /**
+     * @return the names of all classes, sorted
+     */
+    public List<String> getClasses() {
+        return ImmutableList.copyOf(_classes);
+    }
+
+    /**
+     * @return the names of the queries, sorted
+     */
+    public List<String> getQueries() {
+        return ImmutableList.copyOf(_queries.keySet());
+    }
+
+    /**
+     * @param query
+     * @return the names of the classes matched by the query, sorted
+     */
+    public List<String> getMatches(String query) {
+        int[] ids = _queries.get(query);
+        if (ids == null) {
+            return ImmutableList.of();
+        }
+        List<String> matches = Lists.newArrayListWithCapacity(ids.length);
+        for (int id : ids) {
+            matches.add(_classes[id]);
+        }
+        return matches;
+    }
+
+    /**
+     * @param className
+     * @return the hash of the content of the class file or <code>null</code> if the class is not in the snapshot
+     */
+    public Long getHash(String className) {
+        int id = Arrays.binarySearch(_classes, className);
+        return id < 0 ? null : Long.valueOf(_hashes[id]);
+    }
+
+    /**
+     * Compares the matches of each query with those of a newer snapshot, in a single pass over both. Nothing is
+     * rescanned.
+     *
+     * @param newer
+     * @return the classes added, removed and changed per query
+     */
+    public SnapshotDiff diff(ScanSnapshot newer) {
+        SortedMap<String, SnapshotDiff.QueryDiff> queries = Maps.newTreeMap();
+        for (String query : _queries.keySet()) {
+            queries.put(query, diff(query, newer));
+        }
+        for (String query : newer._queries.keySet()) {
+            if (!queries.containsKey(query)) {
+                queries.put(query, diff(query, newer));
+            }
+        }
+        return new SnapshotDiff(queries);
+    }
+
+    private SnapshotDiff.QueryDiff diff(String query, ScanSnapshot newer) {
+        int[] oldIds = _queries.containsKey(query) ? _queries.get(query) : new int[0];
+        int[] newIds = newer._queries.containsKey(query) ? newer._queries.get(query) : new int[0];
+        List<String> added = Lists.newArrayList();
+        List<String> removed = Lists.newArrayList();
+        List<String> changed = Lists.newArrayList();
+        // Both are sorted by name, as ids follow the order of the names
+        int o = 0;
+        int n = 0;
+        while (o < oldIds.length || n < newIds.length) {
+            int order = o == oldIds.length ? 1 : n == newIds.length ? -1 : _classes[oldIds[o]].compareTo(newer._classes[newIds[n]]);
+            if (order < 0) {
+                removed.add(_classes[oldIds[o++]]);
+            } else if (order > 0) {
+                added.add(newer._classes[newIds[n++]]);
+            } else {
+                if (_hashes[oldIds[o]] != newer._hashes[newIds[n]]) {
+                    changed.add(_classes[oldIds[o]]);
+                }
+                o++;
+                n++;
+            }
+        }
+        return new SnapshotDiff.QueryDiff(added, removed, changed);
+    }
+
+    /**
+     * Writes the snapshot: a header line, a line <code>class &lt;hash&gt; &lt;name&gt;</code> per class in order of
+     * the ids and a line <code>query &lt;name&gt; &lt;id&gt;...</code> per query. Spaces, control characters and '%' in
+     * names are escaped as <code>%XX</code>.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void writeTo(Writer out) throws IOException {
+        out.write(HEADER);
+        out.write('\n');
+        for (int i = 0; i < _classes.length; i++) {
+            out.write("class ");
+            out.write(UnsignedLongs.toString(_hashes[i], 16));
+            out.write(' ');
+            out.write(escape(_classes[i]));
+            out.write('\n');
+        }
+        for (Map.Entry<String, int[]> query : _queries.entrySet()) {
+            out.write("query ");
+            out.write(escape(query.getKey()));
+            for (int id : query.getValue()) {
+                out.write(' ');
+                out.write(Integer.toString(id));
+            }
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * @param in a snapshot written by {@link #writeTo(Writer)}
+     * @return the snapshot
+     * @throws IOException if the snapshot could not be read or is malformed
+     */
+    public static ScanSnapshot readFrom(Reader in) throws IOException {
+        BufferedReader reader = new BufferedReader(in);
+        if (!HEADER.equals(reader.readLine())) {
+            throw new IOException("No class inspection snapshot!");
+        }
+        List<String> classes = Lists.newArrayList();
+        List<Long> hashes = Lists.newArrayList();
+        ImmutableSortedMap.Builder<String, int[]> queries = ImmutableSortedMap.naturalOrder();
+        boolean classesDone = false;
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                List<String> fields = Lists.newArrayList(FIELDS.split(line));
+                if (fields.size() == 3 && fields.get(0).equals("class") && !classesDone) {
+                    String className = unescape(fields.get(2));
+                    // The ids are the indexes of the sorted names, getHash() searches them
+                    if (!classes.isEmpty() && classes.get(classes.size() - 1).compareTo(className) >= 0) {
+                        throw new IOException("Class '" + className + "' is not sorted after '" + classes.get(classes.size() - 1) + "'!");
+                    }
+                    hashes.add(Long.valueOf(UnsignedLongs.parseUnsignedLong(fields.get(1), 16)));
+                    classes.add(className);
+                } else if (fields.size() >= 2 && fields.get(0).equals("query")) {
+                    classesDone = true;
+                    String query = unescape(fields.get(1));
+                    int[] ids = new int[fields.size() - 2];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = Integer.parseInt(fields.get(i + 2));
+                        if (ids[i] < 0 || ids[i] >= classes.size()) {
+                            throw new IOException("Unknown class id " + ids[i] + " in query '" + query + "'!");
+                        }
+                    }
+                    Arrays.sort(ids);
+                    queries.put(query, ids);
+                } else if (!line.isEmpty()) {
+                    throw new IOException("Malformed snapshot line '" + line + "'!");
+                }
+            }
+            return new ScanSnapshot(classes.toArray(new String[classes.size()]), toArray(hashes), queries.build());
+        } catch (IllegalArgumentException e) {
+            // Also thrown for a number format or a duplicate query
+            throw new IOException("Malformed snapshot!", e);
+        }
+    }
+
+    private static long[] toArray(List<Long> hashes) {
+        long[] hashArray = new long[hashes.size()];
+        for (int i = 0; i < hashArray.length; i++) {
+            hashArray[i] = hashes.get(i).longValue();
+        }
+        return hashArray;
+    }
+
+    private static String escape(String name) {
+        StringBuilder escaped = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '%' || c <= ' ') {
+                escaped.append('%').append(Character.forDigit(c >> 4 & 0xF, 16)).append(Character.forDigit(c & 0xF, 16));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static String unescape(String name) throws IOException {
+        StringBuilder unescaped = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '%') {
+                int value = i + 2 < name.length() ? Integer.parseInt(name.substring(i + 1, i + 3), 16) : -1;
+                if (value < 0) {
+                    throw new IOException("Malformed escape in '" + name + "'!");
+                }
+                unescaped.append((char) value);
+                i += 2;
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + _classes.length + " classes, queries " + _queries.keySet() + ")";
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+
+/**
+ * Static registry of the implementations of an interface, generated at build time by {@link ServiceRegistryGenerator}
+ * so that the implementations can be found without scanning at runtime.
+ * <p>
+ * The registry of an interface is the resource <code>META-INF/class-inspection/registry/&lt;interface name&gt;</code>,
+ * a UTF-8 text file:
+ * 
+ * <pre>
+ * #package com.acme
+ * com.acme.impl.FirstImplementation
+ * com.acme.impl.SecondImplementation
+ * </pre>
+ * 
+ * The <code>#package</code> line names the package that was scanned. A line <code>#stale</code> marks the registry as
+ * out of date, i.e. by a build that changed sources without regenerating it; stale registries are ignored.
+ * 
+ * @author hoersch
+ */
+public final class ServiceRegistry {
+    private static final Logger logger = Logger.getLogger(ServiceRegistry.class);
+
+    /** Directory of the registry resources. */
+    public static final String LOCATION = "META-INF/class-inspection/registry/";
+
+    private static final String PACKAGE = "#package ";
+
+    private static final String STALE = "#stale";
+
+    private ServiceRegistry() {
+    }
+
+    /**
+     * @param iface
+     * @return the name of the registry resource of the interface
+     */
+    public static String resourceName(Class<?> iface) {
+        return LOCATION + iface.getName();
+    }
+
+    /**
+     * Writes the registry of the interface below the given output directory, i.e. the classes directory of a build.
+     * 
+     * @param outputDirectory
+     * @param iface
+     * @param packageName the scanned package
+     * @param implementations
+     * @return the written file
+     * @throws IOException
+     */
+    public static File write(File outputDirectory, Class<?> iface, String packageName, Collection<? extends Class<?>> implementations) throws IOException {
+        Set<String> names = Sets.newTreeSet();
+        for (Class<?> implementation : implementations) {
+            names.add(implementation.getName());
+        }
+
+        File file = new File(outputDirectory, resourceName(iface));
+        Files.createParentDirs(file);
+        try (Writer writer = Files.newWriter(file, Charsets.UTF_8)) {
+            writer.write(PACKAGE + packageName + "\n");
+            for (String name : names) {
+                writer.write(name + "\n");
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Reads the implementations of the interface from the registries found by the class loader. Only the
+     * implementations below the given package are returned.
+     * 
+     * @param classloader
+     * @param iface
+     * @param packageName
+     * @return the implementations or <code>null</code> if there is no registry that covers the package, if a registry
+     *         is stale or if a registered class is missing
+     */
+    public static <T> Collection<Class<? extends T>> read(ClassLoader classloader, Class<T> iface, String packageName) {
+        try {
+            // The same registry may be found twice, i.e. in the build output and in the packaged jar
+            Set<Class<? extends T>> implementations = null;
+            Enumeration<URL> registries = classloader.getResources(resourceName(iface));
+            while (registries.hasMoreElements()) {
+                URL registry = registries.nextElement();
+                List<String> names = readNames(registry, packageName);
+                if (names == null) {
+                    return null;
+                }
+                if (implementations == null) {
+                    implementations = Sets.newLinkedHashSet();
+                }
+                for (String name : names) {
+                    implementations.add(Class.forName(name, false, classloader).asSubclass(iface));
+                }
+            }
+            return implementations;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            logger.warn("Could not use registry of '" + iface.getName() + "', falling back to scanning.", e);
+            return null;
+        }
+    }
+
+    private static List<String> readNames(URL registry, String packageName) throws IOException {
+        List<String> names = Lists.newArrayList();
+        String scannedPackage = null;
+        try (InputStream in = registry.openStream()) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, Charsets.UTF_8));
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                line = line.trim();
+                if (line.equals(STALE)) {
+                    logger.debug("Registry " + registry + " is stale.");
+                    return null;
+                } else if (line.startsWith(PACKAGE)) {
+                    scannedPackage = line.substring(PACKAGE.length()).trim();
+                } else if (!line.isEmpty() && !line.startsWith("#") && isInPackage(line, packageName)) {
+                    names.add(line);
+                }
+            }
+        }
+        if (scannedPackage == null || !isInPackage(packageName, scannedPackage)) {
+            logger.debug("Registry " + registry + " does not cover package '" + packageName + "'.");
+            return null;
+        }
+        return names;
+    }
+
+    private static boolean isInPackage(String name, String packageName) {
+        return packageName.isEmpty() || name.equals(packageName) || name.startsWith(packageName + ".");
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Generates {@link ServiceRegistry} resources at build time. Runs the same discovery as
+ * {@link ClassInspectionUtil#findClassesImplementing(Class, String)} on the build's classpath.
+ * <p>
+ * Usage: <code>ServiceRegistryGenerator &lt;output directory&gt; &lt;interface&gt; &lt;package&gt; [&lt;interface&gt; &lt;package&gt; ...]</code>
+ * 
+ * @author hoersch
+ */
+public final class ServiceRegistryGenerator {
+
+    private ServiceRegistryGenerator() {
+    }
+
+    /**
+     * Finds the implementations of the interface below the package and writes the registry.
+     * 
+     * @param outputDirectory
+     * @param iface
+     * @param packageName
+     * @return the written registry file
+     * @throws IOException
+     */
+    public static <T> File generate(File outputDirectory, Class<T> iface, String packageName) throws IOException {
+        Collection<Class<? extends T>> implementations = ClassInspectionUtil.findClassesImplementing(iface, packageName);
+        return ServiceRegistry.write(outputDirectory, iface, packageName, implementations);
+    }
+
+    /**
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3 || args.length % 2 == 0) {
+            System.err.println("Usage: " + ServiceRegistryGenerator.class.getName() + " <output directory> <interface> <package> [<interface> <package> ...]");
+            System.exit(1);
+        }
+        File outputDirectory = new File(args[0]);
+        ClassLoader classloader = Thread.currentThread().getContextClassLoader();
+        for (int i = 1; i < args.length; i += 2) {
+            File registry = generate(outputDirectory, Class.forName(args[i], false, classloader), args[i + 1]);
+            System.out.println("Generated " + registry);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import java.util.List;
+import java.util.SortedMap;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+
+/**
+ * The differences between two {@link ScanSnapshot}s per query. Immutable.
+ *
+ * @author hoersch
+ */
+public final class SnapshotDiff {
+    private final SortedMap<String, QueryDiff> _queries;
+
+    SnapshotDiff(SortedMap<String, QueryDiff> queries) {
+        _queries = ImmutableSortedMap.copyOfSorted(queries);
+    }
+
+    /**
+     * @return the names of the queries of both snapshots, sorted
+     */
+    public List<String> getQueries() {
+        return ImmutableList.copyOf(_queries.keySet());
+    }
+
+    /**
+     * @param query
+     * @return the classes matched by the query in the newer snapshot only, sorted
+     */
+    public List<String> getAdded(String query) {
+        QueryDiff diff = _queries.get(query);
+        return diff == null ? ImmutableList.<String> of() : diff.added;
+    }
+
+    /**
+     * @param query
+     * @return the classes matched by the query in the older snapshot only, sorted
+     */
+    public List<String> getRemoved(String query) {
+        QueryDiff diff = _queries.get(query);
+        return diff == null ? ImmutableList.<String> of() : diff.removed;
+    }
+
+    /**
+     * @param query
+     * @return the classes matched by the query in both snapshots whose content changed, sorted
+     */
+    public List<String> getChanged(String query) {
+        QueryDiff diff = _queries.get(query);
+        return diff == null ? ImmutableList.<String> of() : diff.changed;
+    }
+
+    /**
+     * @return are the matches of all queries unchanged?
+     */
+    public boolean isEmpty() {
+        for (QueryDiff diff : _queries.values()) {
+            if (!diff.added.isEmpty() || !diff.removed.isEmpty() || !diff.changed.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(getClass().getSimpleName()).append('(');
+        for (String query : _queries.keySet()) {
+            result.append(query).append(": +").append(getAdded(query)).append(" -").append(getRemoved(query)).append(" ~").append(getChanged(query)).append(' ');
+        }
+        return result.append(')').toString();
+    }
+
+    static final class QueryDiff {
+        final List<String> added;
+
+        final List<String> removed;
+
+        final List<String> changed;
+
+        QueryDiff(List<String> added, List<String> removed, List<String> changed) {
+            this.added = ImmutableList.copyOf(added);
+            this.removed = ImmutableList.copyOf(removed);
+            this.changed = ImmutableList.copyOf(changed);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Lists;
+
+/**
+ * The implementations of a generic type by the type arguments they bind, i.e. the handlers of
+ * <code>Handler&lt;OrderEvent&gt;</code>. Type arguments are kept by name, looking up implementations needs no
+ * reflection. A type argument that is a wildcard, an array or a type variable left open by the implementation is
+ * unresolved. Immutable.
+ *
+ * @author hoersch
+ * @param <T> the generic type
+ */
+public final class TypeArgumentIndex<T> {
+    private final Map<Class<? extends T>, List<String>> _typeArguments;
+
+    private final ImmutableSetMultimap<List<String>, Class<? extends T>> _byTypeArguments;
+
+    private final List<ImmutableSetMultimap<String, Class<? extends T>>> _byParameter;
+
+    /**
+     * @param typeArguments by implementation the names of the type arguments it binds, <code>null</code> for
+     *            unresolved type arguments
+     */
+    public TypeArgumentIndex(Map<Class<? extends T>, List<String>> typeArguments) {
+        ImmutableMap.Builder<Class<? extends T>, List<String>> arguments = ImmutableMap.builder();
+        ImmutableSetMultimap.Builder<List<String>, Class<? extends T>> byTypeArguments = ImmutableSetMultimap.builder();
+        List<ImmutableSetMultimap.Builder<String, Class<? extends T>>> byParameter = Lists.newArrayList();
+        for (Map.Entry<Class<? extends T>, List<String>> entry : typeArguments.entrySet()) {
+            List<String> names = Collections.unmodifiableList(Lists.newArrayList(entry.getValue()));
+            arguments.put(entry.getKey(), names);
+            if (!names.contains(null)) {
+                byTypeArguments.put(names, entry.getKey());
+            }
+            for (int i = 0; i < names.size(); i++) {
+                while (byParameter.size() <= i) {
+                    byParameter.add(ImmutableSetMultimap.<String, Class<? extends T>> builder());
+                }
+                if (names.get(i) != null) {
+                    byParameter.get(i).put(names.get(i), entry.getKey());
+                }
+            }
+        }
+        _typeArguments = arguments.build();
+        _byTypeArguments = byTypeArguments.build();
+        ImmutableList.Builder<ImmutableSetMultimap<String, Class<? extends T>>> parameters = ImmutableList.builder();
+        for (ImmutableSetMultimap.Builder<String, Class<? extends T>> parameter : byParameter) {
+            parameters.add(parameter.build());
+        }
+        _byParameter = parameters.build();
+    }
+
+    /**
+     * @return all implementations found
+     */
+    public Set<Class<? extends T>> getImplementations() {
+        return _typeArguments.keySet();
+    }
+
+    /**
+     * @param typeArguments all type arguments, in order of the type parameters
+     * @return the implementations binding exactly these type arguments
+     */
+    public Set<Class<? extends T>> getImplementations(Class<?>... typeArguments) {
+        List<String> names = Lists.newArrayListWithCapacity(typeArguments.length);
+        for (Class<?> typeArgument : typeArguments) {
+            names.add(typeArgument.getName());
+        }
+        return _byTypeArguments.get(names);
+    }
+
+    /**
+     * @param parameter index of the type parameter
+     * @param typeArgument
+     * @return the implementations binding the type parameter to the type argument, whatever the other type arguments
+     */
+    public Set<Class<? extends T>> getImplementationsByParameter(int parameter, Class<?> typeArgument) {
+        if (parameter >= _byParameter.size()) {
+            return ImmutableSet.of();
+        }
+        return _byParameter.get(parameter).get(typeArgument.getName());
+    }
+
+    /**
+     * @param implementation
+     * @return the names of the type arguments the implementation binds, <code>null</code> for unresolved ones, or
+     *         <code>null</code> if it is no known implementation
+     */
+    public List<String> getTypeArguments(Class<?> implementation) {
+        return _typeArguments.get(implementation);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + _typeArguments;
+    }
+}
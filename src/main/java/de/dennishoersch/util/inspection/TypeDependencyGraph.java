@@ -0,0 +1,169 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Which class references which types. The types are numbered, each edge is an int in a sorted array, so the graph
+ * stays compact for some hundred thousand classes. Immutable.
+ *
+ * @author hoersch
+ */
+public final class TypeDependencyGraph {
+    private static final int[] NONE = new int[0];
+
+    private final String[] _names;
+
+    private final Map<String, Integer> _ids;
+
+    private final BitSet _scanned;
+
+    private final int[][] _dependencies;
+
+    private final int[][] _dependents;
+
+    /**
+     * @param names the names of all types, the index is the id of a type
+     * @param dependencies by id the sorted ids of the types referenced by the type, <code>null</code> for types that
+     *            were not scanned
+     */
+    public TypeDependencyGraph(List<String> names, List<int[]> dependencies) {
+        _names = names.toArray(new String[names.size()]);
+        _ids = Maps.newHashMapWithExpectedSize(_names.length);
+        for (int i = 0; i < _names.length; i++) {
+            _ids.put(_names[i], Integer.valueOf(i));
+        }
+        _scanned = new BitSet(_names.length);
+        _dependencies = new int[_names.length][];
+        int[] dependentCounts = new int[_names.length];
+        for (int i = 0; i < _names.length; i++) {
+            int[] ids = i < dependencies.size() ? dependencies.get(i) : null;
+            if (ids != null) {
+                _scanned.set(i);
+            }
+            _dependencies[i] = ids == null ? NONE : ids;
+            for (int dependency : _dependencies[i]) {
+                dependentCounts[dependency]++;
+            }
+        }
+        _dependents = new int[_names.length][];
+        for (int i = 0; i < _names.length; i++) {
+            _dependents[i] = dependentCounts[i] == 0 ? NONE : new int[dependentCounts[i]];
+            dependentCounts[i] = 0;
+        }
+        // Filled in order of the ids, so each array is sorted
+        for (int i = 0; i < _names.length; i++) {
+            for (int dependency : _dependencies[i]) {
+                _dependents[dependency][dependentCounts[dependency]++] = i;
+            }
+        }
+    }
+
+    /**
+     * @return the names of the scanned classes
+     */
+    public List<String> getClasses() {
+        ImmutableList.Builder<String> classes = ImmutableList.builder();
+        for (int i = _scanned.nextSetBit(0); i >= 0; i = _scanned.nextSetBit(i + 1)) {
+            classes.add(_names[i]);
+        }
+        return classes.build();
+    }
+
+    /**
+     * @param type fully qualified name of a type
+     * @return the types directly referenced by the class, empty if it was not scanned
+     */
+    public Set<String> getDependencies(String type) {
+        Integer id = _ids.get(type);
+        return id == null ? Collections.<String> emptySet() : toNames(_dependencies[id.intValue()]);
+    }
+
+    /**
+     * @param type fully qualified name of a type
+     * @return the scanned classes directly referencing the type
+     */
+    public Set<String> getDependents(String type) {
+        Integer id = _ids.get(type);
+        return id == null ? Collections.<String> emptySet() : toNames(_dependents[id.intValue()]);
+    }
+
+    /**
+     * @param type fully qualified name of a type
+     * @return the types referenced by the class directly or through other scanned classes, without the class itself
+     */
+    public Set<String> getTransitiveDependencies(String type) {
+        return closure(type, _dependencies);
+    }
+
+    /**
+     * @param type fully qualified name of a type
+     * @return the scanned classes referencing the type directly or through other scanned classes, i.e. the classes
+     *         affected by a change of the type
+     */
+    public Set<String> getTransitiveDependents(String type) {
+        return closure(type, _dependents);
+    }
+
+    private Set<String> closure(String type, int[][] edges) {
+        Integer start = _ids.get(type);
+        if (start == null) {
+            return Collections.emptySet();
+        }
+        BitSet reached = new BitSet(_names.length);
+        int[] queue = new int[_names.length];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start.intValue();
+        reached.set(start.intValue());
+        while (head < tail) {
+            for (int next : edges[queue[head++]]) {
+                if (!reached.get(next)) {
+                    reached.set(next);
+                    queue[tail++] = next;
+                }
+            }
+        }
+        reached.clear(start.intValue());
+        Set<String> names = Sets.newLinkedHashSetWithExpectedSize(reached.cardinality());
+        for (int i = reached.nextSetBit(0); i >= 0; i = reached.nextSetBit(i + 1)) {
+            names.add(_names[i]);
+        }
+        return names;
+    }
+
+    private Set<String> toNames(int[] ids) {
+        Set<String> names = Sets.newLinkedHashSetWithExpectedSize(ids.length);
+        for (int id : ids) {
+            names.add(_names[id]);
+        }
+        return names;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + _scanned.cardinality() + " classes, " + _names.length + " types)";
+    }
+}
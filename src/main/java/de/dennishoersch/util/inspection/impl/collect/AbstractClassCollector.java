@@ -0,0 +1,266 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import de.dennishoersch.util.inspection.CancellationToken;
+import de.dennishoersch.util.inspection.ClassPrefilter;
+import de.dennishoersch.util.inspection.ClassSource;
+import de.dennishoersch.util.inspection.ScanFilter;
+import de.dennishoersch.util.inspection.ScanResult;
+import de.dennishoersch.util.inspection.ScanResult.Outcome;
+
+/**
+ * What {@link ClassCollector} and {@link ParallelClassCollector} have in common: the settings deciding which class
+ * files are read and the read phase of an asynchronous scan.
+ *
+ * @author hoersch
+ * @param <T> type of the collected elements
+ */
+abstract class AbstractClassCollector<T> {
+    private ClassLoader _classloader = Thread.currentThread().getContextClassLoader();
+
+    private CancellationToken _token = new CancellationToken();
+
+    private ScanFilter _filter = ScanFilter.ALL;
+
+    private List<File> _roots;
+
+    private final List<ClassSource> _sources = Lists.newArrayList();
+
+    private final ClassPrefilter _prefilter;
+
+    private final String _packageName;
+
+    /**
+     * @param inspector the inspector or collector, asked to skip classes if it is a {@link ClassPrefilter}
+     * @param packageName the name of the package from which to start scanning for classes, <code>null</code> to scan
+     *            the whole classpath
+     */
+    AbstractClassCollector(Object inspector, String packageName) {
+        _prefilter = inspector instanceof ClassPrefilter ? (ClassPrefilter) inspector : null;
+        _packageName = packageName;
+    }
+
+    /**
+     * Sets an ClassLoader to be used for class loading. The default is the context ClassLoader.
+     *
+     * @param classloader
+     */
+    public void setClassLoader(ClassLoader classloader) {
+        _classloader = classloader;
+    }
+
+    ClassLoader getClassLoader() {
+        return _classloader;
+    }
+
+    /**
+     * Sets the token to stop the scan early, i.e. to cancel it or to give it a deadline. The default is a token that
+     * is never cancelled.
+     *
+     * @param token
+     * @see CancellationToken#withTimeout(long, java.util.concurrent.TimeUnit)
+     */
+    public void setCancellationToken(CancellationToken token) {
+        _token = token;
+    }
+
+    CancellationToken getCancellationToken() {
+        return _token;
+    }
+
+    /**
+     * Sets the include and exclude rules of the scan. Excluded roots, packages and classes are skipped while
+     * enumerating, they are never read nor inspected. The default is {@link ScanFilter#ALL}.
+     *
+     * @param filter
+     */
+    public void setFilter(ScanFilter filter) {
+        _filter = filter;
+    }
+
+    /**
+     * Scans the source after the roots of the class loader, i.e. to mix generated classes with the classes on disk.
+     * Only its classes in the scanned package are inspected. A class found in a root wins over the same class in a
+     * source.
+     *
+     * @param source
+     */
+    public void addSource(ClassSource source) {
+        _sources.add(source);
+    }
+
+    /**
+     * @param roots the roots to scan instead of the ones of the class loader
+     */
+    void setRoots(List<File> roots) {
+        _roots = roots;
+    }
+
+    /**
+     * @param classloader
+     * @param token
+     * @return a collector of the class files to scan with the current settings
+     */
+    ClassFilesCollector newClassFilesCollector(ClassLoader classloader, CancellationToken token) {
+        return new ClassFilesCollector(classloader, _packageName, token, _filter, _roots, ImmutableList.copyOf(_sources));
+    }
+
+    boolean acceptsName(String className) {
+        return _prefilter == null || _prefilter.acceptsClassName(className);
+    }
+
+    boolean acceptsContent(String className, byte[] content) {
+        return _prefilter == null || _prefilter.acceptsClassContent(className, content);
+    }
+
+    static Outcome outcome(boolean complete, CancellationToken token) {
+        if (complete) {
+            return Outcome.COMPLETED;
+        }
+        // Stopped without cancel and before the deadline means interrupted
+        return token.isTimedOut() && !token.isCancelled() ? Outcome.TIMED_OUT : Outcome.CANCELLED;
+    }
+
+    /**
+     * Reads the class files accepted by name on the I/O executor and hands them to the scan, which parses and inspects
+     * them on the parse executor. The opened jars are closed when the scan is done.
+     * <p>
+     * Cancelling the returned future cancels the token.
+     *
+     * @param ioExecutor
+     * @param parseExecutor
+     * @param scan the parsing and inspection of this scan
+     * @return the future result
+     */
+    <P> ListenableFuture<ScanResult<T>> readAsync(Executor ioExecutor, final ListeningExecutorService parseExecutor, final AsyncScan<P, T> scan) {
+        final ClassLoader classloader = _classloader;
+        final CancellationToken token = _token;
+        final ClassFilesCollector collector = newClassFilesCollector(classloader, token);
+        final boolean[] readComplete = new boolean[1];
+
+        ListenableFutureTask<ListenableFuture<P>> collectAndRead = ListenableFutureTask.create(new Callable<ListenableFuture<P>>() {
+            @Override
+            public ListenableFuture<P> call() {
+                try {
+                    Map<String, Entry> entries = collector.getEntries();
+                    boolean complete = collector.isComplete();
+                    for (Entry entry : entries.values()) {
+                        if (token.isStopRequested()) {
+                            complete = false;
+                            break;
+                        }
+                        String className = entry.getClassName();
+                        if (!acceptsName(className)) {
+                            continue;
+                        }
+                        try {
+                            scan.read(className, entry.getContent());
+                        } catch (IOException e) {
+                            ClassCollector.logger.error("Could not read class '" + className + "'!", e);
+                        }
+                    }
+                    readComplete[0] = complete;
+                    return scan.parse(classloader, entries);
+                } catch (RuntimeException e) {
+                    collector.close();
+                    throw e;
+                }
+            }
+        });
+        ioExecutor.execute(collectAndRead);
+
+        final ListenableFuture<ScanResult<T>> result = Futures.transform(collectAndRead, new AsyncFunction<ListenableFuture<P>, ScanResult<T>>() {
+            @Override
+            public ListenableFuture<ScanResult<T>> apply(ListenableFuture<P> parsed) {
+                ListenableFuture<ScanResult<T>> inspected = Futures.transform(parsed, new Function<P, ScanResult<T>>() {
+                    @Override
+                    public ScanResult<T> apply(P input) {
+                        return scan.inspect(input, readComplete[0], token);
+                    }
+                }, parseExecutor);
+                inspected.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        collector.close();
+                    }
+                }, MoreExecutors.sameThreadExecutor());
+                return inspected;
+            }
+        });
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (result.isCancelled()) {
+                    token.cancel();
+                }
+            }
+        }, MoreExecutors.sameThreadExecutor());
+        return result;
+    }
+
+    /**
+     * The part of an asynchronous scan after reading, one instance per scan.
+     *
+     * @param <P> type of the parsed classes
+     * @param <T> type of the collected elements
+     */
+    interface AsyncScan<P, T> {
+        /**
+         * Called on the I/O executor for each read class file accepted by name.
+         *
+         * @param className
+         * @param content
+         */
+        void read(String className, byte[] content);
+
+        /**
+         * Called on the I/O executor once all class files are read.
+         *
+         * @param classloader the class loader of this scan
+         * @param entries all collected class files, for the helpers
+         * @return the classes parsed on the parse executor
+         */
+        ListenableFuture<P> parse(ClassLoader classloader, Map<String, Entry> entries);
+
+        /**
+         * Called on the parse executor when all classes are parsed.
+         *
+         * @param parsed
+         * @param readComplete were all class files read?
+         * @param token
+         * @return the result of the scan
+         */
+        ScanResult<T> inspect(P parsed, boolean readComplete, CancellationToken token);
+    }
+}
@@ -12,43 +12,101 @@
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
  * See the License for the specific language governing permissions and
  * limitations under the License.
- */ 
+ */
 package de.dennishoersch.util.inspection.impl.collect;
 
-import static de.dennishoersch.util.inspection.impl.collect.InspectionHelperImpl.toClassFile;
-
+import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 
 import javassist.bytecode.ClassFile;
 
 import org.apache.log4j.Logger;
 
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import de.dennishoersch.util.inspection.CancellationToken;
 import de.dennishoersch.util.inspection.ClassInspector;
+import de.dennishoersch.util.inspection.ClassPrefilter;
+import de.dennishoersch.util.inspection.ClassSource;
+import de.dennishoersch.util.inspection.ClassSources;
 import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.ScanResult;
 
 /**
  *
  * @author hoersch
  * @param <T>
  */
-public class ClassCollector<T, CI extends ClassInspector<T>> {
+public class ClassCollector<T, CI extends ClassInspector<T>> extends AbstractClassCollector<T> {
     static final Logger logger = Logger.getLogger(ClassCollector.class);
 
-    private ClassLoader _classloader = Thread.currentThread().getContextClassLoader();
+    private boolean _streaming;
 
     private final CI _inspector;
 
-    private final String _packageName;
-
     /**
      * @param inspector an instance of {@link ClassInspector} that will be used to inspect classes
-     * @param packageName the name of the package from which to start scanning for classes
+     * @param packageName the name of the package from which to start scanning for classes, <code>null</code> to scan
+     *            the whole classpath
      */
     public ClassCollector(CI inspector, String packageName) {
+        super(inspector, packageName);
         _inspector = inspector;
-        _packageName = packageName;
+    }
+
+    /**
+     * Creates a collector that scans every root (directory or jar) of the whole classpath once, several roots in
+     * parallel. The roots are taken from the class loader hierarchy and the <code>java.class.path</code> and
+     * <code>jdk.module.path</code> properties, not from {@link ClassLoader#getResources(String)}.
+     *
+     * @param inspector an instance of {@link ClassInspector} that will be used to inspect classes
+     * @return the collector
+     */
+    public static <T, CI extends ClassInspector<T>> ClassCollector<T, CI> wholeClasspath(CI inspector) {
+        return new ClassCollector<T, CI>(inspector, null);
+    }
 
+    /**
+     * Creates a collector that scans an exploded web application: <code>WEB-INF/classes</code> and the jars of
+     * <code>WEB-INF/lib</code>, several jars in parallel, as the servlet container would look them up. The listings of
+     * jars unchanged since a previous scan, i.e. before a redeploy, are reused. Classes are still loaded by the class
+     * loader of the collector, in a container the context class loader is the one of the web application.
+     *
+     * @param inspector an instance of {@link ClassInspector} that will be used to inspect classes
+     * @param webappDirectory the directory containing <code>WEB-INF</code>
+     * @return the collector
+     */
+    public static <T, CI extends ClassInspector<T>> ClassCollector<T, CI> webapp(CI inspector, File webappDirectory) {
+        ClassCollector<T, CI> collector = new ClassCollector<T, CI>(inspector, null);
+        collector.setRoots(ClasspathRoots.webapp(webappDirectory));
+        return collector;
+    }
+
+    /**
+     * Creates a collector that scans the given sources only, not the roots of the class loader. Classes are still
+     * loaded by the class loader of the collector.
+     *
+     * @param inspector an instance of {@link ClassInspector} that will be used to inspect classes
+     * @param sources
+     * @return the collector
+     * @see ClassSources
+     */
+    public static <T, CI extends ClassInspector<T>> ClassCollector<T, CI> of(CI inspector, ClassSource... sources) {
+        ClassCollector<T, CI> collector = new ClassCollector<T, CI>(inspector, null);
+        collector.setRoots(Collections.<File> emptyList());
+        for (ClassSource source : sources) {
+            collector.addSource(source);
+        }
+        return collector;
     }
 
     /**
@@ -57,27 +115,198 @@ public class ClassCollector<T, CI extends ClassInspector<T>> {
      * @return the inspector
      */
     public CI findAndLetInspect() {
+        scan();
+        return _inspector;
+    }
+
+    /**
+     * Scans for classes recursively starting at the given package and let the inspector inspect each one. Stops early
+     * if the {@link CancellationToken} requests it.
+     *
+     * @return the collected elements and whether the scan completed
+     */
+    public ScanResult<T> scan() {
+        if (_streaming) {
+            return scanStreaming();
+        }
+        ClassLoader classloader = getClassLoader();
+        CancellationToken token = getCancellationToken();
+        int inspected = 0;
+        boolean complete = true;
 
-        Map<String, Entry> entries = new ClassFilesCollector(_classloader, _packageName).getEntries();
+        try (ClassFilesCollector collector = newClassFilesCollector(classloader, token)) {
+            InspectionHelperImpl helper = new InspectionHelperImpl(classloader, collector.getEntries());
 
-        // Inspect collected classes
-        InspectionHelper helper = new InspectionHelperImpl(_classloader, entries);
-        for (Entry entry : entries.values()) {
-            try {
-                letInspect(helper, entry.getClassName(), entry.getContent());
-            } catch (IOException e) {
-                logger.error("Could not read class '" + entry.getClassName() + "'!", e);
+            // Inspect collected classes
+            for (Entry entry : collector.getEntries().values()) {
+                if (token.isStopRequested()) {
+                    complete = false;
+                    break;
+                }
+                if (inspect(helper, entry)) {
+                    inspected++;
+                }
             }
+            complete &= collector.isComplete();
         }
 
-        return _inspector;
+        return new ScanResult<T>(_inspector.getElements(), outcome(complete, token), inspected);
     }
 
-    private void letInspect(InspectionHelper helper, String className, byte[] classContent) {
+    /**
+     * Inspects each class file as soon as it is found. Neither the entries nor the class files are kept, the helper
+     * reads super types by the class loader and keeps their headers only.
+     */
+    private ScanResult<T> scanStreaming() {
+        ClassLoader classloader = getClassLoader();
+        final CancellationToken token = getCancellationToken();
+        final InspectionHelperImpl helper = new InspectionHelperImpl(classloader);
+        final int[] inspected = new int[1];
+        boolean complete;
+
+        try (ClassFilesCollector collector = newClassFilesCollector(classloader, token)) {
+            collector.stream(new ClassFilesCollector.EntryHandler() {
+                @Override
+                public void handle(Entry entry) {
+                    if (!token.isStopRequested() && inspect(helper, entry)) {
+                        inspected[0]++;
+                    }
+                }
+            });
+            complete = collector.isComplete() && !token.isStopRequested();
+        }
+
+        return new ScanResult<T>(_inspector.getElements(), outcome(complete, token), inspected[0]);
+    }
+
+    /**
+     * @return was the class inspected, i.e. not rejected by a {@link ClassPrefilter}?
+     */
+    private boolean inspect(InspectionHelper helper, Entry entry) {
+        String className = entry.getClassName();
         try {
+            if (acceptsName(className)) {
+                byte[] content = entry.getContent();
+                if (acceptsContent(className, content)) {
+                    letInspect(helper, className, toClassFile(className, content));
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Could not read class '" + className + "'!", e);
+        }
+        return false;
+    }
+
+    /**
+     * Same as {@link #findAndLetInspect()} but does not block the calling thread. Uses the default executors.
+     *
+     * @return the future inspector, done when all classes were inspected
+     * @see #findAndLetInspectAsync(Executor, ListeningExecutorService)
+     */
+    public ListenableFuture<CI> findAndLetInspectAsync() {
+        return findAndLetInspectAsync(ScanExecutors.io(), ScanExecutors.parse());
+    }
+
+    /**
+     * Same as {@link #findAndLetInspect()} but does not block the calling thread. Uses the default executor to parse
+     * class files.
+     *
+     * @param ioExecutor executor to list directories and jars and read the class files
+     * @return the future inspector, done when all classes were inspected
+     * @see #findAndLetInspectAsync(Executor, ListeningExecutorService)
+     */
+    public ListenableFuture<CI> findAndLetInspectAsync(Executor ioExecutor) {
+        return findAndLetInspectAsync(ioExecutor, ScanExecutors.parse());
+    }
+
+    /**
+     * Same as {@link #findAndLetInspect()} but does not block the calling thread.
+     *
+     * @param ioExecutor executor to list directories and jars and read the class files
+     * @param parseExecutor executor to parse and inspect the class files, should be bounded
+     * @return the future inspector, done when all classes were inspected
+     * @see #scanAsync(Executor, ListeningExecutorService)
+     */
+    public ListenableFuture<CI> findAndLetInspectAsync(Executor ioExecutor, ListeningExecutorService parseExecutor) {
+        return Futures.transform(scanAsync(ioExecutor, parseExecutor), new Function<ScanResult<T>, CI>() {
+            @Override
+            public CI apply(ScanResult<T> input) {
+                return _inspector;
+            }
+        });
+    }
 
-            ClassFile type = toClassFile(classContent);
+    /**
+     * Same as {@link #scan()} but does not block the calling thread. The class files are read on the given I/O
+     * executor and parsed in parallel on the given parse executor. The inspector itself is called from one task at a
+     * time on the parse executor, so it does not need to be thread safe.
+     * <p>
+     * Cancelling the returned future cancels the {@link CancellationToken} of this collector.
+     *
+     * @param ioExecutor executor to list directories and jars and read the class files
+     * @param parseExecutor executor to parse and inspect the class files, should be bounded
+     * @return the future result, done when all classes were inspected or the scan was stopped
+     */
+    public ListenableFuture<ScanResult<T>> scanAsync(Executor ioExecutor, final ListeningExecutorService parseExecutor) {
+        final CancellationToken scanToken = getCancellationToken();
+        return readAsync(ioExecutor, parseExecutor, new AsyncScan<List<ClassFile>, T>() {
+            private final List<ListenableFuture<ClassFile>> _types = Lists.newArrayList();
+
+            private InspectionHelperImpl _helper;
+
+            @Override
+            public void read(final String className, final byte[] content) {
+                _types.add(parseExecutor.submit(new Callable<ClassFile>() {
+                    @Override
+                    public ClassFile call() {
+                        if (scanToken.isStopRequested() || !acceptsContent(className, content)) {
+                            return null;
+                        }
+                        return toClassFile(className, content);
+                    }
+                }));
+            }
+
+            @Override
+            public ListenableFuture<List<ClassFile>> parse(ClassLoader classloader, Map<String, Entry> entries) {
+                _helper = new InspectionHelperImpl(classloader, entries);
+                return Futures.allAsList(_types);
+            }
 
+            @Override
+            public ScanResult<T> inspect(List<ClassFile> types, boolean readComplete, CancellationToken token) {
+                int inspected = 0;
+                boolean complete = readComplete;
+                for (ClassFile type : types) {
+                    if (token.isStopRequested()) {
+                        complete = false;
+                        break;
+                    }
+                    if (type != null) {
+                        letInspect(_helper, type.getName(), type);
+                        inspected++;
+                    }
+                }
+                return new ScanResult<T>(_inspector.getElements(), outcome(complete, token), inspected);
+            }
+        });
+    }
+
+    private ClassFile toClassFile(String className, byte[] classContent) {
+        try {
+            return InspectionHelperImpl.toClassFile(classContent);
+        } catch (Throwable t) {
+            logger.warn("Could not examine class '" + className + "'" + " due to a " + t.getClass().getName() + " with message: " + t.getMessage());
+            return null;
+        }
+    }
+
+    private void letInspect(InspectionHelper helper, String className, ClassFile type) {
+        if (type == null) {
+            return;
+        }
+        try {
             logger.trace("Checking to see if class " + className + " matches criteria [" + _inspector + "]");
 
             _inspector.inspect(type, helper);
@@ -87,11 +316,14 @@ public class ClassCollector<T, CI extends ClassInspector<T>> {
     }
 
     /**
-     * Sets an ClassLoader to be used for class loading. The default is the context ClassLoader.
+     * Inspects each class as soon as it is found instead of collecting all class files first. Memory is then bound by
+     * the result and the headers of the resolved super types, not by the number of class files, at the cost of
+     * scanning the roots of the whole classpath one after the other. Applies to {@link #scan()} and
+     * {@link #findAndLetInspect()}. The default is <code>false</code>.
      *
-     * @param classloader
+     * @param streaming
      */
-    public void setClassLoader(ClassLoader classloader) {
-        _classloader = classloader;
+    public void setStreaming(boolean streaming) {
+        _streaming = streaming;
     }
 }
@@ -12,21 +12,42 @@
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
  * See the License for the specific language governing permissions and
  * limitations under the License.
- */ 
+ */
 package de.dennishoersch.util.inspection.impl.collect;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
-import java.net.URLDecoder;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Map;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
-class ClassFilesCollector {
+import de.dennishoersch.util.inspection.CancellationToken;
+import de.dennishoersch.util.inspection.ClassSource;
+import de.dennishoersch.util.inspection.ScanFilter;
+
+/**
+ * Collects the class files of a package and its sub packages or of the whole classpath, either all at once by
+ * {@link #getEntries()} or one by one by {@link #stream(EntryHandler)}. Directories and jars are read as
+ * {@link ClassSource}s, additional sources are scanned after them. Jars opened while collecting stay open until
+ * {@link #close()} as the entries are read lazily.
+ */
+class ClassFilesCollector implements Closeable {
+
+    /** Number of roots scanned at the same time in whole classpath mode. */
+    private static final int PARALLEL_ROOTS = Math.max(2, Runtime.getRuntime().availableProcessors());
 
     private final ClassLoader _classloader;
 
@@ -34,86 +55,387 @@ class ClassFilesCollector {
 
     private final String _packageName;
 
-    ClassFilesCollector(ClassLoader classloader, String packageName) {
+    private final CancellationToken _token;
+
+    private final ScanFilter _filter;
+
+    private final List<File> _roots;
+
+    private final List<ClassSource> _sources;
+
+    private final Queue<Closeable> _jars = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean _stopped;
+
+    ClassFilesCollector(ClassLoader classloader, String packageName, CancellationToken token) {
+        this(classloader, packageName, token, ScanFilter.ALL);
+    }
+
+    /**
+     * @param classloader
+     * @param packageName the package to scan recursively or <code>null</code> to scan the whole classpath
+     * @param token
+     * @param filter
+     */
+    ClassFilesCollector(ClassLoader classloader, String packageName, CancellationToken token, ScanFilter filter) {
+        this(classloader, packageName, token, filter, null);
+    }
+
+    /**
+     * @param classloader
+     * @param packageName the package to scan recursively or <code>null</code> to scan all roots
+     * @param token
+     * @param filter
+     * @param roots the roots to scan if no package is given, <code>null</code> for the roots of the class loader
+     */
+    ClassFilesCollector(ClassLoader classloader, String packageName, CancellationToken token, ScanFilter filter, List<File> roots) {
+        this(classloader, packageName, token, filter, roots, Collections.<ClassSource> emptyList());
+    }
+
+    /**
+     * @param classloader
+     * @param packageName the package to scan recursively or <code>null</code> to scan all roots
+     * @param token
+     * @param filter
+     * @param roots the roots to scan if no package is given, <code>null</code> for the roots of the class loader
+     * @param sources scanned after the roots, i.e. of generated classes
+     */
+    ClassFilesCollector(ClassLoader classloader, String packageName, CancellationToken token, ScanFilter filter, List<File> roots, List<ClassSource> sources) {
         _classloader = classloader;
         _packageName = packageName;
+        _token = token;
+        _filter = filter;
+        _roots = roots;
+        _sources = sources;
     }
 
     Map<String, Entry> getEntries() {
         if (_entries == null) {
             _entries = Maps.newLinkedHashMap();
-            collectClassFiles();
+            if (_packageName == null) {
+                collectClasspath();
+            } else {
+                collectClassFiles(into(_entries));
+            }
         }
 
         return _entries;
     }
 
-    private void collectClassFiles() {
+    /**
+     * Hands each class file to the handler as soon as it is found, without keeping the entries. In whole classpath
+     * mode the roots are scanned one after the other, only the names of the classes found so far are kept to let the
+     * first root win.
+     *
+     * @param handler
+     */
+    void stream(final EntryHandler handler) {
+        if (_packageName != null) {
+            collectClassFiles(handler);
+            return;
+        }
+        EntryHandler firstWins = firstWins(handler);
+        List<File> roots = roots();
+        Set<File> seen = Sets.newHashSet();
+        for (File root : roots) {
+            seen.add(ClasspathRoots.canonical(root));
+        }
+        while (!roots.isEmpty() && !stopRequested()) {
+            List<File> next = Lists.newArrayList();
+            for (File root : roots) {
+                if (stopRequested()) {
+                    break;
+                }
+                for (File referenced : scanRoot(root, firstWins)) {
+                    if (seen.add(ClasspathRoots.canonical(referenced))) {
+                        next.add(referenced);
+                    }
+                }
+            }
+            roots = next;
+        }
+        scanSources(firstWins);
+    }
+
+    private List<File> roots() {
+        return _roots != null ? Lists.newArrayList(_roots) : ClasspathRoots.of(_classloader);
+    }
+
+    /**
+     * @return were all class files collected or did the scan stop early?
+     */
+    boolean isComplete() {
+        return !_stopped;
+    }
+
+    /**
+     * An interrupt of the collecting thread stops the scan like a cancelled token, the thread stays interrupted.
+     */
+    private boolean stopRequested() {
+        if (_token.isStopRequested() || Thread.currentThread().isInterrupted()) {
+            _stopped = true;
+        }
+        return _stopped;
+    }
+
+    /**
+     * Closes all jars opened while collecting.
+     */
+    @Override
+    public void close() {
+        for (Closeable jar = _jars.poll(); jar != null; jar = _jars.poll()) {
+            try {
+                jar.close();
+            } catch (IOException e) {
+                ClassCollector.logger.warn("Could not close jar file '" + jar + "'.", e);
+            }
+        }
+    }
+
+    /**
+     * Collects the package from the roots of the class loader, then from the sources. If a class is found more than
+     * once the first one wins like it would when loading the class.
+     */
+    private void collectClassFiles(EntryHandler entryHandler) {
+        EntryHandler handler = firstWins(entryHandler);
+        String packagePath = _packageName.replace('.', '/');
         try {
-            String packageName = _packageName.replace('.', '/');
             // Collect classes
-            Enumeration<URL> urls = _classloader.getResources(packageName);
-            while (urls.hasMoreElements()) {
-                String urlPath = urls.nextElement().getFile();
-                urlPath = URLDecoder.decode(urlPath, "UTF-8");
-
-                // If it's a file in a directory, trim the stupid file: spec
-                if (urlPath.startsWith("file:")) {
-                    urlPath = urlPath.substring(5);
+            Enumeration<URL> urls = _classloader.getResources(packagePath);
+            while (urls.hasMoreElements() && !stopRequested()) {
+                URL url = urls.nextElement();
+                // The package directory or the jar, also behind the URL schemes of servlet containers
+                File file = ClasspathRoots.toLocalFile(url);
+                if (file == null) {
+                    ClassCollector.logger.debug("Ignoring package not on the file system [" + url + "]");
+                    continue;
                 }
-
-                // Else it's in a JAR, grab the path to the jar
-                if (urlPath.indexOf('!') > 0) {
-                    urlPath = urlPath.substring(0, urlPath.indexOf('!'));
+                File root = file.isDirectory() ? classDirectoryOf(file, packagePath) : file;
+                if (!acceptsRoot(root)) {
+                    ClassCollector.logger.debug("Skipping excluded [" + file + "]");
+                    continue;
                 }
 
-                ClassCollector.logger.debug("Scanning for classes in [" + urlPath + "]");
-                File file = new File(urlPath);
-                if (file.isDirectory()) {
-                    collectClassesInDirectory(packageName, file);
-                } else {
-                    collectClassesInJar(packageName, file);
-                }
+                ClassCollector.logger.debug("Scanning for classes in [" + file + "]");
+                collect(toSource(root), packagePath, handler);
             }
         } catch (IOException ioe) {
             ClassCollector.logger.warn("Could not read package: " + _packageName, ioe);
         }
+        for (ClassSource source : _sources) {
+            if (stopRequested()) {
+                break;
+            }
+            collect(source, packagePath, handler);
+        }
     }
 
-    private void collectClassesInDirectory(String parent, File location) {
-        File[] files = location.listFiles();
+    /**
+     * Scans all roots of the classpath, each once, several at a time. Jars referenced by the manifest
+     * <code>Class-Path</code> of a scanned jar are scanned in a following round. If a class is found in more than one
+     * root the first root wins like it would when loading the class.
+     */
+    private void collectClasspath() {
+        List<File> roots = roots();
+        Set<File> seen = Sets.newHashSet();
+        for (File root : roots) {
+            seen.add(ClasspathRoots.canonical(root));
+        }
 
-        if (files == null) {
-            ClassCollector.logger.warn("Could not list directory " + location.getAbsolutePath() + ".");
-            return;
+        while (!roots.isEmpty() && !stopRequested()) {
+            List<RootScan> scans = scanInParallel(roots);
+            roots = Lists.newArrayList();
+            for (RootScan scan : scans) {
+                for (Map.Entry<String, Entry> entry : scan.entries.entrySet()) {
+                    if (!_entries.containsKey(entry.getKey())) {
+                        _entries.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                for (File root : scan.manifestClassPath) {
+                    if (seen.add(ClasspathRoots.canonical(root))) {
+                        roots.add(root);
+                    }
+                }
+            }
+        }
+        Map<String, Entry> sourceEntries = Maps.newLinkedHashMap();
+        scanSources(into(sourceEntries));
+        for (Map.Entry<String, Entry> entry : sourceEntries.entrySet()) {
+            if (!_entries.containsKey(entry.getKey())) {
+                _entries.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private List<RootScan> scanInParallel(final List<File> roots) {
+        final RootScan[] scans = new RootScan[roots.size()];
+        final AtomicInteger next = new AtomicInteger();
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = next.getAndIncrement(); i < scans.length && !stopRequested(); i = next.getAndIncrement()) {
+                    RootScan scan = new RootScan();
+                    scan.manifestClassPath = scanRoot(roots.get(i), into(scan.entries));
+                    scans[i] = scan;
+                }
+            }
+        };
+
+        List<Future<?>> workers = Lists.newArrayList();
+        for (int i = 1; i < Math.min(PARALLEL_ROOTS, scans.length); i++) {
+            workers.add(ScanExecutors.io().submit(worker));
+        }
+        try {
+            // Let the current thread do its share
+            worker.run();
+            for (Future<?> future : workers) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            _stopped = true;
+        } catch (ExecutionException e) {
+            ClassCollector.logger.error("Could not scan classpath.", e.getCause());
         }
 
-        for (File file : files) {
-            String packageOrClass = (parent == null ? file.getName() : parent + "/" + file.getName());
+        List<RootScan> result = Lists.newArrayListWithCapacity(scans.length);
+        for (RootScan scan : scans) {
+            if (scan != null) {
+                result.add(scan);
+            }
+        }
+        return result;
+    }
 
-            if (file.isDirectory()) {
-                collectClassesInDirectory(packageOrClass, file);
-            } else if (file.getName().endsWith(".class")) {
-                packageOrClass = packageOrClass.substring(0, packageOrClass.length() - 6).replace("/", ".");
-                _entries.put(packageOrClass, Entry.newEntry(packageOrClass, file));
+    /**
+     * @return the roots referenced by the manifest <code>Class-Path</code> of a jar
+     */
+    private List<File> scanRoot(File root, EntryHandler handler) {
+        if (!acceptsRoot(root)) {
+            ClassCollector.logger.debug("Skipping excluded [" + root + "]");
+            return Collections.emptyList();
+        }
+        ClassCollector.logger.debug("Scanning for classes in [" + root + "]");
+        ClassSource source = toSource(root);
+        collect(source, "", handler);
+        if (source instanceof JarClassSource) {
+            try {
+                return ((JarClassSource) source).getManifestClassPath();
+            } catch (IOException e) {
+                ClassCollector.logger.warn("Could not read manifest of jar file '" + root + "'.", e);
             }
         }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Scans the additional sources after the roots, a class already found in a root wins.
+     */
+    private void scanSources(EntryHandler handler) {
+        for (ClassSource source : _sources) {
+            if (stopRequested()) {
+                return;
+            }
+            ClassCollector.logger.debug("Scanning for classes in [" + source + "]");
+            collect(source, "", handler);
+        }
+    }
+
+    /**
+     * Roots are matched by their path with '/' as separator on every platform.
+     */
+    private boolean acceptsRoot(File root) {
+        return _filter.acceptsRoot(root.getPath().replace(File.separatorChar, '/'));
+    }
+
+    /**
+     * @return the class directory, i.e. the package directory without the trailing package path
+     */
+    private static File classDirectoryOf(File packageDirectory, String packagePath) {
+        File directory = packageDirectory.getAbsoluteFile();
+        for (int i = packagePath.isEmpty() ? 0 : packagePath.split("/").length; i > 0 && directory.getParentFile() != null; i--) {
+            directory = directory.getParentFile();
+        }
+        return directory;
+    }
+
+    /**
+     * @return the source of the directory or jar, jars are closed by {@link #close()}
+     */
+    private ClassSource toSource(File root) {
+        if (root.isDirectory()) {
+            return new DirectoryClassSource(root);
+        }
+        JarClassSource jar = new JarClassSource(root);
+        _jars.add(jar);
+        return jar;
     }
 
-    private void collectClassesInJar(String parent, File jarfile) {
+    private void collect(ClassSource source, String packagePath, final EntryHandler handler) {
+        if (source instanceof Closeable && !_jars.contains(source)) {
+            _jars.add((Closeable) source);
+        }
         try {
-            JarFile jar = new JarFile(jarfile);
-            Enumeration<JarEntry> entries = jar.entries();
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-                String name = entry.getName();
-                if (!entry.isDirectory() && name.startsWith(parent) && name.endsWith(".class")) {
-                    name = name.substring(0, name.length() - 6).replace("/", ".");
-                    _entries.put(name, Entry.newEntry(name, jar, entry));
+            source.collect(packagePath, _filter, new ClassSource.Handler() {
+                @Override
+                public boolean handle(String className, ClassSource.Content content) {
+                    if (stopRequested()) {
+                        return false;
+                    }
+                    handler.handle(Entry.newEntry(className, content));
+                    return true;
                 }
-            }
-        } catch (IOException ioe) {
-            ClassCollector.logger.error("Could not search jar file '" + jarfile + "'.", ioe);
+            });
+        } catch (IOException e) {
+            ClassCollector.logger.error("Could not search class source '" + source + "'.", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * @param path path of a file relative to its root
+     * @return is it a class file of a class (not of a module descriptor or of a multi release version)?
+     */
+    static boolean isClassFile(String path) {
+        return path.endsWith(".class") && !path.startsWith("META-INF/") && !path.equals("module-info.class");
+    }
+
+    /**
+     * @return handler that passes each class only the first time it is found
+     */
+    private static EntryHandler firstWins(final EntryHandler handler) {
+        final Set<String> names = Sets.newHashSet();
+        return new EntryHandler() {
+            @Override
+            public void handle(Entry entry) {
+                if (names.add(entry.getClassName())) {
+                    handler.handle(entry);
+                }
+            }
+        };
+    }
+
+    private static EntryHandler into(final Map<String, Entry> target) {
+        return new EntryHandler() {
+            @Override
+            public void handle(Entry entry) {
+                target.put(entry.getClassName(), entry);
+            }
+        };
+    }
+
+    /**
+     * Receives the class files while they are collected.
+     */
+    interface EntryHandler {
+        void handle(Entry entry);
+    }
+
+    /**
+     * Class files of one root.
+     */
+    private static final class RootScan {
+        final Map<String, Entry> entries = Maps.newLinkedHashMap();
+
+        List<File> manifestClassPath = Collections.emptyList();
+    }
+}
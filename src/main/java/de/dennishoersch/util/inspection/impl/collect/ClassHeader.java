@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import java.util.Arrays;
+
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.SignatureAttribute;
+
+import de.dennishoersch.util.inspection.InspectionHelper.ClassInfo;
+
+/**
+ * Immutable {@link ClassInfo} holding only the header fields of a class file. Does not keep the {@link ClassFile} it
+ * was read from.
+ *
+ * @author hoersch
+ */
+final class ClassHeader implements ClassInfo {
+    private final String _name;
+
+    private final String _superclass;
+
+    private final String[] _interfaces;
+
+    private final int _modifiers;
+
+    private final String _genericSignature;
+
+    ClassHeader(String name, String superclass, String[] interfaces, int modifiers, String genericSignature) {
+        _name = name;
+        _superclass = superclass;
+        _interfaces = interfaces;
+        _modifiers = modifiers;
+        _genericSignature = genericSignature;
+    }
+
+    /**
+     * @param classFile
+     * @param names the names of the scan, the header keeps their canonical instances
+     * @return the header
+     */
+    static ClassHeader of(ClassFile classFile, NameTable names) {
+        return new ClassHeader(names.intern(classFile.getName()), names.intern(classFile.getSuperclass()), names.intern(classFile.getInterfaces()),
+                AccessFlag.toModifier(classFile.getAccessFlags()), genericSignatureOf(classFile));
+    }
+
+    static String genericSignatureOf(ClassFile classFile) {
+        SignatureAttribute signature = (SignatureAttribute) classFile.getAttribute(SignatureAttribute.tag);
+        return signature == null ? null : signature.getSignature();
+    }
+
+    @Override
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * @return name of the super class, <code>null</code> for {@link Object}
+     */
+    @Override
+    public String getSuperclass() {
+        return _superclass;
+    }
+
+    @Override
+    public String[] getInterfaces() {
+        return _interfaces.clone();
+    }
+
+    @Override
+    public int getModifiers() {
+        return _modifiers;
+    }
+
+    @Override
+    public String getGenericSignature() {
+        return _genericSignature;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + _name + " extends " + _superclass + " implements " + Arrays.toString(_interfaces) + ")";
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.URLDecoder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Enumerates the roots (class directories and jars) of the whole classpath. Does not rely on
+ * {@link ClassLoader#getResources(String)} but reads the roots directly from the system properties
+ * <code>java.class.path</code> and <code>jdk.module.path</code> and from the {@link URLClassLoader}s of the given
+ * class loader hierarchy. Every root is returned once. Also knows the roots of an exploded web application.
+ *
+ * @author hoersch
+ */
+final class ClasspathRoots {
+
+    private static final Splitter PATH_SPLITTER = Splitter.on(File.pathSeparatorChar).omitEmptyStrings().trimResults();
+
+    private static final Splitter MANIFEST_CLASS_PATH_SPLITTER = Splitter.on(' ').omitEmptyStrings();
+
+    /**
+     * Prefixes of URLs that wrap a path on the file system: jars, WebSphere's <code>wsjar:</code>, WebLogic's
+     * <code>zip:</code> and the virtual file system of JBoss.
+     */
+    private static final List<String> FILE_SYSTEM_SCHEMES = ImmutableList.of("jar:", "wsjar:", "zip:", "vfszip:", "vfsfile:", "vfs:", "file:");
+
+    private final Set<File> _seen = Sets.newHashSet();
+
+    private ClasspathRoots() {
+    }
+
+    /**
+     * @param classloader
+     * @return the existing roots, ordered as the class loaders would search them
+     */
+    static List<File> of(ClassLoader classloader) {
+        return new ClasspathRoots().collect(classloader);
+    }
+
+    private List<File> collect(ClassLoader classloader) {
+        List<File> roots = Lists.newArrayList();
+
+        // Parents first, that's the order in which classes are looked up
+        List<ClassLoader> hierarchy = Lists.newArrayList();
+        for (ClassLoader cl = classloader; cl != null; cl = cl.getParent()) {
+            hierarchy.add(0, cl);
+        }
+        for (ClassLoader cl : hierarchy) {
+            if (cl instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) cl).getURLs()) {
+                    addRoot(roots, toFile(url));
+                }
+            }
+        }
+        for (String path : PATH_SPLITTER.split(Strings.nullToEmpty(System.getProperty("java.class.path")))) {
+            addRoot(roots, new File(path));
+        }
+        for (String path : PATH_SPLITTER.split(Strings.nullToEmpty(System.getProperty("jdk.module.path")))) {
+            File file = new File(path);
+            File[] modules = file.isDirectory() && !new File(file, "module-info.class").isFile() ? file.listFiles() : null;
+            if (modules == null) {
+                addRoot(roots, file);
+            } else {
+                // A directory of modules
+                for (File module : modules) {
+                    addRoot(roots, module);
+                }
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * The roots of an exploded web application: <code>WEB-INF/classes</code> first, then the jars of
+     * <code>WEB-INF/lib</code> by name.
+     *
+     * @param webappDirectory the directory containing <code>WEB-INF</code>
+     * @return the existing roots
+     */
+    static List<File> webapp(File webappDirectory) {
+        File webInf = new File(webappDirectory, "WEB-INF");
+        if (!webInf.isDirectory()) {
+            throw new IllegalArgumentException("Not an exploded web application, missing directory: " + webInf);
+        }
+        ClasspathRoots classpathRoots = new ClasspathRoots();
+        List<File> roots = Lists.newArrayList();
+        File classes = new File(webInf, "classes");
+        if (classes.isDirectory()) {
+            classpathRoots.addRoot(roots, classes);
+        }
+        File[] jars = new File(webInf, "lib").listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".jar");
+            }
+        });
+        if (jars != null) {
+            Arrays.sort(jars);
+            for (File jar : jars) {
+                classpathRoots.addRoot(roots, jar);
+            }
+        }
+        return roots;
+    }
+
+    private void addRoot(List<File> roots, File file) {
+        if (file != null && file.exists() && _seen.add(canonical(file))) {
+            roots.add(file);
+        }
+    }
+
+    /**
+     * Reads the <code>Class-Path</code> attribute of the manifest. Such a manifest is used i.e. by test runners to
+     * shorten the command line.
+     *
+     * @param jarfile the root jar
+     * @param manifest the manifest of the jar, may be <code>null</code>
+     * @return the roots of the manifest class path
+     */
+    static List<File> manifestClassPath(File jarfile, Manifest manifest) {
+        String classPath = manifest == null ? null : manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+        if (classPath == null) {
+            return Lists.newArrayList();
+        }
+        List<File> roots = Lists.newArrayList();
+        for (String entry : MANIFEST_CLASS_PATH_SPLITTER.split(classPath)) {
+            try {
+                File file = toFile(new URL(jarfile.getAbsoluteFile().toURI().toURL(), entry));
+                if (file != null && file.exists()) {
+                    roots.add(file);
+                }
+            } catch (IOException e) {
+                ClassCollector.logger.debug("Ignoring class path entry '" + entry + "' in manifest of " + jarfile, e);
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * @param file
+     * @return the canonical file to identify roots, or the absolute file if it can not be canonicalized
+     */
+    static File canonical(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
+
+    private static File toFile(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            File file = toLocalFile(url);
+            if (file == null) {
+                ClassCollector.logger.debug("Ignoring class path entry with unsupported protocol: " + url);
+            }
+            return file;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return new File(url.getPath());
+        }
+    }
+
+    /**
+     * Resolves the URL of a directory, a jar or a resource within either to the file on the file system. Understands
+     * the container schemes listed in {@link #FILE_SYSTEM_SCHEMES}. Virtual file systems append the path within a jar
+     * to the path of the jar, so the path is shortened until an existing file is found.
+     *
+     * @param url
+     * @return the directory or the jar, <code>null</code> if it is not on the file system, i.e. a jar within a packed
+     *         web application archive
+     */
+    static File toLocalFile(URL url) {
+        String path;
+        try {
+            path = URLDecoder.decode(url.toExternalForm(), "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        for (boolean stripped = true; stripped;) {
+            stripped = false;
+            for (String scheme : FILE_SYSTEM_SCHEMES) {
+                if (path.startsWith(scheme)) {
+                    path = path.substring(scheme.length());
+                    stripped = true;
+                }
+            }
+        }
+        if (path.indexOf('!') > 0) {
+            path = path.substring(0, path.indexOf('!'));
+        }
+
+        File file = new File(path);
+        File existing = file;
+        while (existing != null && !existing.exists()) {
+            existing = existing.getParentFile();
+        }
+        if (existing == null || existing.equals(file)) {
+            return existing;
+        }
+        // Only a jar may contain the rest of the path
+        return existing.isFile() && existing.getName().endsWith(".jar") ? existing : null;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.google.common.io.Files;
+
+import de.dennishoersch.util.inspection.ClassSource;
+import de.dennishoersch.util.inspection.ScanFilter;
+
+/**
+ * The class files of a class directory.
+ *
+ * @author hoersch
+ */
+public final class DirectoryClassSource implements ClassSource {
+
+    private final File _directory;
+
+    /**
+     * @param directory the class directory, i.e. the one containing the top level packages
+     */
+    public DirectoryClassSource(File directory) {
+        _directory = directory;
+    }
+
+    @Override
+    public void collect(String packagePath, ScanFilter filter, Handler handler) {
+        if (filter.acceptsPackageTree(packagePath)) {
+            File location = packagePath.isEmpty() ? _directory : new File(_directory, packagePath);
+            collect(packagePath, location, filter, handler);
+        }
+    }
+
+    /**
+     * @return continue?
+     */
+    private boolean collect(String parent, File location, ScanFilter filter, Handler handler) {
+        File[] files = location.listFiles();
+
+        if (files == null) {
+            ClassCollector.logger.warn("Could not list directory " + location.getAbsolutePath() + ".");
+            return true;
+        }
+
+        boolean packageAccepted = filter.acceptsPackage(parent);
+        for (File file : files) {
+            String packageOrClass = (parent.isEmpty() ? file.getName() : parent + "/" + file.getName());
+
+            if (file.isDirectory()) {
+                if (filter.acceptsPackageTree(packageOrClass) && !collect(packageOrClass, file, filter, handler)) {
+                    return false;
+                }
+            } else if (packageAccepted && ClassFilesCollector.isClassFile(packageOrClass)) {
+                packageOrClass = packageOrClass.substring(0, packageOrClass.length() - 6).replace("/", ".");
+                if (filter.acceptsClass(packageOrClass) && !handler.handle(packageOrClass, new FileContent(file))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return _directory.getPath();
+    }
+
+    private static final class FileContent implements Content {
+        private final File _file;
+
+        FileContent(File file) {
+            _file = file;
+        }
+
+        @Override
+        public byte[] read() throws IOException {
+            return Files.toByteArray(_file);
+        }
+    }
+}
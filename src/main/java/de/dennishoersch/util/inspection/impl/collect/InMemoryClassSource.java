@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import javassist.ClassPool;
+import javassist.NotFoundException;
+
+import com.google.common.collect.ImmutableMap;
+
+import de.dennishoersch.util.inspection.ClassSource;
+import de.dennishoersch.util.inspection.ScanFilter;
+
+/**
+ * Class files held in memory, i.e. generated at runtime. Nothing is written to disk. To load the matched classes the
+ * scan has to use a class loader that defines them.
+ *
+ * @author hoersch
+ */
+public final class InMemoryClassSource implements ClassSource {
+
+    private final Map<String, byte[]> _classes;
+
+    /**
+     * @param classes the class files by fully qualified class name. The map is copied, the arrays are not.
+     */
+    public InMemoryClassSource(Map<String, byte[]> classes) {
+        _classes = ImmutableMap.copyOf(classes);
+    }
+
+    /**
+     * Takes the current class files of the classes of the pool. Later changes of the classes are not seen.
+     *
+     * @param pool
+     * @param classNames fully qualified names of the classes
+     * @return the source
+     * @throws NotFoundException if the pool does not know a class
+     * @throws IOException if a class file could not be written
+     */
+    public static InMemoryClassSource of(ClassPool pool, String... classNames) throws NotFoundException, IOException {
+        ImmutableMap.Builder<String, byte[]> classes = ImmutableMap.builder();
+        for (String className : classNames) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                // Unlike CtClass.toBytecode() this does not freeze the class
+                pool.get(className).getClassFile2().write(out);
+            }
+            classes.put(className, bytes.toByteArray());
+        }
+        return new InMemoryClassSource(classes.build());
+    }
+
+    @Override
+    public void collect(String packagePath, ScanFilter filter, Handler handler) {
+        for (Map.Entry<String, byte[]> entry : _classes.entrySet()) {
+            String className = entry.getKey();
+            int packageLength = Math.max(className.lastIndexOf('.'), 0);
+            String classPackage = className.substring(0, packageLength).replace('.', '/');
+            if (isInTree(classPackage, packagePath) && filter.acceptsPackage(classPackage) && filter.acceptsClass(className)
+                    && !handler.handle(className, new BytesContent(entry.getValue()))) {
+                return;
+            }
+        }
+    }
+
+    private static boolean isInTree(String classPackage, String packagePath) {
+        return packagePath.isEmpty() || classPackage.equals(packagePath) || classPackage.startsWith(packagePath + "/");
+    }
+
+    @Override
+    public String toString() {
+        return "in memory " + _classes.keySet();
+    }
+
+    private static final class BytesContent implements Content {
+        private final byte[] _content;
+
+        BytesContent(byte[] content) {
+            _content = content;
+        }
+
+        @Override
+        public byte[] read() {
+            return _content;
+        }
+    }
+}
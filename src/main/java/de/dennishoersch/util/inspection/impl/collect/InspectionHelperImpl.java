@@ -15,13 +15,10 @@
  */
 package de.dennishoersch.util.inspection.impl.collect;
 
-import static com.google.common.collect.Lists.newArrayList;
-import static com.google.common.collect.Lists.transform;
-import static de.dennishoersch.util.inspection.ClassInspectionUtil.classToName;
-
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Map;
 
 import javassist.bytecode.ClassFile;
@@ -30,16 +27,41 @@ import com.google.common.collect.Maps;
 
 import de.dennishoersch.util.inspection.InspectionHelper;
 
+/**
+ * Resolves the classes of a scan. Only the headers of resolved and inspected
+ * classes are kept, not their class files.
+ */
 final class InspectionHelperImpl implements InspectionHelper {
-	private final Map<String, ClassInfo> _classFiles = Maps.newHashMap();
+	private final Map<String, ClassInfo> _classInfos = Maps.newHashMap();
 
 	private final ClassLoader _classloader;
 
-	private final Map<String, Entry> _entries = Maps.newLinkedHashMap();
+	private final Map<String, Entry> _entries;
+
+	private final LoaderClassInfos _loaderClassInfos;
 
+	/** Names of this scan, dropped with it. */
+	private final NameTable _names = new NameTable();
+
+	/**
+	 * Creates a helper that resolves classes by the class loader only, i.e.
+	 * for a streaming scan.
+	 *
+	 * @param classloader
+	 */
+	InspectionHelperImpl(ClassLoader classloader) {
+		this(classloader, Collections.<String, Entry> emptyMap());
+	}
+
+	/**
+	 * @param classloader
+	 * @param entries
+	 *            the collected class files, looked up first
+	 */
 	InspectionHelperImpl(ClassLoader classloader, Map<String, Entry> entries) {
 		_classloader = classloader;
-		_entries.putAll(entries);
+		_entries = entries;
+		_loaderClassInfos = LoaderClassInfos.of(classloader);
 	}
 
 	@Override
@@ -49,39 +71,46 @@ final class InspectionHelperImpl implements InspectionHelper {
 
 	@Override
 	public ClassInfo getClassInfo(String name) throws IOException, ClassNotFoundException {
-		ClassInfo classFile = _classFiles.get(name);
-		if (classFile == null) {
-			if (name.startsWith("java") || name.startsWith("com.sun")) {
-				// java-* packages, they might be in 'rt.jar' and could not be
-				// read (?). But there shouldn't be so many so loading them into
-				// the JVM won't take too much memory...
-				classFile = new NativeClassInfo(_classloader.loadClass(name));
+		ClassInfo classInfo = _classInfos.get(name);
+		if (classInfo == null) {
+			Entry entry = _entries.get(name);
+			if (entry != null) {
+				classInfo = ClassHeader.of(toClassFile(entry.getContent()), _names);
 			} else {
-				Entry entry = _entries.get(name);
-				if (entry == null) {
-					int lastDot = name.lastIndexOf(".");
-					if (lastDot >= 0) {
-						// The class isn't in the inspected package tree. Load
-						// it but don't inspect it!
-						String packageName = name.substring(0, lastDot);
-
-						_entries.putAll(new ClassFilesCollector(_classloader, packageName).getEntries());
-						entry = _entries.get(name);
-					}
-					if (entry == null) {
-						throw new ClassNotFoundException(name);
-					}
-				}
-				classFile = new ClassFileClassInfo(toClassFile(entry.getContent()));
+				// Classes of the JDK are read from the JDK's class files and
+				// cached for all scans, they are never loaded
+				classInfo = JdkClassInfos.get(name);
+			}
+			if (classInfo == null) {
+				// The class isn't in the inspected package tree. Read its
+				// class file but neither load nor inspect it! Cached for all
+				// scans with the same class loader.
+				classInfo = _loaderClassInfos.get(name, _classloader);
 			}
-			_classFiles.put(name, classFile);
+			_classInfos.put(name, classInfo);
 		}
-		return classFile;
+		return classInfo;
 	}
 
+	/**
+	 * Extracts the header once, the class file is not kept.
+	 */
 	@Override
 	public ClassInfo toClassInfo(ClassFile type) {
-		return new ClassFileClassInfo(type);
+		ClassInfo classInfo = _classInfos.get(type.getName());
+		if (classInfo == null) {
+			classInfo = ClassHeader.of(type, _names);
+			_classInfos.put(classInfo.getName(), classInfo);
+		}
+		return classInfo;
+	}
+
+	@Override
+	public String intern(String name) {
+		// Reuses the names of the cached headers but never adds to their
+		// table, it lives as long as the class loader
+		String cached = _loaderClassInfos.getNames().get(name);
+		return cached != null ? cached : _names.intern(name);
 	}
 
 	static ClassFile toClassFile(byte[] classContent) throws IOException {
@@ -89,60 +118,4 @@ final class InspectionHelperImpl implements InspectionHelper {
 		ClassFile type = new ClassFile(dstream);
 		return type;
 	}
-
-	private static class NativeClassInfo implements ClassInfo {
-		private final Class<?> _clazz;
-
-		NativeClassInfo(Class<?> clazz) {
-			this._clazz = clazz;
-		}
-
-		@Override
-		public String getName() {
-			return _clazz.getName();
-		}
-
-		@Override
-		public String getSuperclass() {
-			return _clazz.getSuperclass().getName();
-		}
-
-		@Override
-		public String[] getInterfaces() {
-			return transform(newArrayList(_clazz.getInterfaces()), classToName()).toArray(new String[] {});
-		}
-
-		@Override
-		public String toString() {
-			return getClass().getSimpleName() + "(" + _clazz.getName() + ")";
-		}
-	}
-
-	private static class ClassFileClassInfo implements ClassInfo {
-		private final ClassFile _classFile;
-
-		ClassFileClassInfo(ClassFile classFile) {
-			this._classFile = classFile;
-		}
-
-		@Override
-		public String getName() {
-			return _classFile.getName();
-		}
-
-		@Override
-		public String getSuperclass() {
-			return _classFile.getSuperclass();
-		}
-
-		@Override
-		public String[] getInterfaces() {
-			return _classFile.getInterfaces();
-		}
-
-		@Override
-		public String toString() {
-			return getClass().getSimpleName() + "(" + _classFile.getName() + ")";
-		}
-	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import com.google.common.io.ByteStreams;
+
+import de.dennishoersch.util.inspection.ClassSource;
+import de.dennishoersch.util.inspection.ScanFilter;
+
+/**
+ * The class files of a jar. Jars that can be mapped are read by {@link MappedZipFile}, larger ones by {@link JarFile}.
+ * The entries of mapped jars are listed once per unchanged jar, see {@link JarListings}. The jar is opened when
+ * collected and stays open until closed, as the entries are read lazily.
+ *
+ * @author hoersch
+ */
+public final class JarClassSource implements ClassSource, Closeable {
+
+    private final File _jarfile;
+
+    private MappedZipFile _zip;
+
+    private JarFile _jar;
+
+    /**
+     * @param jarfile
+     */
+    public JarClassSource(File jarfile) {
+        _jarfile = jarfile;
+    }
+
+    @Override
+    public synchronized void collect(String packagePath, ScanFilter filter, Handler handler) throws IOException {
+        ClassNameFilter names = new ClassNameFilter(filter);
+        if (MappedZipFile.canMap(_jarfile)) {
+            if (_zip == null) {
+                _zip = MappedZipFile.open(_jarfile);
+            }
+            for (MappedZipFile.Item item : JarListings.of(_jarfile, _zip).classEntries(_zip, packagePath)) {
+                String name = names.toAcceptedClassName(item.name);
+                if (name != null && !handler.handle(name, new MappedZipEntryContent(_zip, item))) {
+                    return;
+                }
+            }
+            return;
+        }
+
+        if (_jar == null) {
+            _jar = new JarFile(_jarfile);
+        }
+        String prefix = packagePath.isEmpty() ? "" : packagePath + "/";
+        Enumeration<JarEntry> entries = _jar.entries();
+        while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            if (!entry.isDirectory() && entry.getName().startsWith(prefix)) {
+                String name = names.toAcceptedClassName(entry.getName());
+                if (name != null && !handler.handle(name, new JarEntryContent(_jar, entry))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the roots referenced by the manifest <code>Class-Path</code> of the collected jar
+     * @throws IOException
+     */
+    synchronized List<File> getManifestClassPath() throws IOException {
+        Manifest manifest;
+        if (_zip != null) {
+            manifest = JarListings.of(_jarfile, _zip).manifest;
+        } else if (_jar != null) {
+            manifest = _jar.getManifest();
+        } else {
+            manifest = null;
+        }
+        return ClasspathRoots.manifestClassPath(_jarfile, manifest);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (_zip != null) {
+                _zip.close();
+            }
+            if (_jar != null) {
+                _jar.close();
+            }
+        } finally {
+            _zip = null;
+            _jar = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return _jarfile.getPath();
+    }
+
+    /**
+     * Applies the filter to the entries of a jar. Entries are mostly grouped by package, so the last decision is
+     * remembered.
+     */
+    private static final class ClassNameFilter {
+        private final ScanFilter _filter;
+
+        private String _lastPackage;
+
+        private boolean _lastPackageAccepted;
+
+        ClassNameFilter(ScanFilter filter) {
+            _filter = filter;
+        }
+
+        /**
+         * @param path path of the entry
+         * @return the name of the class or <code>null</code> if the entry is no accepted class file
+         */
+        String toAcceptedClassName(String path) {
+            if (!ClassFilesCollector.isClassFile(path)) {
+                return null;
+            }
+            int packageLength = Math.max(path.lastIndexOf('/'), 0);
+            if (_lastPackage == null || _lastPackage.length() != packageLength || !path.startsWith(_lastPackage)) {
+                _lastPackage = path.substring(0, packageLength);
+                _lastPackageAccepted = _filter.acceptsPackage(_lastPackage);
+            }
+            if (!_lastPackageAccepted) {
+                return null;
+            }
+            String name = path.substring(0, path.length() - 6).replace("/", ".");
+            return _filter.acceptsClass(name) ? name : null;
+        }
+    }
+
+    private static final class JarEntryContent implements Content {
+        private final JarEntry _entry;
+
+        private final JarFile _jar;
+
+        JarEntryContent(JarFile jar, JarEntry entry) {
+            _jar = jar;
+            _entry = entry;
+        }
+
+        @Override
+        public byte[] read() throws IOException {
+            return ByteStreams.toByteArray(_jar.getInputStream(_entry));
+        }
+    }
+
+    private static final class MappedZipEntryContent implements Content {
+        private final MappedZipFile _zip;
+
+        private final MappedZipFile.Item _item;
+
+        MappedZipEntryContent(MappedZipFile zip, MappedZipFile.Item item) {
+            _zip = zip;
+            _item = item;
+        }
+
+        @Override
+        public byte[] read() throws IOException {
+            return _zip.read(_item);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.jar.Manifest;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+/**
+ * Cache of the class file entries and manifests of jars, kept across scans and redeploys as long as the jar is
+ * unchanged, i.e. has the same length and modification time. The class file entries are listed per scanned package, so
+ * that names outside of it are never decoded. A servlet container redeploying an application mostly
+ * finds the same <code>WEB-INF/lib</code> jars again and then skips reading their central directories.
+ * <p>
+ * The listings are softly referenced. Thread safe.
+ *
+ * @author hoersch
+ */
+final class JarListings {
+
+    private static final Cache<File, Listing> LISTINGS = CacheBuilder.newBuilder().softValues().build();
+
+    private JarListings() {
+    }
+
+    /**
+     * @param jarfile
+     * @param zip the opened jar
+     * @return the listing of the jar, read from the jar if the cached one is missing or outdated
+     * @throws IOException
+     */
+    static Listing of(File jarfile, MappedZipFile zip) throws IOException {
+        File key = ClasspathRoots.canonical(jarfile);
+        long length = jarfile.length();
+        long lastModified = jarfile.lastModified();
+        Listing listing = LISTINGS.getIfPresent(key);
+        if (listing == null || listing.length != length || listing.lastModified != lastModified) {
+            listing = new Listing(length, lastModified, zip.getManifest());
+            LISTINGS.put(key, listing);
+        } else {
+            ClassCollector.logger.trace("Reusing listing of unchanged jar [" + jarfile + "]");
+        }
+        return listing;
+    }
+
+    /**
+     * The class file entries and the manifest of a jar.
+     */
+    static final class Listing {
+        final long length;
+
+        final long lastModified;
+
+        /** May be <code>null</code>. */
+        final Manifest manifest;
+
+        /** The class file entries by package path prefix. */
+        private final ConcurrentMap<String, List<MappedZipFile.Item>> _classEntries = Maps.newConcurrentMap();
+
+        Listing(long length, long lastModified, Manifest manifest) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.manifest = manifest;
+        }
+
+        /**
+         * @param zip the opened jar, to list the entries if they are not cached yet
+         * @param packagePath path of the package with '/' as separator, the empty string for all packages
+         * @return the entries ending with <code>.class</code> in the package and its sub packages, in the order of
+         *         the central directory
+         * @throws IOException
+         */
+        List<MappedZipFile.Item> classEntries(MappedZipFile zip, String packagePath) throws IOException {
+            String prefix = packagePath.isEmpty() ? "" : packagePath + "/";
+            List<MappedZipFile.Item> entries = _classEntries.get(prefix);
+            if (entries == null) {
+                entries = ImmutableList.copyOf(zip.entries(prefix, ".class"));
+                _classEntries.putIfAbsent(prefix, entries);
+            }
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+
+import de.dennishoersch.util.inspection.InspectionHelper.ClassInfo;
+
+/**
+ * JVM wide cache of {@link ClassInfo}s of the classes of the JDK. The class files are read as resources of the
+ * platform class loader (from the <code>jrt:/</code> file system or from <code>rt.jar</code>) and parsed, the classes
+ * are never loaded. As the JDK does not change while the JVM runs, the infos are kept for the lifetime of the JVM.
+ *
+ * @author hoersch
+ */
+final class JdkClassInfos {
+
+    private static final ClassLoader JDK_CLASSLOADER = ClassLoader.getSystemClassLoader().getParent();
+
+    private static final ConcurrentMap<String, ClassInfo> CACHE = Maps.newConcurrentMap();
+
+    /** The names of the cached infos, kept as long as the infos. */
+    private static final NameTable NAMES = new NameTable();
+
+    private JdkClassInfos() {
+    }
+
+    /**
+     * @param name the name of the class
+     * @return the info of the class or <code>null</code> if it is not a class of the JDK
+     * @throws IOException if the class file could not be read
+     */
+    static ClassInfo get(String name) throws IOException {
+        ClassInfo info = CACHE.get(name);
+        if (info != null) {
+            return info;
+        }
+
+        URL resource = findResource(name.replace('.', '/') + ".class");
+        if (resource == null) {
+            return null;
+        }
+        byte[] content;
+        try (InputStream in = resource.openStream()) {
+            content = ByteStreams.toByteArray(in);
+        }
+        info = ClassHeader.of(InspectionHelperImpl.toClassFile(content), NAMES);
+        ClassInfo existing = CACHE.putIfAbsent(name, info);
+        return existing == null ? info : existing;
+    }
+
+    private static URL findResource(String path) {
+        // The platform (or extension) class loader only sees the JDK, it delegates to the boot class loader
+        if (JDK_CLASSLOADER != null) {
+            return JDK_CLASSLOADER.getResource(path);
+        }
+        return path.startsWith("java/") ? ClassLoader.getSystemResource(path) : null;
+    }
+}
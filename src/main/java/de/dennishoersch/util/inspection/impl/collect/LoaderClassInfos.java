@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+
+import de.dennishoersch.util.inspection.InspectionHelper.ClassInfo;
+
+/**
+ * Cache of the {@link ClassInfo}s of the classes read as resources of a class loader, kept across scans as long as the
+ * class loader is reachable. A class loader defines each class once, so its view of a class does not change while it
+ * lives; a new class loader, i.e. of a redeployed application, starts with an empty cache.
+ * <p>
+ * Only {@link ClassHeader}s are kept, never class files nor the class loader. Thread safe.
+ *
+ * @author hoersch
+ */
+final class LoaderClassInfos {
+
+    private static final Map<ClassLoader, LoaderClassInfos> CACHES = new WeakHashMap<>();
+
+    private final ConcurrentMap<String, ClassInfo> _classInfos = Maps.newConcurrentMap();
+
+    private final NameTable _names = new NameTable();
+
+    private LoaderClassInfos() {
+    }
+
+    /**
+     * @param classloader
+     * @return the cache of the class loader
+     */
+    static LoaderClassInfos of(ClassLoader classloader) {
+        synchronized (CACHES) {
+            LoaderClassInfos cache = CACHES.get(classloader);
+            if (cache == null) {
+                cache = new LoaderClassInfos();
+                CACHES.put(classloader, cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * @return the names of the cached headers, for the scans with the class loader to look up but not to add to
+     */
+    NameTable getNames() {
+        return _names;
+    }
+
+    /**
+     * @param name the name of the class
+     * @param classloader the class loader of this cache
+     * @return the info of the class
+     * @throws IOException if the class file could not be read
+     * @throws ClassNotFoundException if the class loader has no class file of the class
+     */
+    ClassInfo get(String name, ClassLoader classloader) throws IOException, ClassNotFoundException {
+        ClassInfo info = _classInfos.get(name);
+        if (info != null) {
+            return info;
+        }
+        byte[] content;
+        try (InputStream in = classloader.getResourceAsStream(name.replace('.', '/') + ".class")) {
+            if (in == null) {
+                throw new ClassNotFoundException(name);
+            }
+            content = ByteStreams.toByteArray(in);
+        }
+        info = ClassHeader.of(InspectionHelperImpl.toClassFile(content), _names);
+        ClassInfo existing = _classInfos.putIfAbsent(name, info);
+        return existing == null ? info : existing;
+    }
+}
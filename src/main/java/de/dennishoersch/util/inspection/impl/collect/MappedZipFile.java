@@ -0,0 +1,497 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+
+/**
+ * Read only access to the entries of a zip file for scanning. The file is memory mapped and the central directory is
+ * parsed directly, names are matched as raw bytes before they are decoded. Unlike {@link JarFile} no signatures are
+ * verified and no object is created for entries not asked for.
+ * <p>
+ * Zip64 archives are supported as long as the file can be mapped, i.e. is smaller than 2GB.
+ *
+ * @author hoersch
+ */
+final class MappedZipFile implements Closeable {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int END_LENGTH = 22;
+
+    private static final int ZIP64_LOCATOR_LENGTH = 20;
+
+    private static final int CENTRAL_HEADER_LENGTH = 46;
+
+    private static final int LOCAL_HEADER_LENGTH = 30;
+
+    private static final int ZIP64_EXTRA_TAG = 0x0001;
+
+    private static final int STORED = 0;
+
+    private static final int DEFLATED = 8;
+
+    private static final int INPUT_BUFFER_SIZE = 8192;
+
+    private static final int POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Inflaters and input buffers are reused by all zip files, as creating an inflater allocates native memory. Surplus
+     * inflaters are ended instead of pooled.
+     */
+    private static final Queue<Inflater> INFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private static final Queue<byte[]> INPUT_BUFFERS = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private static final Logger logger = Logger.getLogger(MappedZipFile.class);
+
+    private final File _file;
+
+    private final ByteBuffer _mapped;
+
+    /** The mapped file while open, <code>null</code> after {@link #close()}. */
+    private volatile ByteBuffer _buffer;
+
+    /** Reads in progress, the mapping is released by the last of them after {@link #close()}. */
+    private final AtomicInteger _readers = new AtomicInteger();
+
+    private final AtomicBoolean _unmapped = new AtomicBoolean();
+
+    private final int _centralDirectoryOffset;
+
+    private final int _centralDirectoryEnd;
+
+    private MappedZipFile(File file, ByteBuffer buffer) throws ZipException {
+        _file = file;
+        _mapped = buffer;
+        _buffer = buffer;
+
+        int end = findEnd(buffer);
+        long offset = unsignedInt(buffer, end + 16);
+        long size = unsignedInt(buffer, end + 12);
+        if (offset == 0xFFFFFFFFL || size == 0xFFFFFFFFL || unsignedShort(buffer, end + 10) == 0xFFFF) {
+            int zip64End = findZip64End(buffer, end);
+            if (zip64End >= 0) {
+                size = buffer.getLong(zip64End + 40);
+                offset = buffer.getLong(zip64End + 48);
+            }
+        }
+        if (offset < 0 || size < 0 || offset + size > buffer.limit()) {
+            throw new ZipException("Invalid central directory in '" + file + "'.");
+        }
+        _centralDirectoryOffset = (int) offset;
+        _centralDirectoryEnd = (int) (offset + size);
+    }
+
+    /**
+     * @param file
+     * @return may the file be opened as mapped zip file? Otherwise it has to be read by {@link JarFile}.
+     */
+    static boolean canMap(File file) {
+        return file.length() <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * @param file a zip file smaller than 2GB
+     * @return the opened zip file
+     * @throws IOException if the file could not be read or is no zip file
+     */
+    static MappedZipFile open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                return new MappedZipFile(file, buffer.order(ByteOrder.LITTLE_ENDIAN));
+            } catch (IOException | RuntimeException e) {
+                Unmapper.unmap(buffer);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @param prefix
+     * @param suffix
+     * @return all file entries whose names start with the prefix and end with the suffix, in the order of the central
+     *         directory
+     * @throws IOException
+     */
+    List<Item> entries(String prefix, String suffix) throws IOException {
+        ByteBuffer buffer = acquire();
+        try {
+            return entries(buffer, prefix, suffix);
+        } finally {
+            release();
+        }
+    }
+
+    private List<Item> entries(ByteBuffer buffer, String prefix, String suffix) throws ZipException {
+        byte[] prefixBytes = prefix.getBytes(Charsets.UTF_8);
+        byte[] suffixBytes = suffix.getBytes(Charsets.UTF_8);
+        List<Item> items = Lists.newArrayList();
+        int position = _centralDirectoryOffset;
+        while (position + CENTRAL_HEADER_LENGTH <= _centralDirectoryEnd) {
+            if (buffer.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException("Invalid central directory header in '" + _file + "'.");
+            }
+            int nameLength = unsignedShort(buffer, position + 28);
+            int extraLength = unsignedShort(buffer, position + 30);
+            int commentLength = unsignedShort(buffer, position + 32);
+            int name = position + CENTRAL_HEADER_LENGTH;
+            if (nameLength >= prefixBytes.length + suffixBytes.length && startsWith(buffer, name, prefixBytes)
+                    && startsWith(buffer, name + nameLength - suffixBytes.length, suffixBytes) && !isDirectory(buffer, name, nameLength)) {
+                items.add(toItem(buffer, position, name, nameLength, extraLength));
+            }
+            position = name + nameLength + extraLength + commentLength;
+        }
+        return items;
+    }
+
+    /**
+     * @return the manifest or <code>null</code> if there is none
+     * @throws IOException
+     */
+    Manifest getManifest() throws IOException {
+        for (Item item : entries(JarFile.MANIFEST_NAME, "")) {
+            if (item.name.equals(JarFile.MANIFEST_NAME)) {
+                return new Manifest(new ByteArrayInputStream(read(item)));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param item
+     * @return the uncompressed content of the entry
+     * @throws IOException
+     */
+    byte[] read(Item item) throws IOException {
+        ByteBuffer buffer = acquire();
+        try {
+            ByteBuffer data = slice(buffer, item);
+            byte[] content = new byte[item.size];
+            if (item.method == STORED) {
+                data.get(content);
+            } else {
+                inflate(data, content);
+            }
+            return content;
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * @return the raw data of the entry as view of the mapped file, without copying
+     */
+    private ByteBuffer slice(ByteBuffer buffer, Item item) throws ZipException {
+        if (item.localHeaderOffset + LOCAL_HEADER_LENGTH > buffer.limit() || buffer.getInt(item.localHeaderOffset) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid local header of '" + item.name + "' in '" + _file + "'.");
+        }
+        long start = item.localHeaderOffset + LOCAL_HEADER_LENGTH + unsignedShort(buffer, item.localHeaderOffset + 26)
+                + unsignedShort(buffer, item.localHeaderOffset + 28);
+        if (start + item.compressedSize > buffer.limit()) {
+            throw new ZipException("Truncated entry '" + item.name + "' in '" + _file + "'.");
+        }
+        ByteBuffer data = buffer.duplicate();
+        data.limit((int) (start + item.compressedSize)).position((int) start);
+        return data.slice();
+    }
+
+    private void inflate(ByteBuffer data, byte[] content) throws ZipException {
+        Inflater inflater = INFLATERS.poll();
+        if (inflater == null) {
+            inflater = new Inflater(true);
+        }
+        byte[] input = INPUT_BUFFERS.poll();
+        if (input == null) {
+            input = new byte[INPUT_BUFFER_SIZE];
+        }
+        try {
+            int length = 0;
+            boolean dummyByte = false;
+            while (length < content.length) {
+                if (inflater.needsInput()) {
+                    int chunk = Math.min(data.remaining(), input.length);
+                    if (chunk > 0) {
+                        data.get(input, 0, chunk);
+                    } else if (!dummyByte) {
+                        // A raw inflater may need an extra dummy byte after the data
+                        dummyByte = true;
+                        input[0] = 0;
+                        chunk = 1;
+                    } else {
+                        break;
+                    }
+                    inflater.setInput(input, 0, chunk);
+                }
+                int inflated = inflater.inflate(content, length, content.length - length);
+                if (inflated == 0 && (inflater.finished() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != content.length) {
+                throw new ZipException("Invalid compressed data in '" + _file + "'.");
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException("Invalid compressed data in '" + _file + "': " + e.getMessage());
+        } finally {
+            inflater.reset();
+            if (!INFLATERS.offer(inflater)) {
+                inflater.end();
+            }
+            INPUT_BUFFERS.offer(input);
+        }
+    }
+
+    private Item toItem(ByteBuffer buffer, int header, int name, int nameLength, int extraLength) throws ZipException {
+        int flags = unsignedShort(buffer, header + 8);
+        int method = unsignedShort(buffer, header + 10);
+        long compressedSize = unsignedInt(buffer, header + 20);
+        long size = unsignedInt(buffer, header + 24);
+        long localHeaderOffset = unsignedInt(buffer, header + 42);
+
+        // Zip64 values are only present for the fields that overflow, in this order
+        int extra = name + nameLength;
+        int extraEnd = extra + extraLength;
+        while (extra + 4 <= extraEnd) {
+            int tag = unsignedShort(buffer, extra);
+            int length = unsignedShort(buffer, extra + 2);
+            if (tag == ZIP64_EXTRA_TAG) {
+                int value = extra + 4;
+                if (size == 0xFFFFFFFFL) {
+                    size = buffer.getLong(value);
+                    value += 8;
+                }
+                if (compressedSize == 0xFFFFFFFFL) {
+                    compressedSize = buffer.getLong(value);
+                    value += 8;
+                }
+                if (localHeaderOffset == 0xFFFFFFFFL) {
+                    localHeaderOffset = buffer.getLong(value);
+                }
+                break;
+            }
+            extra += 4 + length;
+        }
+
+        String entryName = decode(buffer, name, nameLength);
+        if ((flags & 1) != 0) {
+            throw new ZipException("Encrypted entry '" + entryName + "' in '" + _file + "' is not supported.");
+        }
+        if (method != STORED && method != DEFLATED) {
+            throw new ZipException("Unsupported compression method " + method + " of '" + entryName + "' in '" + _file + "'.");
+        }
+        if (size > Integer.MAX_VALUE || compressedSize > Integer.MAX_VALUE || localHeaderOffset > Integer.MAX_VALUE) {
+            throw new ZipException("Entry '" + entryName + "' in '" + _file + "' is too large.");
+        }
+        return new Item(entryName, method, (int) compressedSize, (int) size, (int) localHeaderOffset);
+    }
+
+    /**
+     * @return the mapped file, to be {@link #release() released} after reading
+     * @throws IOException if the file is closed
+     */
+    private ByteBuffer acquire() throws IOException {
+        _readers.incrementAndGet();
+        ByteBuffer buffer = _buffer;
+        if (buffer == null) {
+            release();
+            throw new IOException("Zip file '" + _file + "' is closed.");
+        }
+        return buffer;
+    }
+
+    private void release() {
+        if (_readers.decrementAndGet() == 0 && _buffer == null) {
+            unmap();
+        }
+    }
+
+    /**
+     * Unmaps the file, so that it can be deleted or replaced. Reads in progress are finished first. If the running JVM
+     * does not allow to unmap explicitly the mapping stays until the buffer is garbage collected.
+     */
+    @Override
+    public void close() {
+        _buffer = null;
+        if (_readers.get() == 0) {
+            unmap();
+        }
+    }
+
+    private void unmap() {
+        if (_unmapped.compareAndSet(false, true)) {
+            Unmapper.unmap(_mapped);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return _file.getPath();
+    }
+
+    /**
+     * Unmaps mapped buffers through the cleaner of the JVM, there is no public API for it.
+     */
+    private static final class Unmapper {
+        private static final Object UNSAFE;
+
+        private static final Method INVOKE_CLEANER;
+
+        static {
+            Object unsafe = null;
+            Method invokeCleaner = null;
+            try {
+                // Java 9 and later
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                unsafe = field.get(null);
+            } catch (Exception | LinkageError e) {
+                invokeCleaner = null;
+            }
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = invokeCleaner;
+        }
+
+        static void unmap(ByteBuffer buffer) {
+            try {
+                if (INVOKE_CLEANER != null) {
+                    INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                } else {
+                    // Java 7 and 8
+                    Method cleaner = buffer.getClass().getMethod("cleaner");
+                    cleaner.setAccessible(true);
+                    Object clean = cleaner.invoke(buffer);
+                    if (clean != null) {
+                        clean.getClass().getMethod("clean").invoke(clean);
+                    }
+                }
+            } catch (Exception | LinkageError e) {
+                logger.debug("Could not unmap buffer, it is unmapped when garbage collected: " + e);
+            }
+        }
+    }
+
+    private int findEnd(ByteBuffer buffer) throws ZipException {
+        // The end record is followed by a comment of at most 64k
+        int lowest = Math.max(buffer.limit() - END_LENGTH - 0xFFFF, 0);
+        for (int position = buffer.limit() - END_LENGTH; position >= lowest; position--) {
+            if (buffer.getInt(position) == END_SIGNATURE && position + END_LENGTH + unsignedShort(buffer, position + 20) == buffer.limit()) {
+                return position;
+            }
+        }
+        throw new ZipException("No zip file: '" + _file + "'.");
+    }
+
+    private static int findZip64End(ByteBuffer buffer, int end) {
+        int locator = end - ZIP64_LOCATOR_LENGTH;
+        if (locator < 0 || buffer.getInt(locator) != ZIP64_LOCATOR_SIGNATURE) {
+            return -1;
+        }
+        long zip64End = buffer.getLong(locator + 8);
+        if (zip64End < 0 || zip64End + 56 > locator || buffer.getInt((int) zip64End) != ZIP64_END_SIGNATURE) {
+            return -1;
+        }
+        return (int) zip64End;
+    }
+
+    private static boolean isDirectory(ByteBuffer buffer, int name, int nameLength) {
+        return nameLength > 0 && buffer.get(name + nameLength - 1) == '/';
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int position, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(position + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(ByteBuffer buffer, int position, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(position + i);
+        }
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    private static int unsignedShort(ByteBuffer buffer, int position) {
+        return buffer.getShort(position) & 0xFFFF;
+    }
+
+    private static long unsignedInt(ByteBuffer buffer, int position) {
+        return buffer.getInt(position) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * A file entry of the central directory.
+     */
+    static final class Item {
+        final String name;
+
+        final int method;
+
+        final int compressedSize;
+
+        final int size;
+
+        final int localHeaderOffset;
+
+        Item(String name, int method, int compressedSize, int size, int localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+    }
+}
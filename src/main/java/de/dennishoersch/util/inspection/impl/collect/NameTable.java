@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Canonical instances of the class names and descriptors of one scan. Each parsed class file brings its own copies of
+ * the names it refers to, i.e. of <code>java.lang.Object</code> or of a common interface. Everything a scan keeps, the
+ * headers of the resolved classes and the results of the inspectors, takes its names from the table instead, so equal
+ * names are kept once. Unlike {@link String#intern()} the table is dropped with the scan.
+ * <p>
+ * Thread safe.
+ *
+ * @author hoersch
+ */
+public final class NameTable {
+    private final ConcurrentMap<String, String> _names = Maps.newConcurrentMap();
+
+    /**
+     * @param name a class name or descriptor
+     * @return the canonical instance equal to the name, <code>null</code> for <code>null</code>
+     */
+    public String intern(String name) {
+        if (name == null) {
+            return null;
+        }
+        String canonical = _names.putIfAbsent(name, name);
+        return canonical == null ? name : canonical;
+    }
+
+    /**
+     * @param name a class name or descriptor
+     * @return the canonical instance equal to the name, <code>null</code> if the table has none. Does not add the
+     *         name.
+     */
+    String get(String name) {
+        return name == null ? null : _names.get(name);
+    }
+
+    /**
+     * @param names class names, replaced by their canonical instances
+     * @return the names
+     */
+    public String[] intern(String[] names) {
+        for (int i = 0; i < names.length; i++) {
+            names[i] = intern(names[i]);
+        }
+        return names;
+    }
+
+    /**
+     * @return the number of distinct names
+     */
+    public int size() {
+        return _names.size();
+    }
+}
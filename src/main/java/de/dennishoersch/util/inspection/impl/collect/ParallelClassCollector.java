@@ -0,0 +1,232 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import javassist.bytecode.ClassFile;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import de.dennishoersch.util.inspection.CancellationToken;
+import de.dennishoersch.util.inspection.ClassSource;
+import de.dennishoersch.util.inspection.ClassSources;
+import de.dennishoersch.util.inspection.InspectionCollector;
+import de.dennishoersch.util.inspection.ScanResult;
+
+/**
+ * Scans like {@link ClassCollector#scanAsync(Executor, ListeningExecutorService)} but parses and inspects the classes
+ * in parallel. The read classes are split into one consecutive share per worker, each worker inspects its share into
+ * its own accumulator with its own helper and the accumulators are combined in the order of the shares.
+ *
+ * @author hoersch
+ * @param <A> type of the accumulator
+ * @param <T> type of the collected elements
+ */
+public class ParallelClassCollector<A, T> extends AbstractClassCollector<T> {
+    static final Logger logger = Logger.getLogger(ParallelClassCollector.class);
+
+    private int _parallelism = Runtime.getRuntime().availableProcessors();
+
+    private final InspectionCollector<A, T> _collector;
+
+    /**
+     * @param collector the collector that will be used to inspect classes
+     * @param packageName the name of the package from which to start scanning for classes, <code>null</code> to scan
+     *            the whole classpath
+     */
+    public ParallelClassCollector(InspectionCollector<A, T> collector, String packageName) {
+        super(collector, packageName);
+        _collector = collector;
+    }
+
+    /**
+     * Creates a collector that scans an exploded web application like {@link ClassCollector#webapp(
+     * de.dennishoersch.util.inspection.ClassInspector, File)}.
+     *
+     * @param collector the collector that will be used to inspect classes
+     * @param webappDirectory the directory containing <code>WEB-INF</code>
+     * @return the collector
+     */
+    public static <A, T> ParallelClassCollector<A, T> webapp(InspectionCollector<A, T> collector, File webappDirectory) {
+        ParallelClassCollector<A, T> parallel = new ParallelClassCollector<A, T>(collector, null);
+        parallel.setRoots(ClasspathRoots.webapp(webappDirectory));
+        return parallel;
+    }
+
+    /**
+     * Creates a collector that scans the given sources only, not the roots of the class loader. Classes are still
+     * loaded by the class loader of the collector.
+     *
+     * @param collector the collector that will be used to inspect classes
+     * @param sources
+     * @return the collector
+     * @see ClassSources
+     */
+    public static <A, T> ParallelClassCollector<A, T> of(InspectionCollector<A, T> collector, ClassSource... sources) {
+        ParallelClassCollector<A, T> parallel = new ParallelClassCollector<A, T>(collector, null);
+        parallel.setRoots(Collections.<File> emptyList());
+        for (ClassSource source : sources) {
+            parallel.addSource(source);
+        }
+        return parallel;
+    }
+
+    /**
+     * Same as {@link #scanAsync(Executor, ListeningExecutorService)} on the default executors, but blocks until the
+     * scan is done.
+     *
+     * @return the collected elements and whether the scan completed
+     */
+    public ScanResult<T> scan() {
+        try {
+            return scanAsync(ScanExecutors.io(), ScanExecutors.parse()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            getCancellationToken().cancel();
+            throw new IllegalStateException("Interrupted while scanning.", e);
+        } catch (ExecutionException e) {
+            throw new UncheckedExecutionException(e.getCause());
+        }
+    }
+
+    /**
+     * Scans without blocking the calling thread. The class files are read on the given I/O executor, then parsed and
+     * inspected by as many tasks as set by {@link #setParallelism(int)} on the given parse executor.
+     * <p>
+     * Cancelling the returned future cancels the {@link CancellationToken} of this collector.
+     *
+     * @param ioExecutor executor to list directories and jars and read the class files
+     * @param parseExecutor executor to parse and inspect the class files
+     * @return the future result, done when all classes were inspected or the scan was stopped
+     */
+    public ListenableFuture<ScanResult<T>> scanAsync(Executor ioExecutor, final ListeningExecutorService parseExecutor) {
+        final CancellationToken token = getCancellationToken();
+        final int parallelism = _parallelism;
+
+        return readAsync(ioExecutor, parseExecutor, new AsyncScan<List<Share>, T>() {
+            private final List<String> _classNames = Lists.newArrayList();
+
+            private final List<byte[]> _contents = Lists.newArrayList();
+
+            @Override
+            public void read(String className, byte[] content) {
+                _classNames.add(className);
+                _contents.add(content);
+            }
+
+            @Override
+            public ListenableFuture<List<Share>> parse(ClassLoader classloader, Map<String, Entry> entries) {
+                int shareSize = Math.max(1, (_classNames.size() + parallelism - 1) / parallelism);
+                List<ListenableFuture<Share>> shares = Lists.newArrayListWithCapacity(parallelism);
+                for (int from = 0; from < _classNames.size(); from += shareSize) {
+                    int to = Math.min(_classNames.size(), from + shareSize);
+                    shares.add(parseExecutor.submit(new Share(new InspectionHelperImpl(classloader, entries), _classNames.subList(from, to), _contents.subList(from, to), token)));
+                }
+                return Futures.allAsList(shares);
+            }
+
+            @Override
+            public ScanResult<T> inspect(List<Share> shares, boolean readComplete, CancellationToken scanToken) {
+                boolean complete = readComplete;
+                int inspected = 0;
+                A accumulator = null;
+                for (Share share : shares) {
+                    complete &= share.complete;
+                    inspected += share.inspected;
+                    accumulator = accumulator == null ? share.accumulator : _collector.combine(accumulator, share.accumulator);
+                }
+                if (accumulator == null) {
+                    accumulator = _collector.newAccumulator();
+                }
+                return new ScanResult<T>(_collector.finish(accumulator), outcome(complete, scanToken), inspected);
+            }
+        });
+    }
+
+    /**
+     * Sets the number of workers, i.e. of accumulators. The default is the number of available processors.
+     *
+     * @param parallelism
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1 but was " + parallelism + ".");
+        }
+        _parallelism = parallelism;
+    }
+
+    /**
+     * The share of one worker: parses and inspects its classes into its own accumulator.
+     */
+    private final class Share implements Callable<Share> {
+        private final InspectionHelperImpl _helper;
+
+        private final List<String> _classNames;
+
+        private final List<byte[]> _contents;
+
+        private final CancellationToken _shareToken;
+
+        final A accumulator = _collector.newAccumulator();
+
+        int inspected;
+
+        boolean complete = true;
+
+        Share(InspectionHelperImpl helper, List<String> classNames, List<byte[]> contents, CancellationToken token) {
+            _helper = helper;
+            _classNames = classNames;
+            _contents = contents;
+            _shareToken = token;
+        }
+
+        @Override
+        public Share call() {
+            for (int i = 0; i < _classNames.size(); i++) {
+                if (_shareToken.isStopRequested()) {
+                    complete = false;
+                    break;
+                }
+                String className = _classNames.get(i);
+                byte[] content = _contents.get(i);
+                if (acceptsContent(className, content)) {
+                    try {
+                        ClassFile type = InspectionHelperImpl.toClassFile(content);
+                        logger.trace("Checking to see if class " + className + " matches criteria [" + _collector + "]");
+                        _collector.accumulate(accumulator, type, _helper);
+                        inspected++;
+                    } catch (Throwable t) {
+                        logger.warn("Could not examine class '" + className + "'" + " due to a " + t.getClass().getName() + " with message: " + t.getMessage());
+                    }
+                }
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Default executors of asynchronous scans. Reading directories and jars is
+ * done on an unbounded pool of daemon threads as those threads mostly wait
+ * for I/O, parsing and inspecting class files is done on a pool bounded by
+ * the number of available processors.
+ *
+ * @author hoersch
+ */
+final class ScanExecutors {
+
+    private ScanExecutors() {
+    }
+
+    static ExecutorService io() {
+        return IoPool.INSTANCE;
+    }
+
+    static ListeningExecutorService parse() {
+        return ParsePool.INSTANCE;
+    }
+
+    private static final class IoPool {
+        static final ListeningExecutorService INSTANCE = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("class-inspection-io-%d").build()));
+    }
+
+    private static final class ParsePool {
+        static final ListeningExecutorService INSTANCE = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("class-inspection-parse-%d").build()));
+    }
+}
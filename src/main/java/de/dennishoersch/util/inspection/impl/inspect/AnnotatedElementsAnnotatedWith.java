@@ -25,7 +25,6 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -200,41 +199,4 @@ public class AnnotatedElementsAnnotatedWith implements ClassInspector<ClassAnnot
         }
     }
 
-    private static class ClassAnnotationMetadataImpl implements ClassAnnotationMetadata {
-        private final Class<?> _clazz;
-
-        private final boolean _isClassAnnotated;
-
-        private final Collection<Field> _annotatedFields;
-
-        private final Collection<Method> _annotatedMethods;
-
-        ClassAnnotationMetadataImpl(Class<?> clazz, boolean isClassAnnotated, Collection<Field> annotatedFields, Collection<Method> annotatedMethods) {
-            _clazz = clazz;
-            _isClassAnnotated = isClassAnnotated;
-            _annotatedFields = Collections.unmodifiableCollection(annotatedFields);
-            _annotatedMethods = Collections.unmodifiableCollection(annotatedMethods);
-        }
-
-        @Override
-        public Class<?> getRelatedClass() {
-            return _clazz;
-        }
-
-        @Override
-        public boolean isRelateedClassAnnotated() {
-            return _isClassAnnotated;
-        }
-
-        @Override
-        public Collection<Field> getAnnotatedFields() {
-            return _annotatedFields;
-        }
-
-        @Override
-        public Collection<Method> getAnnotatedMethods() {
-            return _annotatedMethods;
-        }
-    }
-
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.inspect;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import de.dennishoersch.util.inspection.AnnotationIndex;
+import de.dennishoersch.util.inspection.ClassAnnotationMetadata;
+
+/**
+ * Immutable {@link AnnotationIndex}, the posting lists are kept sorted by class name.
+ *
+ * @author hoersch
+ */
+final class AnnotationIndexImpl implements AnnotationIndex {
+    private static final Logger logger = Logger.getLogger(AnnotationIndexImpl.class);
+
+    private static final Comparator<Posting> BY_CLASS_NAME = new Comparator<Posting>() {
+        @Override
+        public int compare(Posting o1, Posting o2) {
+            return o1.getClassName().compareTo(o2.getClassName());
+        }
+    };
+
+    private final ClassLoader _classloader;
+
+    private final ImmutableSortedMap<String, ImmutableList<Posting>> _postings;
+
+    AnnotationIndexImpl(ClassLoader classloader, Map<String, List<Posting>> postings) {
+        _classloader = classloader;
+        ImmutableSortedMap.Builder<String, ImmutableList<Posting>> sorted = ImmutableSortedMap.naturalOrder();
+        for (Map.Entry<String, List<Posting>> entry : postings.entrySet()) {
+            List<Posting> posting = Lists.newArrayList(entry.getValue());
+            // Stable, the members of a class stay in the order of the class file
+            Collections.sort(posting, BY_CLASS_NAME);
+            sorted.put(entry.getKey(), ImmutableList.copyOf(posting));
+        }
+        _postings = sorted.build();
+    }
+
+    @Override
+    public SortedSet<String> getAnnotations() {
+        return _postings.keySet();
+    }
+
+    @Override
+    public List<Posting> getPostings(String annotation) {
+        ImmutableList<Posting> postings = _postings.get(annotation);
+        return postings == null ? ImmutableList.<Posting> of() : postings;
+    }
+
+    @Override
+    public Collection<Class<?>> findAnnotatedClasses(Class<? extends Annotation> annotation) {
+        Set<Class<?>> classes = Sets.newLinkedHashSet();
+        for (Posting posting : getPostings(annotation.getName())) {
+            if (posting.getRetention() == RetentionPolicy.RUNTIME && isType(posting.getElementType())) {
+                Class<?> clazz = load(posting.getClassName());
+                if (clazz != null) {
+                    classes.add(clazz);
+                }
+            }
+        }
+        return classes;
+    }
+
+    @Override
+    public Collection<ClassAnnotationMetadata> findAnnotatedElements(Class<? extends Annotation> annotation) {
+        Map<String, List<Posting>> byClass = Maps.newLinkedHashMap();
+        for (Posting posting : getPostings(annotation.getName())) {
+            if (posting.getRetention() == RetentionPolicy.RUNTIME && posting.getElementType() != ElementType.CONSTRUCTOR) {
+                List<Posting> postings = byClass.get(posting.getClassName());
+                if (postings == null) {
+                    postings = Lists.newArrayList();
+                    byClass.put(posting.getClassName(), postings);
+                }
+                postings.add(posting);
+            }
+        }
+        List<ClassAnnotationMetadata> metadata = Lists.newArrayListWithCapacity(byClass.size());
+        for (Map.Entry<String, List<Posting>> entry : byClass.entrySet()) {
+            Class<?> clazz = load(entry.getKey());
+            if (clazz != null) {
+                metadata.add(toMetadata(clazz, entry.getValue()));
+            }
+        }
+        return metadata;
+    }
+
+    private static ClassAnnotationMetadata toMetadata(Class<?> clazz, List<Posting> postings) {
+        boolean isClassAnnotated = false;
+        Set<Field> fields = Sets.newLinkedHashSet();
+        Set<Method> methods = Sets.newLinkedHashSet();
+        for (Posting posting : postings) {
+            if (posting.getElementType() == ElementType.FIELD) {
+                try {
+                    fields.add(clazz.getDeclaredField(posting.getMemberName()));
+                } catch (NoSuchFieldException e) {
+                    logger.warn("Could not load field of class '" + clazz.getName() + "'.", e);
+                }
+            } else if (posting.getElementType() == ElementType.METHOD) {
+                for (Method method : clazz.getDeclaredMethods()) {
+                    if (method.getName().equals(posting.getMemberName()) && Descriptors.descriptorOf(method).equals(posting.getDescriptor())) {
+                        methods.add(method);
+                    }
+                }
+            } else {
+                isClassAnnotated = true;
+            }
+        }
+        return new ClassAnnotationMetadataImpl(clazz, isClassAnnotated, fields, methods);
+    }
+
+    private static boolean isType(ElementType elementType) {
+        return elementType == ElementType.TYPE || elementType == ElementType.ANNOTATION_TYPE;
+    }
+
+    private Class<?> load(String className) {
+        try {
+            return _classloader.loadClass(className);
+        } catch (ClassNotFoundException e) {
+            logger.warn("Could not load class '" + className + "'.", e);
+            return null;
+        }
+    }
+}
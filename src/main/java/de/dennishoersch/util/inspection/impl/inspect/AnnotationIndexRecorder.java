@@ -0,0 +1,122 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.inspect;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.FieldInfo;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.annotation.Annotation;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Bytes;
+
+import de.dennishoersch.util.inspection.AnnotationIndex;
+import de.dennishoersch.util.inspection.AnnotationIndex.Posting;
+import de.dennishoersch.util.inspection.ClassInspector;
+import de.dennishoersch.util.inspection.ClassPrefilter;
+import de.dennishoersch.util.inspection.InspectionHelper;
+
+/**
+ * An inspector that records every annotation of the classes and their fields, methods and constructors in an
+ * {@link AnnotationIndex}. No class is loaded. The only element is the index, built on each call of
+ * {@link #getElements()}.
+ *
+ * @author hoersch
+ */
+public class AnnotationIndexRecorder implements ClassInspector<AnnotationIndex>, ClassPrefilter {
+    /** Part of the names of the attributes of visible and invisible annotations. */
+    private static final byte[] ANNOTATIONS_ATTRIBUTE = "isibleAnnotations".getBytes(Charsets.UTF_8);
+
+    private final ClassLoader _classloader;
+
+    private final Map<String, List<Posting>> _postings = Maps.newHashMap();
+
+    /**
+     * @param classloader loads the hits of the queries
+     */
+    public AnnotationIndexRecorder(ClassLoader classloader) {
+        _classloader = classloader;
+    }
+
+    @Override
+    public boolean acceptsClassName(String className) {
+        return true;
+    }
+
+    /**
+     * A class file without annotations does not name their attributes.
+     */
+    @Override
+    public boolean acceptsClassContent(String className, byte[] content) {
+        return Bytes.indexOf(content, ANNOTATIONS_ATTRIBUTE) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void inspect(ClassFile type, InspectionHelper helper) {
+        String className = helper.intern(type.getName());
+        ElementType typeElement = ElementType.TYPE;
+        if ((type.getAccessFlags() & AccessFlag.ANNOTATION) != 0) {
+            typeElement = ElementType.ANNOTATION_TYPE;
+        } else if (className.equals("package-info") || className.endsWith(".package-info")) {
+            typeElement = ElementType.PACKAGE;
+        }
+        add(type.getAttributes(), className, typeElement, null, null, helper);
+        for (FieldInfo field : (List<FieldInfo>) type.getFields()) {
+            add(field.getAttributes(), className, ElementType.FIELD, field.getName(), field.getDescriptor(), helper);
+        }
+        for (MethodInfo method : (List<MethodInfo>) type.getMethods()) {
+            if (!method.isStaticInitializer()) {
+                add(method.getAttributes(), className, method.isConstructor() ? ElementType.CONSTRUCTOR : ElementType.METHOD, method.getName(), method.getDescriptor(), helper);
+            }
+        }
+    }
+
+    private void add(List<?> attributes, String className, ElementType elementType, String memberName, String descriptor, InspectionHelper helper) {
+        for (Object attribute : attributes) {
+            if (!(attribute instanceof AnnotationsAttribute)) {
+                continue;
+            }
+            AnnotationsAttribute annotations = (AnnotationsAttribute) attribute;
+            RetentionPolicy retention = annotations.getName().equals(AnnotationsAttribute.visibleTag) ? RetentionPolicy.RUNTIME : RetentionPolicy.CLASS;
+            for (Annotation annotation : annotations.getAnnotations()) {
+                String annotationName = helper.intern(annotation.getTypeName());
+                List<Posting> postings = _postings.get(annotationName);
+                if (postings == null) {
+                    postings = Lists.newArrayList();
+                    _postings.put(annotationName, postings);
+                }
+                postings.add(new Posting(className, elementType, helper.intern(memberName), helper.intern(descriptor), retention));
+            }
+        }
+    }
+
+    @Override
+    public Collection<AnnotationIndex> getElements() {
+        return Collections.<AnnotationIndex> singletonList(new AnnotationIndexImpl(_classloader, _postings));
+    }
+}
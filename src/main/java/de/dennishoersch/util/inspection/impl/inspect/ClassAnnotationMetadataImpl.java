@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.inspect;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+
+import de.dennishoersch.util.inspection.ClassAnnotationMetadata;
+
+/**
+ * Immutable {@link ClassAnnotationMetadata}.
+ *
+ * @author hoersch
+ */
+final class ClassAnnotationMetadataImpl implements ClassAnnotationMetadata {
+    private final Class<?> _clazz;
+
+    private final boolean _isClassAnnotated;
+
+    private final Collection<Field> _annotatedFields;
+
+    private final Collection<Method> _annotatedMethods;
+
+    ClassAnnotationMetadataImpl(Class<?> clazz, boolean isClassAnnotated, Collection<Field> annotatedFields, Collection<Method> annotatedMethods) {
+        _clazz = clazz;
+        _isClassAnnotated = isClassAnnotated;
+        _annotatedFields = Collections.unmodifiableCollection(annotatedFields);
+        _annotatedMethods = Collections.unmodifiableCollection(annotatedMethods);
+    }
+
+    @Override
+    public Class<?> getRelatedClass() {
+        return _clazz;
+    }
+
+    @Override
+    public boolean isRelateedClassAnnotated() {
+        return _isClassAnnotated;
+    }
+
+    @Override
+    public Collection<Field> getAnnotatedFields() {
+        return _annotatedFields;
+    }
+
+    @Override
+    public Collection<Method> getAnnotatedMethods() {
+        return _annotatedMethods;
+    }
+}
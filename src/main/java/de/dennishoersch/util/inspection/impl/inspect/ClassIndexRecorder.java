@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.inspect;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.annotation.Annotation;
+
+import com.google.common.collect.Lists;
+
+import de.dennishoersch.util.inspection.ClassIndex;
+import de.dennishoersch.util.inspection.ClassInspector;
+import de.dennishoersch.util.inspection.InspectionHelper;
+
+/**
+ * An inspector that adds each class with its super types and annotations to a {@link ClassIndex}. No class is loaded.
+ * The only element is the builder of the index.
+ *
+ * @author hoersch
+ */
+public class ClassIndexRecorder implements ClassInspector<ClassIndex.Builder> {
+    private final ClassIndex.Builder _builder = ClassIndex.builder();
+
+    @Override
+    public void inspect(ClassFile type, InspectionHelper helper) {
+        String superclass = helper.intern(type.getSuperclass());
+        if (Object.class.getName().equals(type.getName())) {
+            superclass = null;
+        }
+        List<String> annotations = Lists.newArrayList();
+        addAnnotations((AnnotationsAttribute) type.getAttribute(AnnotationsAttribute.visibleTag), annotations, helper);
+        addAnnotations((AnnotationsAttribute) type.getAttribute(AnnotationsAttribute.invisibleTag), annotations, helper);
+        String[] interfaces = type.getInterfaces();
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaces[i] = helper.intern(interfaces[i]);
+        }
+        _builder.addClass(helper.intern(type.getName()), type.getAccessFlags(), superclass, Arrays.asList(interfaces), annotations);
+    }
+
+    private static void addAnnotations(AnnotationsAttribute attribute, List<String> annotations, InspectionHelper helper) {
+        if (attribute != null) {
+            for (Annotation annotation : attribute.getAnnotations()) {
+                annotations.add(helper.intern(annotation.getTypeName()));
+            }
+        }
+    }
+
+    @Override
+    public Collection<ClassIndex.Builder> getElements() {
+        return Collections.singletonList(_builder);
+    }
+}
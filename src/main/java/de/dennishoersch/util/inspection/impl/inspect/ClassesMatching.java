@@ -17,12 +17,16 @@ package de.dennishoersch.util.inspection.impl.inspect;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import javassist.bytecode.ClassFile;
 
 import org.apache.log4j.Logger;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import de.dennishoersch.util.inspection.ClassInspector;
@@ -39,6 +43,12 @@ abstract class ClassesMatching<T> implements ClassInspector<Class<? extends T>>
 
 	private final Set<Class<? extends T>> _matches = Sets.newHashSet();
 
+	/**
+	 * Answers of the classes and super classes seen so far: does the class or
+	 * any of its super classes match?
+	 */
+	private final ConcurrentMap<String, Boolean> _hierarchyMatches = Maps.newConcurrentMap();
+
 	/**
 	 * @param clazz
 	 */
@@ -49,19 +59,10 @@ abstract class ClassesMatching<T> implements ClassInspector<Class<? extends T>>
 	public final void inspect(ClassFile type, InspectionHelper helper) {
 		logger.trace("Checking to see if class " + type.getName() + " matches criteria [" + toString() + "]");
 		try {
-			ClassInfo classInfo = helper.toClassInfo(type);
-			for (;;) {
-				if (isMatch(classInfo)) {
-					@SuppressWarnings("unchecked")
-					Class<T> loadedClass = (Class<T>)helper.loadClass(type);
-					_matches.add(loadedClass);
-					return;
-				}
-
-				if (classInfo.getSuperclass().equals(Object.class.getName())) {
-					return;
-				}
-				classInfo = helper.getClassInfo(classInfo.getSuperclass());
+			if (matches(helper.toClassInfo(type), helper)) {
+				@SuppressWarnings("unchecked")
+				Class<T> loadedClass = (Class<T>) helper.loadClass(type);
+				_matches.add(loadedClass);
 			}
 		} catch (ClassNotFoundException e) {
 			logger.warn("Could not load class '" + type.getName() + "'.", e);
@@ -70,6 +71,46 @@ abstract class ClassesMatching<T> implements ClassInspector<Class<? extends T>>
 		}
 	}
 
+	/**
+	 * Walks up the super classes until one matches, the answer of a super
+	 * class is already known or there is no more super class. The answer is
+	 * remembered for all classes walked, so every class of a hierarchy is
+	 * checked only once per scan.
+	 */
+	private boolean matches(ClassInfo classInfo, InspectionHelper helper) throws IOException {
+		List<String> walked = Lists.newArrayList();
+		boolean match = false;
+		for (;;) {
+			Boolean known = _hierarchyMatches.get(classInfo.getName());
+			if (known != null) {
+				match = known.booleanValue();
+				break;
+			}
+			walked.add(classInfo.getName());
+			if (isMatch(classInfo)) {
+				match = true;
+				break;
+			}
+
+			String superclass = classInfo.getSuperclass();
+			if (superclass == null || superclass.equals(Object.class.getName())) {
+				break;
+			}
+			try {
+				classInfo = helper.getClassInfo(superclass);
+			} catch (ClassNotFoundException e) {
+				logger.debug("Could not resolve super class '" + superclass + "' of '" + classInfo.getName() + "'.");
+				break;
+			}
+		}
+
+		Boolean answer = Boolean.valueOf(match);
+		for (String name : walked) {
+			_hierarchyMatches.put(name, answer);
+		}
+		return match;
+	}
+
 	protected abstract boolean isMatch(ClassInfo potentialMatch);
 
 	@Override
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.inspect;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+
+/**
+ * Reads the names of the types referenced by descriptors and generic signatures of class files, and writes
+ * descriptors of reflected types.
+ *
+ * @author hoersch
+ */
+final class Descriptors {
+
+    private Descriptors() {
+    }
+
+    /**
+     * Adds the fully qualified names of all classes referenced by a descriptor or a class, method or field signature.
+     * Primitive types and type variables are skipped, arrays count as their component type.
+     *
+     * @param signature descriptor or signature, i.e. <code>(Ljava/util/List&lt;TT;&gt;;I)V</code>
+     * @param target
+     */
+    static void addTypeNames(String signature, Collection<String> target) {
+        int position = 0;
+        if (signature.startsWith("<")) {
+            position = skipTypeParameterNames(signature, target);
+        }
+        while (position < signature.length()) {
+            char c = signature.charAt(position);
+            if (c == '(' || c == ')' || c == '^' || c == 'V') {
+                position++;
+            } else {
+                position = readType(signature, position, target);
+            }
+        }
+    }
+
+    /**
+     * Reads <code>&lt;T:Ljava/lang/Object;U::Ljava/lang/Comparable&lt;TU;&gt;;&gt;</code>.
+     *
+     * @return the position after the type parameters
+     */
+    private static int skipTypeParameterNames(String signature, Collection<String> target) {
+        int position = 1;
+        while (signature.charAt(position) != '>') {
+            // Identifier of the type parameter, then class and interface bounds, each starting with ':'
+            position = signature.indexOf(':', position);
+            while (signature.charAt(position) == ':') {
+                position++;
+                if (signature.charAt(position) != ':' && signature.charAt(position) != '>') {
+                    position = readType(signature, position, target);
+                }
+            }
+        }
+        return position + 1;
+    }
+
+    /**
+     * @return the position after the type
+     */
+    private static int readType(String signature, int position, Collection<String> target) {
+        switch (signature.charAt(position)) {
+            case '[':
+                return readType(signature, position + 1, target);
+            case 'T':
+                return signature.indexOf(';', position) + 1;
+            case 'L':
+                return readClassType(signature, position + 1, target);
+            default:
+                // Primitive type
+                return position + 1;
+        }
+    }
+
+    /**
+     * Reads <code>java/util/Map$Entry&lt;TK;TV;&gt;;</code> or <code>a/Outer&lt;TT;&gt;.Inner;</code>
+     *
+     * @return the position after the closing ';'
+     */
+    private static int readClassType(String signature, int position, Collection<String> target) {
+        StringBuilder name = new StringBuilder();
+        int start = position;
+        while (true) {
+            char c = signature.charAt(position);
+            if (c == ';') {
+                name.append(signature, start, position);
+                target.add(name.toString().replace('/', '.'));
+                return position + 1;
+            } else if (c == '<') {
+                name.append(signature, start, position);
+                position = readTypeArguments(signature, position + 1, target);
+                start = position;
+            } else if (c == '.') {
+                // Inner class of a parameterized outer class, both are referenced
+                name.append(signature, start, position);
+                target.add(name.toString().replace('/', '.'));
+                name.append('$');
+                start = ++position;
+            } else {
+                position++;
+            }
+        }
+    }
+
+    /**
+     * @return the position after the closing '&gt;'
+     */
+    private static int readTypeArguments(String signature, int position, Collection<String> target) {
+        while (signature.charAt(position) != '>') {
+            char c = signature.charAt(position);
+            if (c == '*' || c == '+' || c == '-') {
+                position++;
+            } else {
+                position = readType(signature, position, target);
+            }
+        }
+        return position + 1;
+    }
+
+    /**
+     * @param method
+     * @return the descriptor of the method as used in class files
+     */
+    static String descriptorOf(Method method) {
+        StringBuilder descriptor = new StringBuilder("(");
+        for (Class<?> parameter : method.getParameterTypes()) {
+            descriptor.append(descriptorOf(parameter));
+        }
+        return descriptor.append(')').append(descriptorOf(method.getReturnType())).toString();
+    }
+
+    /**
+     * @param type
+     * @return the descriptor of the type as used in class files, i.e. <code>Ljava/lang/String;</code> or
+     *         <code>I</code>
+     */
+    static String descriptorOf(Class<?> type) {
+        if (type.isArray()) {
+            return type.getName().replace('.', '/');
+        }
+        if (!type.isPrimitive()) {
+            return "L" + type.getName().replace('.', '/') + ";";
+        }
+        if (type == void.class) {
+            return "V";
+        } else if (type == boolean.class) {
+            return "Z";
+        } else if (type == byte.class) {
+            return "B";
+        } else if (type == char.class) {
+            return "C";
+        } else if (type == short.class) {
+            return "S";
+        } else if (type == int.class) {
+            return "I";
+        } else if (type == long.class) {
+            return "J";
+        } else if (type == float.class) {
+            return "F";
+        }
+        return "D";
+    }
+}
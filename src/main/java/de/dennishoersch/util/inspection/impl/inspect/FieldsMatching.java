@@ -0,0 +1,59 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.inspect;
+
+import java.lang.reflect.Field;
+
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.FieldInfo;
+
+import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.MemberSignature;
+
+/**
+ * An inspector that collects the declared fields matching a {@link MemberSignature}. Parameter types of the signature
+ * never match a field.
+ *
+ * @author hoersch
+ */
+public class FieldsMatching extends MembersMatching<Field> {
+
+    /**
+     * @param signature
+     */
+    public FieldsMatching(MemberSignature signature) {
+        super(signature);
+    }
+
+    @Override
+    public void inspect(ClassFile type, InspectionHelper helper) {
+        for (Object field : type.getFields()) {
+            FieldInfo fieldInfo = (FieldInfo) field;
+            if (matches(fieldInfo.getAccessFlags(), fieldInfo.getName(), fieldInfo.getDescriptor())) {
+                addMatch(type, helper, fieldInfo.getName(), fieldInfo.getDescriptor());
+            }
+        }
+    }
+
+    @Override
+    Field resolve(Class<?> type, String name, String descriptor) {
+        try {
+            return type.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.inspect;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.BadBytecode;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.SignatureAttribute;
+import javassist.bytecode.SignatureAttribute.ClassSignature;
+import javassist.bytecode.SignatureAttribute.ClassType;
+import javassist.bytecode.SignatureAttribute.ObjectType;
+import javassist.bytecode.SignatureAttribute.TypeArgument;
+import javassist.bytecode.SignatureAttribute.TypeParameter;
+import javassist.bytecode.SignatureAttribute.TypeVariable;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import de.dennishoersch.util.inspection.ClassInspector;
+import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.InspectionHelper.ClassInfo;
+import de.dennishoersch.util.inspection.TypeArgumentIndex;
+
+/**
+ * An inspector that collects the concrete implementations of a generic type together with the type arguments they
+ * bind. The generic signatures of the class files are followed through the hierarchy, so type arguments bound by an
+ * intermediate generic super class are resolved as well:
+ *
+ * <pre>
+ * class AbstractHandler&lt;E&gt; implements Handler&lt;E&gt; {}
+ * class OrderHandler extends AbstractHandler&lt;OrderEvent&gt; {} // Handler&lt;OrderEvent&gt;
+ * </pre>
+ *
+ * Only the implementations are loaded. The only element is the {@link TypeArgumentIndex}, built on each call of
+ * {@link #getElements()}.
+ *
+ * @author hoersch
+ * @param <T> the generic type
+ */
+public class ImplementationsByTypeArgument<T> implements ClassInspector<TypeArgumentIndex<T>> {
+    private static final Logger logger = Logger.getLogger(ImplementationsByTypeArgument.class);
+
+    private final Class<T> _type;
+
+    private final int _parameters;
+
+    private final Map<Class<? extends T>, List<String>> _matches = Maps.newLinkedHashMap();
+
+    /**
+     * @param type a generic class or interface
+     */
+    public ImplementationsByTypeArgument(Class<T> type) {
+        if (type.getTypeParameters().length == 0) {
+            throw new IllegalArgumentException("'" + type.getName() + "' is not generic!");
+        }
+        _type = type;
+        _parameters = type.getTypeParameters().length;
+    }
+
+    @Override
+    public void inspect(ClassFile type, InspectionHelper helper) {
+        if ((type.getAccessFlags() & (AccessFlag.ABSTRACT | AccessFlag.INTERFACE)) != 0) {
+            return;
+        }
+        logger.trace("Checking to see if class " + type.getName() + " matches criteria [" + toString() + "]");
+        List<String> typeArguments = typeArgumentsOf(helper.toClassInfo(type), Collections.<String, String> emptyMap(), helper);
+        if (typeArguments != null) {
+            try {
+                _matches.put(helper.loadClass(type).asSubclass(_type), typeArguments);
+            } catch (ClassNotFoundException e) {
+                logger.warn("Could not load class '" + type.getName() + "'.", e);
+            }
+        }
+    }
+
+    /**
+     * @param classInfo
+     * @param bindings the type arguments of the type parameters of the class, by name of the parameter
+     * @param helper
+     * @return the type arguments the class binds to the generic type or <code>null</code> if it is no sub type
+     */
+    private List<String> typeArgumentsOf(ClassInfo classInfo, Map<String, String> bindings, InspectionHelper helper) {
+        for (ClassType supertype : supertypesOf(classInfo)) {
+            String name = nameOf(supertype);
+            List<String> typeArguments = resolve(supertype.getTypeArguments(), bindings);
+            if (name.equals(_type.getName())) {
+                return typeArguments == null ? Collections.<String> nCopies(_parameters, null) : typeArguments;
+            }
+            if (name.equals(Object.class.getName())) {
+                continue;
+            }
+            try {
+                ClassInfo supertypeInfo = helper.getClassInfo(name);
+                List<String> result = typeArgumentsOf(supertypeInfo, bind(supertypeInfo, typeArguments), helper);
+                if (result != null) {
+                    return result;
+                }
+            } catch (ClassNotFoundException | IOException e) {
+                logger.debug("Could not resolve super type '" + name + "'.");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the generic super class and interfaces or the raw ones if the class has no generic signature
+     */
+    private static List<ClassType> supertypesOf(ClassInfo classInfo) {
+        List<ClassType> supertypes = Lists.newArrayList();
+        ClassSignature signature = signatureOf(classInfo);
+        if (signature != null) {
+            supertypes.add(signature.getSuperClass());
+            supertypes.addAll(Arrays.asList(signature.getInterfaces()));
+        } else {
+            if (classInfo.getSuperclass() != null) {
+                supertypes.add(new ClassType(classInfo.getSuperclass()));
+            }
+            for (String iface : classInfo.getInterfaces()) {
+                supertypes.add(new ClassType(iface));
+            }
+        }
+        return supertypes;
+    }
+
+    private static ClassSignature signatureOf(ClassInfo classInfo) {
+        String signature = classInfo.getGenericSignature();
+        if (signature == null) {
+            return null;
+        }
+        try {
+            return SignatureAttribute.toClassSignature(signature);
+        } catch (BadBytecode e) {
+            logger.warn("Could not read generic signature of class '" + classInfo.getName() + "'.", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the type arguments of the super type by name of its type parameters
+     */
+    private static Map<String, String> bind(ClassInfo supertype, List<String> typeArguments) {
+        ClassSignature signature = signatureOf(supertype);
+        if (signature == null || typeArguments == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> bindings = Maps.newHashMap();
+        TypeParameter[] parameters = signature.getParameters();
+        for (int i = 0; i < parameters.length && i < typeArguments.size(); i++) {
+            bindings.put(parameters[i].getName(), typeArguments.get(i));
+        }
+        return bindings;
+    }
+
+    /**
+     * @return the names of the type arguments, <code>null</code> for unresolved ones, or <code>null</code> for a raw
+     *         type
+     */
+    private static List<String> resolve(TypeArgument[] typeArguments, Map<String, String> bindings) {
+        if (typeArguments == null) {
+            return null;
+        }
+        List<String> names = Lists.newArrayListWithCapacity(typeArguments.length);
+        for (TypeArgument typeArgument : typeArguments) {
+            ObjectType type = typeArgument.isWildcard() || typeArgument.getKind() != ' ' ? null : typeArgument.getType();
+            if (type instanceof ClassType) {
+                names.add(nameOf((ClassType) type));
+            } else if (type instanceof TypeVariable) {
+                names.add(bindings.get(((TypeVariable) type).getName()));
+            } else {
+                names.add(null);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return the binary name, javassist splits nested classes into declaring class and simple name
+     */
+    private static String nameOf(ClassType type) {
+        ClassType declaringClass = type.getDeclaringClass();
+        return declaringClass == null ? type.getName() : nameOf(declaringClass) + "$" + type.getName();
+    }
+
+    @Override
+    public Collection<TypeArgumentIndex<T>> getElements() {
+        return Collections.singletonList(new TypeArgumentIndex<T>(_matches));
+    }
+
+    @Override
+    public String toString() {
+        return "implementing " + _type.getName() + " by type argument";
+    }
+}
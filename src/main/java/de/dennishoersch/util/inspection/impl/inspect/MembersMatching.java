@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.inspect;
+
+import java.lang.reflect.Member;
+import java.util.Collection;
+import java.util.List;
+
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.ClassFile;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Bytes;
+
+import de.dennishoersch.util.inspection.ClassInspector;
+import de.dennishoersch.util.inspection.ClassPrefilter;
+import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.MemberSignature;
+
+/**
+ * Base of the inspectors that collect members matching a {@link MemberSignature}. Access flags, names and descriptors
+ * of the class file are matched, the class is loaded and the reflective member resolved only for a hit. Class files
+ * not containing the descriptor of the wanted type are rejected before they are parsed.
+ *
+ * @author hoersch
+ * @param <M> the kind of member
+ */
+abstract class MembersMatching<M extends Member> implements ClassInspector<M>, ClassPrefilter {
+    private static final Logger logger = Logger.getLogger(MembersMatching.class);
+
+    private final MemberSignature _signature;
+
+    private final String _typeDescriptor;
+
+    private final byte[] _typeDescriptorBytes;
+
+    private final String _parametersDescriptor;
+
+    private final List<M> _matches = Lists.newArrayList();
+
+    MembersMatching(MemberSignature signature) {
+        _signature = signature;
+        _typeDescriptor = signature.getType() == null ? null : Descriptors.descriptorOf(signature.getType());
+        _typeDescriptorBytes = _typeDescriptor == null ? null : _typeDescriptor.getBytes(Charsets.UTF_8);
+        if (signature.getParameterTypes() == null) {
+            _parametersDescriptor = null;
+        } else {
+            StringBuilder parameters = new StringBuilder("(");
+            for (Class<?> parameterType : signature.getParameterTypes()) {
+                parameters.append(Descriptors.descriptorOf(parameterType));
+            }
+            _parametersDescriptor = parameters.append(')').toString();
+        }
+    }
+
+    @Override
+    public boolean acceptsClassName(String className) {
+        return true;
+    }
+
+    @Override
+    public boolean acceptsClassContent(String className, byte[] content) {
+        // Primitive types are single characters, they would be found everywhere
+        return _typeDescriptorBytes == null || _typeDescriptorBytes.length == 1 || Bytes.indexOf(content, _typeDescriptorBytes) >= 0;
+    }
+
+    /**
+     * @param accessFlags
+     * @param name
+     * @param descriptor descriptor of a method or field
+     * @return does the member match the signature? Synthetic members never match.
+     */
+    boolean matches(int accessFlags, String name, String descriptor) {
+        if ((accessFlags & AccessFlag.SYNTHETIC) != 0) {
+            return false;
+        }
+        if ((accessFlags & _signature.getModifiers()) != _signature.getModifiers()) {
+            return false;
+        }
+        if (_signature.getName() != null && !_signature.getName().matcher(name).matches()) {
+            return false;
+        }
+        boolean method = descriptor.startsWith("(");
+        if (_typeDescriptor != null && !_typeDescriptor.equals(method ? descriptor.substring(descriptor.indexOf(')') + 1) : descriptor)) {
+            return false;
+        }
+        return _parametersDescriptor == null || (method && descriptor.startsWith(_parametersDescriptor));
+    }
+
+    /**
+     * Adds the reflective member of a hit.
+     */
+    void addMatch(ClassFile type, InspectionHelper helper, String name, String descriptor) {
+        try {
+            M member = resolve(helper.loadClass(type), name, descriptor);
+            if (member != null) {
+                _matches.add(member);
+            } else {
+                logger.warn("Could not resolve '" + name + descriptor + "' of class '" + type.getName() + "'.");
+            }
+        } catch (ClassNotFoundException | LinkageError e) {
+            logger.warn("Could not load class '" + type.getName() + "'.", e);
+        }
+    }
+
+    /**
+     * @param type the loaded class
+     * @param name
+     * @param descriptor
+     * @return the declared member or <code>null</code> if not found
+     */
+    abstract M resolve(Class<?> type, String name, String descriptor);
+
+    @Override
+    public Collection<M> getElements() {
+        return _matches;
+    }
+
+    @Override
+    public String toString() {
+        return _signature.toString();
+    }
+}
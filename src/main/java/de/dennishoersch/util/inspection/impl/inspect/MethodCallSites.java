@@ -0,0 +1,172 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.inspect;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import javassist.bytecode.BadBytecode;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.CodeAttribute;
+import javassist.bytecode.CodeIterator;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.Opcode;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Bytes;
+
+import de.dennishoersch.util.inspection.ClassInspector;
+import de.dennishoersch.util.inspection.ClassPrefilter;
+import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.MethodCallSite;
+
+/**
+ * An inspector that collects the call sites of a method. Classes whose raw bytes do not contain the names of the
+ * method and its class are rejected before they are parsed, classes without a matching method reference in the
+ * constant pool are rejected before any byte code is decoded. Nothing is loaded.
+ * <p>
+ * A call is matched by the class named in the method reference, i.e. the static type of the receiver. Calls through a
+ * reference of a sub type are not matched.
+ *
+ * @author hoersch
+ */
+public class MethodCallSites implements ClassInspector<MethodCallSite>, ClassPrefilter {
+    private static final Logger logger = Logger.getLogger(MethodCallSites.class);
+
+    private final String _className;
+
+    private final String _methodName;
+
+    private final String _descriptor;
+
+    private final byte[] _internalClassName;
+
+    private final byte[] _methodNameBytes;
+
+    private final List<MethodCallSite> _matches = Lists.newArrayList();
+
+    /**
+     * @param method the called method
+     */
+    public MethodCallSites(Method method) {
+        this(method.getDeclaringClass().getName(), method.getName(), Descriptors.descriptorOf(method));
+    }
+
+    /**
+     * @param className fully qualified name of the class named in the call
+     * @param methodName name of the called method
+     * @param descriptor descriptor of the called method, i.e. <code>(Ljava/lang/String;)V</code>, or
+     *            <code>null</code> to match all overloads
+     */
+    public MethodCallSites(String className, String methodName, String descriptor) {
+        _className = className;
+        _methodName = methodName;
+        _descriptor = descriptor;
+        _internalClassName = className.replace('.', '/').getBytes(Charsets.UTF_8);
+        _methodNameBytes = methodName.getBytes(Charsets.UTF_8);
+    }
+
+    @Override
+    public boolean acceptsClassName(String className) {
+        return true;
+    }
+
+    @Override
+    public boolean acceptsClassContent(String className, byte[] content) {
+        return Bytes.indexOf(content, _methodNameBytes) >= 0 && Bytes.indexOf(content, _internalClassName) >= 0;
+    }
+
+    @Override
+    public void inspect(ClassFile type, InspectionHelper helper) {
+        logger.trace("Checking to see if class " + type.getName() + " matches criteria [" + toString() + "]");
+        Set<Integer> references = findReferences(type.getConstPool());
+        if (references.isEmpty()) {
+            return;
+        }
+        for (Object method : type.getMethods()) {
+            try {
+                collectCallSites(type, (MethodInfo) method, references, helper);
+            } catch (BadBytecode e) {
+                logger.warn("Could not read byte code of '" + type.getName() + "." + ((MethodInfo) method).getName() + "'.", e);
+            }
+        }
+    }
+
+    /**
+     * @return the constant pool indexes of the method references to the called method
+     */
+    private Set<Integer> findReferences(ConstPool constPool) {
+        Set<Integer> references = Sets.newHashSet();
+        for (int i = 1; i < constPool.getSize(); i++) {
+            int tag = constPool.getTag(i);
+            if (tag == ConstPool.CONST_Methodref) {
+                if (matches(constPool.getMethodrefClassName(i), constPool.getMethodrefName(i), constPool.getMethodrefType(i))) {
+                    references.add(Integer.valueOf(i));
+                }
+            } else if (tag == ConstPool.CONST_InterfaceMethodref) {
+                if (matches(constPool.getInterfaceMethodrefClassName(i), constPool.getInterfaceMethodrefName(i), constPool.getInterfaceMethodrefType(i))) {
+                    references.add(Integer.valueOf(i));
+                }
+            }
+        }
+        return references;
+    }
+
+    private boolean matches(String className, String methodName, String descriptor) {
+        return _methodName.equals(methodName) && _className.equals(className) && (_descriptor == null || _descriptor.equals(descriptor));
+    }
+
+    private void collectCallSites(ClassFile type, MethodInfo method, Set<Integer> references, InspectionHelper helper) throws BadBytecode {
+        CodeAttribute code = method.getCodeAttribute();
+        if (code == null) {
+            return;
+        }
+        CodeIterator iterator = code.iterator();
+        while (iterator.hasNext()) {
+            int offset = iterator.next();
+            switch (iterator.byteAt(offset)) {
+                case Opcode.INVOKEVIRTUAL:
+                case Opcode.INVOKESPECIAL:
+                case Opcode.INVOKESTATIC:
+                case Opcode.INVOKEINTERFACE:
+                    if (references.contains(Integer.valueOf(iterator.u16bitAt(offset + 1)))) {
+                        _matches.add(new MethodCallSite(helper.intern(type.getName()), helper.intern(method.getName()), helper.intern(method.getDescriptor()), offset,
+                                method.getLineNumber(offset)));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public Collection<MethodCallSite> getElements() {
+        return _matches;
+    }
+
+    @Override
+    public String toString() {
+        return "calling " + _className + "." + _methodName + (_descriptor == null ? "" : _descriptor);
+    }
+}
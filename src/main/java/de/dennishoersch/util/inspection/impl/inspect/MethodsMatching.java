@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.inspect;
+
+import java.lang.reflect.Method;
+
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.MethodInfo;
+
+import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.MemberSignature;
+
+/**
+ * An inspector that collects the declared methods matching a {@link MemberSignature}. Constructors and static
+ * initializers are no methods.
+ *
+ * @author hoersch
+ */
+public class MethodsMatching extends MembersMatching<Method> {
+
+    /**
+     * @param signature
+     */
+    public MethodsMatching(MemberSignature signature) {
+        super(signature);
+    }
+
+    @Override
+    public void inspect(ClassFile type, InspectionHelper helper) {
+        for (Object method : type.getMethods()) {
+            MethodInfo methodInfo = (MethodInfo) method;
+            if (!methodInfo.isMethod()) {
+                continue;
+            }
+            if (matches(methodInfo.getAccessFlags(), methodInfo.getName(), methodInfo.getDescriptor())) {
+                addMatch(type, helper, methodInfo.getName(), methodInfo.getDescriptor());
+            }
+        }
+    }
+
+    @Override
+    Method resolve(Class<?> type, String name, String descriptor) {
+        for (Method method : type.getDeclaredMethods()) {
+            if (method.getName().equals(name) && Descriptors.descriptorOf(method).equals(descriptor)) {
+                return method;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.inspect;
+
+import java.lang.reflect.Member;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import javassist.bytecode.ClassFile;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import de.dennishoersch.util.inspection.AnnotationIndex;
+import de.dennishoersch.util.inspection.ClassAnnotationMetadata;
+import de.dennishoersch.util.inspection.ClassIndex;
+import de.dennishoersch.util.inspection.ClassInspector;
+import de.dennishoersch.util.inspection.ClassPrefilter;
+import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.MethodCallSite;
+import de.dennishoersch.util.inspection.ScanSnapshot;
+import de.dennishoersch.util.inspection.TypeArgumentIndex;
+import de.dennishoersch.util.inspection.TypeDependencyGraph;
+
+/**
+ * An inspector that records a {@link ScanSnapshot} while it lets several named inspectors inspect the classes in one
+ * pass. The content of each class file is hashed when it is read. A class counts as matched by a query if the final
+ * elements of its inspector refer to it, i.e. are the class, its annotation metadata, one of its members or call
+ * sites, or list it as do the single element results (type dependency graph, type argument index, class and annotation
+ * index). Elements of other types match no class.
+ * <p>
+ * As every class file has to be hashed, prefilters of the queries are not asked; their {@link ClassInspector#inspect}
+ * decides alone. The elements of the queries are only asked after the scan, the only element is the snapshot, built on
+ * each call of {@link #getElements()}.
+ *
+ * @author hoersch
+ */
+public class SnapshotRecorder implements ClassInspector<ScanSnapshot>, ClassPrefilter {
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final Map<String, ClassInspector<?>> _queries;
+
+    private final ConcurrentMap<String, Long> _hashes = Maps.newConcurrentMap();
+
+    /**
+     * @param queries the inspectors by query name
+     */
+    public SnapshotRecorder(Map<String, ? extends ClassInspector<?>> queries) {
+        _queries = ImmutableMap.copyOf(queries);
+    }
+
+    @Override
+    public boolean acceptsClassName(String className) {
+        return true;
+    }
+
+    /**
+     * Hashes the content, may be called from several threads.
+     */
+    @Override
+    public boolean acceptsClassContent(String className, byte[] content) {
+        _hashes.put(className, Long.valueOf(HASH.hashBytes(content).asLong()));
+        return true;
+    }
+
+    @Override
+    public void inspect(ClassFile type, InspectionHelper helper) {
+        for (ClassInspector<?> query : _queries.values()) {
+            query.inspect(type, helper);
+        }
+    }
+
+    @Override
+    public Collection<ScanSnapshot> getElements() {
+        Map<String, Set<String>> matches = Maps.newTreeMap();
+        for (Map.Entry<String, ClassInspector<?>> query : _queries.entrySet()) {
+            Set<String> classNames = Sets.newTreeSet();
+            for (Object element : query.getValue().getElements()) {
+                addClassNames(element, classNames);
+            }
+            // Only the scanned classes, not i.e. their dependencies
+            classNames.retainAll(_hashes.keySet());
+            matches.put(query.getKey(), classNames);
+        }
+        return Collections.singletonList(new ScanSnapshot(_hashes, matches));
+    }
+
+    private static void addClassNames(Object element, Set<String> classNames) {
+        if (element instanceof Class) {
+            classNames.add(((Class<?>) element).getName());
+        } else if (element instanceof ClassAnnotationMetadata) {
+            classNames.add(((ClassAnnotationMetadata) element).getRelatedClass().getName());
+        } else if (element instanceof Member) {
+            classNames.add(((Member) element).getDeclaringClass().getName());
+        } else if (element instanceof MethodCallSite) {
+            classNames.add(((MethodCallSite) element).getCallingClass());
+        } else if (element instanceof TypeDependencyGraph) {
+            classNames.addAll(((TypeDependencyGraph) element).getClasses());
+        } else if (element instanceof TypeArgumentIndex) {
+            for (Class<?> implementation : ((TypeArgumentIndex<?>) element).getImplementations()) {
+                classNames.add(implementation.getName());
+            }
+        } else if (element instanceof ClassIndex) {
+            classNames.addAll(((ClassIndex) element).getClassNames());
+        } else if (element instanceof AnnotationIndex) {
+            AnnotationIndex index = (AnnotationIndex) element;
+            for (String annotation : index.getAnnotations()) {
+                for (AnnotationIndex.Posting posting : index.getPostings(annotation)) {
+                    classNames.add(posting.getClassName());
+                }
+            }
+        } else if (element instanceof ScanSnapshot) {
+            classNames.addAll(((ScanSnapshot) element).getClasses());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "snapshot of " + _queries.keySet();
+    }
+}
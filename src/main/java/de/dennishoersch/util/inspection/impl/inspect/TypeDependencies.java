@@ -0,0 +1,158 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.inspect;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.AttributeInfo;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.FieldInfo;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.SignatureAttribute;
+import javassist.bytecode.annotation.Annotation;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import de.dennishoersch.util.inspection.ClassInspector;
+import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.TypeDependencyGraph;
+
+/**
+ * An inspector that collects the types each class references: classes of the constant pool, types of descriptors and
+ * generic signatures and annotation types. Nothing is loaded. The only element is the {@link TypeDependencyGraph},
+ * built on each call of {@link #getElements()}.
+ *
+ * @author hoersch
+ */
+public class TypeDependencies implements ClassInspector<TypeDependencyGraph> {
+    private static final Logger logger = Logger.getLogger(TypeDependencies.class);
+
+    /** Tag of CONSTANT_MethodType, not defined by {@link ConstPool}. */
+    private static final int CONST_MethodType = 16;
+
+    private final Map<String, Integer> _ids = Maps.newHashMap();
+
+    private final List<String> _names = Lists.newArrayList();
+
+    private final List<int[]> _dependencies = Lists.newArrayList();
+
+    @Override
+    public void inspect(ClassFile type, InspectionHelper helper) {
+        logger.trace("Collecting dependencies of class " + type.getName());
+        Set<String> referenced = Sets.newHashSet();
+        addConstPoolTypes(type.getConstPool(), referenced);
+
+        addSignatureTypes(type.getAttribute(SignatureAttribute.tag), referenced);
+        addAnnotationTypes(type.getAttributes(), referenced);
+        for (Object field : type.getFields()) {
+            FieldInfo fieldInfo = (FieldInfo) field;
+            Descriptors.addTypeNames(fieldInfo.getDescriptor(), referenced);
+            addSignatureTypes(fieldInfo.getAttribute(SignatureAttribute.tag), referenced);
+            addAnnotationTypes(fieldInfo.getAttributes(), referenced);
+        }
+        for (Object method : type.getMethods()) {
+            MethodInfo methodInfo = (MethodInfo) method;
+            Descriptors.addTypeNames(methodInfo.getDescriptor(), referenced);
+            addSignatureTypes(methodInfo.getAttribute(SignatureAttribute.tag), referenced);
+            addAnnotationTypes(methodInfo.getAttributes(), referenced);
+        }
+        referenced.remove(type.getName());
+
+        int[] dependencies = new int[referenced.size()];
+        int i = 0;
+        for (String name : referenced) {
+            dependencies[i++] = idOf(name);
+        }
+        Arrays.sort(dependencies);
+
+        int id = idOf(type.getName());
+        while (_dependencies.size() <= id) {
+            _dependencies.add(null);
+        }
+        _dependencies.set(id, dependencies);
+    }
+
+    private static void addConstPoolTypes(ConstPool constPool, Set<String> target) {
+        for (int i = 1; i < constPool.getSize(); i++) {
+            switch (constPool.getTag(i)) {
+                case ConstPool.CONST_Class:
+                    String name = constPool.getClassInfo(i);
+                    if (name.startsWith("[")) {
+                        // Array classes are given as descriptor, but with dots
+                        Descriptors.addTypeNames(name.replace('.', '/'), target);
+                    } else {
+                        target.add(name);
+                    }
+                    break;
+                case ConstPool.CONST_NameAndType:
+                    Descriptors.addTypeNames(constPool.getUtf8Info(constPool.getNameAndTypeDescriptor(i)), target);
+                    break;
+                case CONST_MethodType:
+                    Descriptors.addTypeNames(constPool.getUtf8Info(constPool.getMethodTypeInfo(i)), target);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static void addSignatureTypes(AttributeInfo signature, Set<String> target) {
+        if (signature != null) {
+            Descriptors.addTypeNames(((SignatureAttribute) signature).getSignature(), target);
+        }
+    }
+
+    private static void addAnnotationTypes(List<?> attributes, Set<String> target) {
+        for (Object attribute : attributes) {
+            if (attribute instanceof AnnotationsAttribute) {
+                for (Annotation annotation : ((AnnotationsAttribute) attribute).getAnnotations()) {
+                    target.add(annotation.getTypeName());
+                }
+            }
+        }
+    }
+
+    private int idOf(String name) {
+        Integer id = _ids.get(name);
+        if (id == null) {
+            id = Integer.valueOf(_names.size());
+            _ids.put(name, id);
+            _names.add(name);
+        }
+        return id.intValue();
+    }
+
+    @Override
+    public Collection<TypeDependencyGraph> getElements() {
+        return Collections.singletonList(new TypeDependencyGraph(_names, _dependencies));
+    }
+
+    @Override
+    public String toString() {
+        return "type dependencies";
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.query;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.util.Objects;
+
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.annotation.AnnotationMemberValue;
+import javassist.bytecode.annotation.ArrayMemberValue;
+import javassist.bytecode.annotation.BooleanMemberValue;
+import javassist.bytecode.annotation.ByteMemberValue;
+import javassist.bytecode.annotation.CharMemberValue;
+import javassist.bytecode.annotation.ClassMemberValue;
+import javassist.bytecode.annotation.DoubleMemberValue;
+import javassist.bytecode.annotation.EnumMemberValue;
+import javassist.bytecode.annotation.FloatMemberValue;
+import javassist.bytecode.annotation.IntegerMemberValue;
+import javassist.bytecode.annotation.LongMemberValue;
+import javassist.bytecode.annotation.MemberValue;
+import javassist.bytecode.annotation.ShortMemberValue;
+import javassist.bytecode.annotation.StringMemberValue;
+
+import com.google.common.base.Charsets;
+import com.google.common.primitives.Bytes;
+
+/**
+ * Matches classes annotated with an annotation, optionally with a given attribute value. The raw bytes of a class that
+ * does not mention the annotation's descriptor are enough to reject it.
+ *
+ * @author hoersch
+ */
+final class AnnotationCondition extends ClassCondition {
+    private final Class<? extends Annotation> _annotation;
+
+    private final byte[] _descriptor;
+
+    private final String _attribute;
+
+    private final Object _value;
+
+    private final boolean _defaultMatches;
+
+    AnnotationCondition(Class<? extends Annotation> annotation, String attribute, Object value) {
+        _annotation = annotation;
+        _descriptor = ("L" + annotation.getName().replace('.', '/') + ";").getBytes(Charsets.UTF_8);
+        _attribute = attribute;
+        _value = value;
+        if (attribute != null) {
+            try {
+                _defaultMatches = Objects.deepEquals(annotation.getMethod(attribute).getDefaultValue(), value);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException("'" + annotation.getName() + "' has no attribute '" + attribute + "'!", e);
+            }
+        } else {
+            _defaultMatches = true;
+        }
+    }
+
+    @Override
+    public Cost getCost() {
+        return Cost.HEADER;
+    }
+
+    @Override
+    Boolean evaluate(Candidate candidate) {
+        if (candidate.type != null) {
+            return Boolean.valueOf(matches((AnnotationsAttribute) candidate.type.getAttribute(AnnotationsAttribute.visibleTag))
+                    || matches((AnnotationsAttribute) candidate.type.getAttribute(AnnotationsAttribute.invisibleTag)));
+        }
+        if (candidate.content != null && Bytes.indexOf(candidate.content, _descriptor) < 0) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    private boolean matches(AnnotationsAttribute annotations) {
+        if (annotations == null) {
+            return false;
+        }
+        javassist.bytecode.annotation.Annotation annotation = annotations.getAnnotation(_annotation.getName());
+        if (annotation == null) {
+            return false;
+        }
+        if (_attribute == null) {
+            return true;
+        }
+        MemberValue value = annotation.getMemberValue(_attribute);
+        return value == null ? _defaultMatches : matches(value, _value);
+    }
+
+    /**
+     * Compares the value of an annotation attribute read from the class file with an expected value given as it would
+     * be returned by the annotation at runtime.
+     */
+    static boolean matches(MemberValue value, Object expected) {
+        if (expected == null) {
+            return false;
+        } else if (value instanceof StringMemberValue) {
+            return expected.equals(((StringMemberValue) value).getValue());
+        } else if (value instanceof BooleanMemberValue) {
+            return expected.equals(((BooleanMemberValue) value).getValue());
+        } else if (value instanceof IntegerMemberValue) {
+            return expected.equals(((IntegerMemberValue) value).getValue());
+        } else if (value instanceof LongMemberValue) {
+            return expected.equals(((LongMemberValue) value).getValue());
+        } else if (value instanceof ShortMemberValue) {
+            return expected.equals(((ShortMemberValue) value).getValue());
+        } else if (value instanceof ByteMemberValue) {
+            return expected.equals(((ByteMemberValue) value).getValue());
+        } else if (value instanceof CharMemberValue) {
+            return expected.equals(((CharMemberValue) value).getValue());
+        } else if (value instanceof DoubleMemberValue) {
+            return expected.equals(((DoubleMemberValue) value).getValue());
+        } else if (value instanceof FloatMemberValue) {
+            return expected.equals(((FloatMemberValue) value).getValue());
+        } else if (value instanceof EnumMemberValue) {
+            EnumMemberValue enumValue = (EnumMemberValue) value;
+            return expected instanceof Enum<?> && ((Enum<?>) expected).getDeclaringClass().getName().equals(enumValue.getType())
+                    && ((Enum<?>) expected).name().equals(enumValue.getValue());
+        } else if (value instanceof ClassMemberValue) {
+            return expected instanceof Class<?> && ((Class<?>) expected).getName().equals(((ClassMemberValue) value).getValue());
+        } else if (value instanceof ArrayMemberValue) {
+            MemberValue[] values = ((ArrayMemberValue) value).getValue();
+            if (!expected.getClass().isArray() || Array.getLength(expected) != values.length) {
+                return false;
+            }
+            for (int i = 0; i < values.length; i++) {
+                if (!matches(values[i], Array.get(expected, i))) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (value instanceof AnnotationMemberValue) {
+            // Nested annotations are not compared
+            return false;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "annotated with @" + _annotation.getSimpleName() + (_attribute == null ? "" : "(" + _attribute + "=" + _value + ")");
+    }
+}
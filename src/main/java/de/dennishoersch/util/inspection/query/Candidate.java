@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.query;
+
+import java.util.concurrent.ConcurrentMap;
+
+import javassist.bytecode.ClassFile;
+
+import com.google.common.collect.Maps;
+
+import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.query.ClassCondition.Cost;
+
+/**
+ * A class while it is evaluated by a {@link ClassCondition}. Depending on the stage of the evaluation only the name,
+ * also the raw content or also the parsed class file are available and resolving the hierarchy or loading the class
+ * may be allowed.
+ *
+ * @author hoersch
+ */
+final class Candidate {
+    final String name;
+
+    final byte[] content;
+
+    final ClassFile type;
+
+    final InspectionHelper helper;
+
+    private final ConcurrentMap<ClassCondition, ConcurrentMap<String, Boolean>> _memos;
+
+    private Cost _stage;
+
+    private Class<?> _loaded;
+
+    private Candidate(String name, byte[] content, ClassFile type, InspectionHelper helper, Cost stage, ConcurrentMap<ClassCondition, ConcurrentMap<String, Boolean>> memos) {
+        this.name = name;
+        this.content = content;
+        this.type = type;
+        this.helper = helper;
+        _stage = stage;
+        _memos = memos;
+    }
+
+    static Candidate ofName(String name) {
+        return new Candidate(name, null, null, null, Cost.NAME, null);
+    }
+
+    static Candidate ofContent(String name, byte[] content) {
+        return new Candidate(name, content, null, null, Cost.RAW_BYTES, null);
+    }
+
+    static Candidate ofType(ClassFile type, InspectionHelper helper, ConcurrentMap<ClassCondition, ConcurrentMap<String, Boolean>> memos) {
+        return new Candidate(type.getName(), null, type, helper, Cost.HEADER, memos);
+    }
+
+    /**
+     * @param cost
+     * @return may a condition of the given cost be evaluated in the current stage?
+     */
+    boolean allows(Cost cost) {
+        return _stage.compareTo(cost) >= 0;
+    }
+
+    void advanceTo(Cost stage) {
+        _stage = stage;
+    }
+
+    /**
+     * @return the class, loaded on first call
+     * @throws ClassNotFoundException
+     */
+    Class<?> load() throws ClassNotFoundException {
+        if (_loaded == null) {
+            _loaded = helper.loadClass(type);
+        }
+        return _loaded;
+    }
+
+    /**
+     * @param condition
+     * @return the answers of the condition by class name, shared by all candidates of a scan
+     */
+    ConcurrentMap<String, Boolean> memo(ClassCondition condition) {
+        ConcurrentMap<String, Boolean> memo = _memos.get(condition);
+        if (memo == null) {
+            memo = Maps.newConcurrentMap();
+            ConcurrentMap<String, Boolean> existing = _memos.putIfAbsent(condition, memo);
+            if (existing != null) {
+                memo = existing;
+            }
+        }
+        return memo;
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.query;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * A condition on a class, combinable with {@link #and}, {@link #or} and {@link #not}. Each condition has a
+ * {@link Cost}: it is evaluated as soon as the information it needs is available, the cheapest conditions first, and a
+ * class is dropped as soon as the outcome is known. I.e. a class whose name does not match is never read, a class
+ * whose raw bytes do not mention an annotation is never parsed, and a class is only loaded if all cheaper conditions
+ * matched.
+ *
+ * @author hoersch
+ */
+public abstract class ClassCondition {
+
+    /**
+     * What a condition needs to be evaluated, from cheap to expensive.
+     */
+    public enum Cost {
+        /** The name of the class. */
+        NAME,
+        /** The unparsed class file. */
+        RAW_BYTES,
+        /** The parsed class file: access flags, annotations, ... */
+        HEADER,
+        /** The class files of the super classes and interfaces. */
+        HIERARCHY,
+        /** The loaded class. */
+        LOADING
+    }
+
+    ClassCondition() {
+    }
+
+    /**
+     * @return what the condition needs to be evaluated
+     */
+    public abstract Cost getCost();
+
+    /**
+     * @param candidate
+     * @return the outcome, <code>null</code> if the outcome can not be decided in the current stage of the candidate
+     */
+    abstract Boolean evaluate(Candidate candidate);
+
+    /**
+     * @param other
+     * @return a condition that matches if this and the other condition match
+     */
+    public ClassCondition and(ClassCondition other) {
+        return and(this, other);
+    }
+
+    /**
+     * @param other
+     * @return a condition that matches if this or the other condition matches
+     */
+    public ClassCondition or(ClassCondition other) {
+        return or(this, other);
+    }
+
+    /**
+     * @param conditions
+     * @return a condition that matches if all conditions match
+     */
+    public static ClassCondition and(ClassCondition... conditions) {
+        return new And(Arrays.asList(conditions));
+    }
+
+    /**
+     * @param conditions
+     * @return a condition that matches if any condition matches
+     */
+    public static ClassCondition or(ClassCondition... conditions) {
+        return new Or(Arrays.asList(conditions));
+    }
+
+    /**
+     * @param condition
+     * @return a condition that matches if the given condition does not match
+     */
+    public static ClassCondition not(ClassCondition condition) {
+        return new Not(condition);
+    }
+
+    /**
+     * @param glob glob on the fully qualified class name, '*' matches any characters
+     * @return the condition
+     */
+    public static ClassCondition nameMatches(String glob) {
+        return new NameCondition(Pattern.compile(NameCondition.globToRegex(glob)), glob);
+    }
+
+    /**
+     * @param pattern regular expression on the fully qualified class name
+     * @return the condition
+     */
+    public static ClassCondition nameMatches(Pattern pattern) {
+        return new NameCondition(pattern, pattern.pattern());
+    }
+
+    /**
+     * @param packageName
+     * @return condition that matches classes in the package or its sub packages
+     */
+    public static ClassCondition inPackage(String packageName) {
+        return new PackageCondition(packageName);
+    }
+
+    /**
+     * @param modifiers modifiers as defined by {@link Modifier}, i.e. <code>Modifier.PUBLIC | Modifier.FINAL</code>
+     * @return condition that matches classes having all the modifiers
+     */
+    public static ClassCondition hasModifiers(int modifiers) {
+        return new ModifierCondition(modifiers);
+    }
+
+    /**
+     * @return condition that matches public classes
+     */
+    public static ClassCondition isPublic() {
+        return hasModifiers(Modifier.PUBLIC);
+    }
+
+    /**
+     * @return condition that matches abstract classes and interfaces
+     */
+    public static ClassCondition isAbstract() {
+        return hasModifiers(Modifier.ABSTRACT);
+    }
+
+    /**
+     * @return condition that matches interfaces (including annotations)
+     */
+    public static ClassCondition isInterface() {
+        return hasModifiers(Modifier.INTERFACE);
+    }
+
+    /**
+     * @param annotation
+     * @return condition that matches classes annotated with the annotation
+     */
+    public static ClassCondition annotatedWith(Class<? extends Annotation> annotation) {
+        return new AnnotationCondition(annotation, null, null);
+    }
+
+    /**
+     * Matches classes annotated with the annotation whose attribute has the given value. Values are compared by type:
+     * strings, primitive wrappers, enum constants and classes. If the attribute is not set explicitly, the default
+     * value of the attribute is compared.
+     *
+     * @param annotation
+     * @param attribute name of the attribute, i.e. "value"
+     * @param value the expected value
+     * @return the condition
+     */
+    public static ClassCondition annotatedWith(Class<? extends Annotation> annotation, String attribute, Object value) {
+        return new AnnotationCondition(annotation, attribute, value);
+    }
+
+    /**
+     * @param type a class or interface
+     * @return condition that matches classes assignable to the type, i.e. extending or implementing it directly or
+     *         indirectly, and the type itself
+     */
+    public static ClassCondition subtypeOf(Class<?> type) {
+        return new SubtypeCondition(type.getName());
+    }
+
+    /**
+     * @param predicate predicate on the loaded class
+     * @return condition that loads the class and lets the predicate decide
+     */
+    public static ClassCondition loaded(Predicate<Class<?>> predicate) {
+        return new LoadedClassCondition(predicate);
+    }
+
+    private static final Comparator<ClassCondition> BY_COST = new Comparator<ClassCondition>() {
+        @Override
+        public int compare(ClassCondition o1, ClassCondition o2) {
+            return o1.getCost().compareTo(o2.getCost());
+        }
+    };
+
+    /**
+     * Base of {@link And} and {@link Or}, the conditions are evaluated cheapest first.
+     */
+    private abstract static class Junction extends ClassCondition {
+        final List<ClassCondition> conditions;
+
+        private final Cost _cost;
+
+        Junction(List<ClassCondition> conditions) {
+            List<ClassCondition> sorted = Lists.newArrayList(conditions);
+            Collections.sort(sorted, BY_COST);
+            this.conditions = ImmutableList.copyOf(sorted);
+            _cost = sorted.isEmpty() ? Cost.NAME : sorted.get(sorted.size() - 1).getCost();
+        }
+
+        @Override
+        public Cost getCost() {
+            return _cost;
+        }
+
+        /**
+         * Three valued evaluation: decided as soon as one condition yields the deciding value, undecided if a condition
+         * could not be decided yet.
+         */
+        Boolean evaluate(Candidate candidate, boolean decidingValue) {
+            boolean undecided = false;
+            for (ClassCondition condition : conditions) {
+                // Conditions that need more than the current stage offers answer fast, but may still decide, i.e. an
+                // annotation that is not mentioned in the raw bytes
+                Boolean outcome = condition.evaluate(candidate);
+                if (outcome == null) {
+                    undecided = true;
+                } else if (outcome.booleanValue() == decidingValue) {
+                    return Boolean.valueOf(decidingValue);
+                }
+            }
+            return undecided ? null : Boolean.valueOf(!decidingValue);
+        }
+    }
+
+    private static final class And extends Junction {
+        And(List<ClassCondition> conditions) {
+            super(conditions);
+        }
+
+        @Override
+        Boolean evaluate(Candidate candidate) {
+            return evaluate(candidate, false);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + Joiner.on(" and ").join(conditions) + ")";
+        }
+    }
+
+    private static final class Or extends Junction {
+        Or(List<ClassCondition> conditions) {
+            super(conditions);
+        }
+
+        @Override
+        Boolean evaluate(Candidate candidate) {
+            return evaluate(candidate, true);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + Joiner.on(" or ").join(conditions) + ")";
+        }
+    }
+
+    private static final class Not extends ClassCondition {
+        private final ClassCondition _condition;
+
+        Not(ClassCondition condition) {
+            _condition = condition;
+        }
+
+        @Override
+        public Cost getCost() {
+            return _condition.getCost();
+        }
+
+        @Override
+        Boolean evaluate(Candidate candidate) {
+            Boolean outcome = _condition.evaluate(candidate);
+            return outcome == null ? null : Boolean.valueOf(!outcome.booleanValue());
+        }
+
+        @Override
+        public String toString() {
+            return "not " + _condition;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.query;
+
+import java.util.Collection;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import de.dennishoersch.util.inspection.ClassInspectionUtil;
+import de.dennishoersch.util.inspection.ClassInspector;
+
+/**
+ * A query for classes matching a {@link ClassCondition}. All conditions are evaluated in a single pass over the
+ * classes, each class only as far as needed to decide it. A query is immutable and may be run repeatedly.
+ *
+ * <pre>
+ * ClassQuery.where(and(inPackage(&quot;com.example&quot;), annotatedWith(Entity.class), not(isAbstract()))).find(&quot;com.example&quot;);
+ * </pre>
+ *
+ * @author hoersch
+ */
+public final class ClassQuery {
+    private final ClassCondition _condition;
+
+    private ClassQuery(ClassCondition condition) {
+        _condition = condition;
+    }
+
+    /**
+     * @param condition
+     * @return a query for the classes matching the condition
+     */
+    public static ClassQuery where(ClassCondition condition) {
+        return new ClassQuery(condition);
+    }
+
+    /**
+     * @param condition
+     * @return a query for the classes matching this query's and the given condition
+     */
+    public ClassQuery and(ClassCondition condition) {
+        return new ClassQuery(_condition.and(condition));
+    }
+
+    /**
+     * @return a new inspector evaluating this query, to be used with any of the {@link ClassInspectionUtil} scans
+     */
+    public ClassInspector<Class<?>> inspector() {
+        return new QueryInspector(_condition);
+    }
+
+    /**
+     * @param packageName
+     * @return the classes in the package (and its sub packages) matching the query
+     */
+    public Collection<Class<?>> find(String packageName) {
+        return ClassInspectionUtil.findElements(inspector(), packageName);
+    }
+
+    /**
+     * @param packageName
+     * @return future of the classes in the package (and its sub packages) matching the query
+     */
+    public ListenableFuture<Collection<Class<?>>> findAsync(String packageName) {
+        return ClassInspectionUtil.findElementsAsync(inspector(), packageName);
+    }
+
+    /**
+     * @return the classes on the whole classpath matching the query
+     */
+    public Collection<Class<?>> findOnClasspath() {
+        return ClassInspectionUtil.findElementsOnClasspath(inspector());
+    }
+
+    @Override
+    public String toString() {
+        return "classes where " + _condition;
+    }
+}
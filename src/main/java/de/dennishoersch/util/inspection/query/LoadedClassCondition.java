@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.query;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Predicate;
+
+/**
+ * Loads the class and lets a predicate decide.
+ *
+ * @author hoersch
+ */
+final class LoadedClassCondition extends ClassCondition {
+    private static final Logger logger = Logger.getLogger(LoadedClassCondition.class);
+
+    private final Predicate<Class<?>> _predicate;
+
+    LoadedClassCondition(Predicate<Class<?>> predicate) {
+        _predicate = predicate;
+    }
+
+    @Override
+    public Cost getCost() {
+        return Cost.LOADING;
+    }
+
+    @Override
+    Boolean evaluate(Candidate candidate) {
+        if (!candidate.allows(Cost.LOADING)) {
+            return null;
+        }
+        try {
+            return Boolean.valueOf(_predicate.apply(candidate.load()));
+        } catch (ClassNotFoundException | LinkageError e) {
+            logger.warn("Could not load class '" + candidate.name + "'.", e);
+            return Boolean.FALSE;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "loaded class matches " + _predicate;
+    }
+}
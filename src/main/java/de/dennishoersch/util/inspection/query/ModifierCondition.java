@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.query;
+
+import java.lang.reflect.Modifier;
+
+/**
+ * Matches classes having all given modifiers. The modifiers of {@link Modifier} used for classes have the same values
+ * as the access flags of the class file.
+ *
+ * @author hoersch
+ */
+final class ModifierCondition extends ClassCondition {
+    private final int _modifiers;
+
+    ModifierCondition(int modifiers) {
+        _modifiers = modifiers;
+    }
+
+    @Override
+    public Cost getCost() {
+        return Cost.HEADER;
+    }
+
+    @Override
+    Boolean evaluate(Candidate candidate) {
+        if (candidate.type == null) {
+            return null;
+        }
+        return Boolean.valueOf((candidate.type.getAccessFlags() & _modifiers) == _modifiers);
+    }
+
+    @Override
+    public String toString() {
+        return "has modifiers '" + Modifier.toString(_modifiers) + "'";
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.query;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+
+/**
+ * Matches the fully qualified class name.
+ *
+ * @author hoersch
+ */
+final class NameCondition extends ClassCondition {
+    private final Pattern _pattern;
+
+    private final String _description;
+
+    NameCondition(Pattern pattern, String description) {
+        _pattern = pattern;
+        _description = description;
+    }
+
+    /**
+     * @return the regular expression of a glob, '*' matches any characters
+     */
+    static String globToRegex(String glob) {
+        List<String> quoted = Lists.newArrayList();
+        for (String part : Splitter.on('*').split(glob)) {
+            quoted.add(part.isEmpty() ? "" : Pattern.quote(part));
+        }
+        return Joiner.on(".*").join(quoted);
+    }
+
+    @Override
+    public Cost getCost() {
+        return Cost.NAME;
+    }
+
+    @Override
+    Boolean evaluate(Candidate candidate) {
+        return Boolean.valueOf(_pattern.matcher(candidate.name).matches());
+    }
+
+    @Override
+    public String toString() {
+        return "name matches '" + _description + "'";
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.query;
+
+/**
+ * Matches classes in a package or its sub packages.
+ *
+ * @author hoersch
+ */
+final class PackageCondition extends ClassCondition {
+    private final String _packageName;
+
+    private final String _prefix;
+
+    PackageCondition(String packageName) {
+        _packageName = packageName;
+        _prefix = packageName.isEmpty() ? "" : packageName + ".";
+    }
+
+    @Override
+    public Cost getCost() {
+        return Cost.NAME;
+    }
+
+    @Override
+    Boolean evaluate(Candidate candidate) {
+        return Boolean.valueOf(candidate.name.startsWith(_prefix));
+    }
+
+    @Override
+    public String toString() {
+        return "in package " + _packageName;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.query;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import javassist.bytecode.ClassFile;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import de.dennishoersch.util.inspection.ClassInspector;
+import de.dennishoersch.util.inspection.ClassPrefilter;
+import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.query.ClassCondition.Cost;
+
+/**
+ * Evaluates a condition stage by stage: the name and raw bytes before the class file is parsed, then the parsed class
+ * file, its hierarchy and at last the loaded class. A class is dropped at the first stage deciding against it.
+ *
+ * @author hoersch
+ */
+final class QueryInspector implements ClassInspector<Class<?>>, ClassPrefilter {
+    private static final Logger logger = Logger.getLogger(QueryInspector.class);
+
+    private final ClassCondition _condition;
+
+    private final ConcurrentMap<ClassCondition, ConcurrentMap<String, Boolean>> _memos = Maps.newConcurrentMap();
+
+    private final Set<Class<?>> _matches = Sets.newLinkedHashSet();
+
+    QueryInspector(ClassCondition condition) {
+        _condition = condition;
+    }
+
+    @Override
+    public boolean acceptsClassName(String className) {
+        return _condition.evaluate(Candidate.ofName(className)) != Boolean.FALSE;
+    }
+
+    @Override
+    public boolean acceptsClassContent(String className, byte[] content) {
+        return _condition.evaluate(Candidate.ofContent(className, content)) != Boolean.FALSE;
+    }
+
+    @Override
+    public void inspect(ClassFile type, InspectionHelper helper) {
+        Candidate candidate = Candidate.ofType(type, helper, _memos);
+        Boolean result = _condition.evaluate(candidate);
+        if (result == null) {
+            candidate.advanceTo(Cost.HIERARCHY);
+            result = _condition.evaluate(candidate);
+        }
+        if (result == null) {
+            candidate.advanceTo(Cost.LOADING);
+            result = _condition.evaluate(candidate);
+        }
+        if (result == Boolean.TRUE) {
+            try {
+                _matches.add(candidate.load());
+            } catch (ClassNotFoundException e) {
+                logger.warn("Could not load matching class '" + type.getName() + "'.", e);
+            }
+        }
+    }
+
+    @Override
+    public Collection<Class<?>> getElements() {
+        return _matches;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.query;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+
+import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.InspectionHelper.ClassInfo;
+
+/**
+ * Matches classes assignable to a type. A class naming the type as super class or interface matches on its header,
+ * otherwise the hierarchy is resolved. The answers of resolved super types are remembered for the scan.
+ *
+ * @author hoersch
+ */
+final class SubtypeCondition extends ClassCondition {
+    private static final Logger logger = Logger.getLogger(SubtypeCondition.class);
+
+    private final String _typeName;
+
+    SubtypeCondition(String typeName) {
+        _typeName = typeName;
+    }
+
+    @Override
+    public Cost getCost() {
+        return Cost.HIERARCHY;
+    }
+
+    @Override
+    Boolean evaluate(Candidate candidate) {
+        if (_typeName.equals(Object.class.getName())) {
+            return Boolean.TRUE;
+        }
+        if (candidate.type == null) {
+            return null;
+        }
+        ClassInfo classInfo = candidate.helper.toClassInfo(candidate.type);
+        if (classInfo.getName().equals(_typeName) || namesType(classInfo)) {
+            return Boolean.TRUE;
+        }
+        if (!candidate.allows(Cost.HIERARCHY)) {
+            return null;
+        }
+        return Boolean.valueOf(isSubtype(classInfo, candidate.helper, candidate.memo(this)));
+    }
+
+    private boolean namesType(ClassInfo classInfo) {
+        if (_typeName.equals(classInfo.getSuperclass())) {
+            return true;
+        }
+        for (String iface : classInfo.getInterfaces()) {
+            if (_typeName.equals(iface)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isSubtype(ClassInfo classInfo, InspectionHelper helper, ConcurrentMap<String, Boolean> memo) {
+        Boolean known = memo.get(classInfo.getName());
+        if (known != null) {
+            return known.booleanValue();
+        }
+        boolean subtype = namesType(classInfo);
+        if (!subtype && classInfo.getSuperclass() != null) {
+            subtype = isSubtype(classInfo.getSuperclass(), helper, memo);
+        }
+        for (String iface : classInfo.getInterfaces()) {
+            if (subtype) {
+                break;
+            }
+            subtype = isSubtype(iface, helper, memo);
+        }
+        memo.put(classInfo.getName(), Boolean.valueOf(subtype));
+        return subtype;
+    }
+
+    private boolean isSubtype(String name, InspectionHelper helper, ConcurrentMap<String, Boolean> memo) {
+        if (name.equals(Object.class.getName())) {
+            return false;
+        }
+        try {
+            return isSubtype(helper.getClassInfo(name), helper, memo);
+        } catch (ClassNotFoundException | IOException e) {
+            logger.debug("Could not resolve super type '" + name + "'.");
+            memo.put(name, Boolean.FALSE);
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "subtype of " + _typeName;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.tool;
+
+import java.io.PrintStream;
+
+/**
+ * Writes the matches of the {@link ScanTool}, one line per match.
+ *
+ * @author hoersch
+ */
+enum ResultWriter {
+    /** A JSON object per line: <code>{"query":"...","class":"...","member":"..."}</code> */
+    NDJSON {
+        @Override
+        void writeHeader(PrintStream out) {
+            // No header
+        }
+
+        @Override
+        void write(PrintStream out, String query, String className, String member) {
+            out.print("{\"query\":");
+            json(out, query);
+            out.print(",\"class\":");
+            json(out, className);
+            if (!member.isEmpty()) {
+                out.print(",\"member\":");
+                json(out, member);
+            }
+            out.print("}\n");
+        }
+    },
+    /** Comma separated values with a header line. */
+    CSV {
+        @Override
+        void writeHeader(PrintStream out) {
+            out.print("query,class,member\n");
+        }
+
+        @Override
+        void write(PrintStream out, String query, String className, String member) {
+            csv(out, query);
+            out.print(',');
+            csv(out, className);
+            out.print(',');
+            csv(out, member);
+            out.print('\n');
+        }
+    };
+
+    abstract void writeHeader(PrintStream out);
+
+    abstract void write(PrintStream out, String query, String className, String member);
+
+    private static void json(PrintStream out, String value) {
+        out.print('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.print('\\');
+                out.print(c);
+            } else if (c < 0x20) {
+                out.print(String.format("\\u%04x", Integer.valueOf(c)));
+            } else {
+                out.print(c);
+            }
+        }
+        out.print('"');
+    }
+
+    private static void csv(PrintStream out, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            out.print(value);
+        } else {
+            out.print('"');
+            out.print(value.replace("\"", "\"\""));
+            out.print('"');
+        }
+    }
+}
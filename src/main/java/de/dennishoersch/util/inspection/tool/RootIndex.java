@@ -0,0 +1,151 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.tool;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collection;
+import java.util.Map;
+
+import javassist.bytecode.ClassFile;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import de.dennishoersch.util.inspection.ClassInspector;
+import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.ScanFilter;
+import de.dennishoersch.util.inspection.impl.collect.ClassCollector;
+
+/**
+ * The parsed class files of one root, a jar or a class directory, as of the time and size of the root when it was
+ * parsed.
+ *
+ * @author hoersch
+ */
+final class RootIndex {
+    private final Stamp _stamp;
+
+    private final Map<String, ClassFile> _classes;
+
+    private RootIndex(Stamp stamp, Map<String, ClassFile> classes) {
+        _stamp = stamp;
+        _classes = classes;
+    }
+
+    /**
+     * Parses all class files of the root.
+     *
+     * @param root
+     * @return the index
+     * @throws Exception
+     */
+    static RootIndex parse(File root) throws Exception {
+        // Stamped before parsing, a change while parsing is seen by the next request
+        Stamp stamp = Stamp.of(root);
+        ScanFilter filter = ScanFilter.builder().includeRoot(root.getPath().replace('\\', '/')).build();
+        try (URLClassLoader classloader = new URLClassLoader(new URL[] { root.toURI().toURL() }, null)) {
+            ClassCollector<ClassFile, ClassFiles> collector = ClassCollector.wholeClasspath(new ClassFiles());
+            collector.setClassLoader(classloader);
+            collector.setFilter(filter);
+            return new RootIndex(stamp, ImmutableMap.copyOf(collector.findAndLetInspectAsync().get().classes));
+        }
+    }
+
+    /**
+     * @param root
+     * @return is the root unchanged since it was parsed?
+     */
+    boolean isUpToDate(File root) {
+        return _stamp.equals(Stamp.of(root));
+    }
+
+    Collection<ClassFile> getClasses() {
+        return _classes.values();
+    }
+
+    ClassFile getClass(String name) {
+        return _classes.get(name);
+    }
+
+    /**
+     * Last modification time and size of a jar. Of a directory the latest modification time and the number and total
+     * size of the class files below.
+     */
+    private static final class Stamp {
+        private long _lastModified;
+
+        private long _size;
+
+        private int _files;
+
+        static Stamp of(File root) {
+            Stamp stamp = new Stamp();
+            if (root.isDirectory()) {
+                stamp.addDirectory(root);
+            } else {
+                stamp._lastModified = root.lastModified();
+                stamp._size = root.length();
+            }
+            return stamp;
+        }
+
+        private void addDirectory(File directory) {
+            File[] files = directory.listFiles();
+            if (files == null) {
+                return;
+            }
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    addDirectory(file);
+                } else if (file.getName().endsWith(".class")) {
+                    _lastModified = Math.max(_lastModified, file.lastModified());
+                    _size += file.length();
+                    _files++;
+                }
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Stamp)) {
+                return false;
+            }
+            Stamp other = (Stamp) obj;
+            return _lastModified == other._lastModified && _size == other._size && _files == other._files;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (_lastModified ^ _size) + _files;
+        }
+    }
+
+    private static final class ClassFiles implements ClassInspector<ClassFile> {
+        final Map<String, ClassFile> classes = Maps.newLinkedHashMap();
+
+        @Override
+        public void inspect(ClassFile type, InspectionHelper helper) {
+            classes.put(type.getName(), type);
+        }
+
+        @Override
+        public Collection<ClassFile> getElements() {
+            return classes.values();
+        }
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.tool;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.SignatureAttribute;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.ScanFilter;
+import de.dennishoersch.util.inspection.impl.collect.NameTable;
+
+/**
+ * Long running local process that keeps the parsed class files of the scanned roots in memory, so short-lived
+ * processes scanning the same jars again and again get their answers without reading and parsing. A root is parsed
+ * again when its modification time or size changed. Clients connect with the {@link ScanDaemonClient}.
+ * <p>
+ * Listens on the loopback interface only. Each connection is one request of UTF-8 lines, terminated by an empty line:
+ *
+ * <pre>
+ * root &lt;absolute path of a jar or class directory&gt;
+ * package &lt;name&gt;
+ * query &lt;kind&gt;:&lt;type&gt;
+ * </pre>
+ *
+ * The kinds of queries are the ones of the {@link ScanTool}. The answer is a line
+ * <code>match &lt;query&gt; &lt;class&gt; [&lt;member&gt;]</code> per match, followed by <code>done</code>, or a
+ * single line <code>error &lt;message&gt;</code>.
+ * <p>
+ * Usage: <code>ScanDaemon [&lt;port&gt;]</code>
+ *
+ * @author hoersch
+ */
+public final class ScanDaemon implements Closeable {
+    private static final Logger logger = Logger.getLogger(ScanDaemon.class);
+
+    /** The port the daemon listens on and the client connects to by default. */
+    public static final int DEFAULT_PORT = 47411;
+
+    private final ConcurrentMap<String, RootIndex> _indexes = Maps.newConcurrentMap();
+
+    private final ConcurrentMap<String, InspectionHelper.ClassInfo> _jdkClassInfos = Maps.newConcurrentMap();
+
+    private final ExecutorService _requests = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat("class-inspection-daemon-%d").build());
+
+    private final ServerSocket _serverSocket;
+
+    private final Thread _acceptor;
+
+    /**
+     * Binds the port, use {@link #start()} to accept requests.
+     *
+     * @param port the port, 0 for any free port
+     * @throws IOException if the port could not be bound
+     */
+    public ScanDaemon(int port) throws IOException {
+        _serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        _acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "class-inspection-daemon");
+        _acceptor.setDaemon(true);
+    }
+
+    /**
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length > 1) {
+            System.err.println("Usage: " + ScanDaemon.class.getName() + " [<port>]");
+            System.exit(1);
+        }
+        ScanDaemon daemon = new ScanDaemon(args.length == 0 ? DEFAULT_PORT : Integer.parseInt(args[0]));
+        daemon.start();
+        logger.info("Listening on port " + daemon.getPort());
+        daemon._acceptor.join();
+    }
+
+    /**
+     * Starts accepting requests in the background.
+     */
+    public void start() {
+        _acceptor.start();
+    }
+
+    /**
+     * @return the port the daemon listens on
+     */
+    public int getPort() {
+        return _serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting requests and drops the indexes.
+     */
+    @Override
+    public void close() throws IOException {
+        _serverSocket.close();
+        try {
+            // The socket is closed for good only when the acceptor left accept()
+            _acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        _requests.shutdown();
+        _indexes.clear();
+    }
+
+    private void accept() {
+        while (!_serverSocket.isClosed()) {
+            try {
+                final Socket socket = _serverSocket.accept();
+                _requests.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        handle(socket);
+                    }
+                });
+            } catch (IOException e) {
+                if (!_serverSocket.isClosed()) {
+                    logger.error("Could not accept a request!", e);
+                }
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), Charsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), Charsets.UTF_8));
+            try {
+                answer(in, out);
+            } catch (Exception e) {
+                logger.warn("Could not answer a request due to a " + e.getClass().getName() + " with message: " + e.getMessage());
+                out.write("error " + String.valueOf(e.getMessage()).replace('\n', ' ') + "\n");
+            }
+            out.flush();
+        } catch (IOException e) {
+            logger.warn("Lost connection to a client: " + e.getMessage());
+        }
+    }
+
+    private void answer(BufferedReader in, final Writer out) throws Exception {
+        List<File> roots = Lists.newArrayList();
+        ScanFilter.Builder filter = ScanFilter.builder();
+        List<ScanQuery> queries = Lists.newArrayList();
+        String line;
+        while ((line = in.readLine()) != null && !line.isEmpty()) {
+            int space = line.indexOf(' ');
+            String keyword = space < 0 ? line : line.substring(0, space);
+            String value = space < 0 ? "" : line.substring(space + 1);
+            if (keyword.equals("root")) {
+                roots.add(new File(value));
+            } else if (keyword.equals("package")) {
+                filter.includePackage(value);
+            } else if (keyword.equals("query") && ScanQuery.parse(value) != null) {
+                queries.add(ScanQuery.parse(value));
+            } else {
+                throw new IllegalArgumentException("Unknown request line '" + line + "'");
+            }
+        }
+
+        List<RootIndex> indexes = Lists.newArrayListWithCapacity(roots.size());
+        for (File root : roots) {
+            indexes.add(index(root));
+        }
+        final IOException[] failure = new IOException[1];
+        ScanInspector inspector = new ScanInspector(queries, new ScanInspector.MatchHandler() {
+            @Override
+            public void match(ScanQuery query, String className, String member) {
+                try {
+                    out.write("match " + query + " " + className + (member.isEmpty() ? "" : " " + member) + "\n");
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        ScanFilter packages = filter.build();
+        IndexHelper helper = new IndexHelper(indexes, _jdkClassInfos);
+        Set<String> seen = Sets.newHashSet();
+        for (RootIndex index : indexes) {
+            for (ClassFile type : index.getClasses()) {
+                // The first root wins, as on a classpath
+                if (seen.add(type.getName()) && packages.acceptsPackage(packageOf(type.getName()))) {
+                    inspector.inspect(type, helper);
+                    if (failure[0] != null) {
+                        throw failure[0];
+                    }
+                }
+            }
+        }
+        out.write("done\n");
+    }
+
+    private RootIndex index(File root) throws Exception {
+        if (!root.exists()) {
+            throw new IllegalArgumentException("Root '" + root + "' does not exist");
+        }
+        String key = root.getAbsolutePath();
+        RootIndex index = _indexes.get(key);
+        if (index == null || !index.isUpToDate(root)) {
+            // Concurrent requests for the same root may parse it twice, the last one is kept
+            index = RootIndex.parse(root.getAbsoluteFile());
+            _indexes.put(key, index);
+        }
+        return index;
+    }
+
+    private static String packageOf(String className) {
+        int dot = className.lastIndexOf('.');
+        return dot < 0 ? "" : className.substring(0, dot);
+    }
+
+    /**
+     * Resolves the classes of the requested roots from their indexes, and classes of the JDK from its class files.
+     * Nothing is loaded.
+     */
+    private static final class IndexHelper implements InspectionHelper {
+        private static final ClassLoader JDK_CLASSLOADER = ClassLoader.getSystemClassLoader().getParent();
+
+        private final List<RootIndex> _indexes;
+
+        private final Map<String, ClassInfo> _jdkClassInfos;
+
+        private final NameTable _names = new NameTable();
+
+        IndexHelper(List<RootIndex> indexes, Map<String, ClassInfo> jdkClassInfos) {
+            _indexes = indexes;
+            _jdkClassInfos = jdkClassInfos;
+        }
+
+        @Override
+        public Class<?> loadClass(ClassFile type) throws ClassNotFoundException {
+            throw new ClassNotFoundException(type.getName() + " (the daemon does not load classes)");
+        }
+
+        @Override
+        public ClassInfo getClassInfo(String name) throws IOException, ClassNotFoundException {
+            for (RootIndex index : _indexes) {
+                ClassFile type = index.getClass(name);
+                if (type != null) {
+                    return toClassInfo(type);
+                }
+            }
+            ClassInfo classInfo = _jdkClassInfos.get(name);
+            if (classInfo == null) {
+                try (InputStream in = JDK_CLASSLOADER.getResourceAsStream(name.replace('.', '/') + ".class")) {
+                    if (in == null) {
+                        throw new ClassNotFoundException(name);
+                    }
+                    classInfo = new ClassFileInfo(new ClassFile(new DataInputStream(in)));
+                }
+                _jdkClassInfos.put(name, classInfo);
+            }
+            return classInfo;
+        }
+
+        @Override
+        public ClassInfo toClassInfo(ClassFile type) {
+            return new ClassFileInfo(type);
+        }
+
+        @Override
+        public String intern(String name) {
+            return _names.intern(name);
+        }
+    }
+
+    private static final class ClassFileInfo implements InspectionHelper.ClassInfo {
+        private final String _name;
+
+        private final String _superclass;
+
+        private final String[] _interfaces;
+
+        private final int _modifiers;
+
+        private final String _genericSignature;
+
+        ClassFileInfo(ClassFile type) {
+            _name = type.getName();
+            _superclass = type.getSuperclass();
+            _interfaces = type.getInterfaces();
+            _modifiers = AccessFlag.toModifier(type.getAccessFlags());
+            SignatureAttribute signature = (SignatureAttribute) type.getAttribute(SignatureAttribute.tag);
+            _genericSignature = signature == null ? null : signature.getSignature();
+        }
+
+        @Override
+        public String getName() {
+            return _name;
+        }
+
+        @Override
+        public String getSuperclass() {
+            return _superclass;
+        }
+
+        @Override
+        public String[] getInterfaces() {
+            return _interfaces;
+        }
+
+        @Override
+        public int getModifiers() {
+            return _modifiers;
+        }
+
+        @Override
+        public String getGenericSignature() {
+            return _genericSignature;
+        }
+    }
+}
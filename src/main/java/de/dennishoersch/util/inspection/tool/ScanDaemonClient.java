@@ -0,0 +1,170 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.tool;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Asks a {@link ScanDaemon} on this machine to answer a query. If no daemon is running, the roots are scanned in this
+ * process instead, with the same answer.
+ * <p>
+ * The answers are names of classes, the classes are not loaded.
+ *
+ * @author hoersch
+ */
+public final class ScanDaemonClient {
+    private static final Logger logger = Logger.getLogger(ScanDaemonClient.class);
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 200;
+
+    private final int _port;
+
+    /**
+     * A client of the daemon on the {@link ScanDaemon#DEFAULT_PORT}.
+     */
+    public ScanDaemonClient() {
+        this(ScanDaemon.DEFAULT_PORT);
+    }
+
+    /**
+     * @param port the port of the daemon
+     */
+    public ScanDaemonClient(int port) {
+        _port = port;
+    }
+
+    /**
+     * @param annotation name of the annotation
+     * @param roots jars or class directories
+     * @param packageName the package to scan, <code>null</code> to scan all packages
+     * @return the names of the classes annotated with the annotation
+     * @throws Exception
+     */
+    public SortedSet<String> findClassesAnnotatedWith(String annotation, Collection<File> roots, String packageName) throws Exception {
+        return classNames(query(roots, packageName, ScanQuery.of("annotated", annotation)));
+    }
+
+    /**
+     * @param type name of the class or interface
+     * @param roots jars or class directories
+     * @param packageName the package to scan, <code>null</code> to scan all packages
+     * @return the names of the subclasses and implementations of the type
+     * @throws Exception
+     */
+    public SortedSet<String> findClassesImplementing(String type, Collection<File> roots, String packageName) throws Exception {
+        return classNames(query(roots, packageName, ScanQuery.of("implements", type)));
+    }
+
+    /**
+     * @param annotation name of the annotation
+     * @param roots jars or class directories
+     * @param packageName the package to scan, <code>null</code> to scan all packages
+     * @return the names of the classes with fields or methods annotated with the annotation
+     * @throws Exception
+     */
+    public SortedSet<String> findClassesWithMembersAnnotatedWith(String annotation, Collection<File> roots, String packageName) throws Exception {
+        return classNames(query(roots, packageName, ScanQuery.of("member-annotated", annotation)));
+    }
+
+    private static SortedSet<String> classNames(List<String[]> matches) {
+        SortedSet<String> classNames = Sets.newTreeSet();
+        for (String[] match : matches) {
+            classNames.add(match[1]);
+        }
+        return classNames;
+    }
+
+    /**
+     * @return the matches as query, class and member, the member is an empty string for a match of the class itself
+     */
+    List<String[]> query(Collection<File> roots, String packageName, ScanQuery query) throws Exception {
+        List<File> absoluteRoots = Lists.newArrayListWithCapacity(roots.size());
+        for (File root : roots) {
+            absoluteRoots.add(root.getAbsoluteFile());
+        }
+        List<String> packages = packageName == null ? Collections.<String> emptyList() : Collections.singletonList(packageName);
+        try {
+            return queryDaemon(absoluteRoots, packages, query);
+        } catch (IOException e) {
+            logger.debug("No daemon on port " + _port + ", scanning in process: " + e.getMessage());
+        }
+        return queryInProcess(absoluteRoots, packages, query);
+    }
+
+    private List<String[]> queryDaemon(List<File> roots, List<String> packages, ScanQuery query) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), _port), CONNECT_TIMEOUT_MILLIS);
+            if (socket.getLocalPort() == socket.getPort()) {
+                // Connected to itself, there is nobody listening on the port
+                throw new ConnectException("No daemon listening on port " + _port);
+            }
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), Charsets.UTF_8);
+            for (File root : roots) {
+                out.write("root " + root.getPath() + "\n");
+            }
+            for (String packageName : packages) {
+                out.write("package " + packageName + "\n");
+            }
+            out.write("query " + query + "\n\n");
+            out.flush();
+
+            List<String[]> matches = Lists.newArrayList();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), Charsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.equals("done")) {
+                    return matches;
+                }
+                if (line.startsWith("error ")) {
+                    throw new IllegalArgumentException(line.substring("error ".length()));
+                }
+                String[] match = line.split(" ");
+                matches.add(new String[] { match[1], match[2], match.length > 3 ? match[3] : "" });
+            }
+            throw new IOException("The daemon closed the connection before answering");
+        }
+    }
+
+    private static List<String[]> queryInProcess(List<File> roots, List<String> packages, ScanQuery query) throws Exception {
+        final List<String[]> matches = Lists.newArrayList();
+        new ScanInspector(Collections.singletonList(query), new ScanInspector.MatchHandler() {
+            @Override
+            public void match(ScanQuery matched, String className, String member) {
+                matches.add(new String[] { matched.toString(), className, member });
+            }
+        }).scan(roots, packages);
+        return matches;
+    }
+}
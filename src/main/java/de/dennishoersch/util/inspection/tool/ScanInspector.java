@@ -0,0 +1,144 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.tool;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javassist.bytecode.ClassFile;
+
+import de.dennishoersch.util.inspection.ClassInspector;
+import de.dennishoersch.util.inspection.ClassPrefilter;
+import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.ScanFilter;
+import de.dennishoersch.util.inspection.impl.collect.ClassCollector;
+
+/**
+ * Runs all queries of the {@link ScanTool} on each class and hands the matches over right away, nothing is collected.
+ * Counts the classes and bytes passing by and the time spent inspecting.
+ *
+ * @author hoersch
+ */
+final class ScanInspector implements ClassInspector<Void>, ClassPrefilter {
+    private final List<ScanQuery> _queries;
+
+    private final MatchHandler _handler;
+
+    private final AtomicLong _classes = new AtomicLong();
+
+    private final AtomicLong _bytes = new AtomicLong();
+
+    private long _inspectionNanos;
+
+    private long _matches;
+
+    ScanInspector(List<ScanQuery> queries, MatchHandler handler) {
+        _queries = queries;
+        _handler = handler;
+    }
+
+    /**
+     * Scans the roots in one streaming pass, each class is inspected as soon as it is read and then dropped. Only the
+     * given roots are scanned, not the classpath of this process.
+     *
+     * @param roots jars or class directories
+     * @param packages the packages to scan, all if empty
+     * @throws Exception
+     */
+    void scan(List<File> roots, List<String> packages) throws Exception {
+        ScanFilter.Builder filter = ScanFilter.builder();
+        URL[] urls = new URL[roots.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = roots.get(i).toURI().toURL();
+            filter.includeRoot(roots.get(i).getPath().replace('\\', '/'));
+        }
+        for (String packageName : packages) {
+            filter.includePackage(packageName);
+        }
+        try (URLClassLoader classloader = new URLClassLoader(urls, null)) {
+            ClassCollector<Void, ScanInspector> collector = ClassCollector.wholeClasspath(this);
+            collector.setClassLoader(classloader);
+            collector.setFilter(filter.build());
+            collector.setStreaming(true);
+            collector.findAndLetInspect();
+        }
+    }
+
+    @Override
+    public boolean acceptsClassName(String className) {
+        return true;
+    }
+
+    @Override
+    public boolean acceptsClassContent(String className, byte[] content) {
+        _classes.incrementAndGet();
+        _bytes.addAndGet(content.length);
+        return true;
+    }
+
+    @Override
+    public void inspect(ClassFile type, InspectionHelper helper) {
+        long start = System.nanoTime();
+        for (ScanQuery query : _queries) {
+            for (String member : query.matches(type, helper)) {
+                _handler.match(query, type.getName(), member);
+                _matches++;
+            }
+        }
+        _inspectionNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * @return nothing, the matches are handed over
+     */
+    @Override
+    public Collection<Void> getElements() {
+        return Collections.emptyList();
+    }
+
+    long getClasses() {
+        return _classes.get();
+    }
+
+    long getBytes() {
+        return _bytes.get();
+    }
+
+    long getMatches() {
+        return _matches;
+    }
+
+    long getInspectionNanos() {
+        return _inspectionNanos;
+    }
+
+    /**
+     * Receives the matches of the queries.
+     */
+    interface MatchHandler {
+        /**
+         * @param query
+         * @param className
+         * @param member the matched member, an empty string for a match of the class itself
+         */
+        void match(ScanQuery query, String className, String member);
+    }
+}
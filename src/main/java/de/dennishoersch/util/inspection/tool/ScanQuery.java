@@ -0,0 +1,184 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.tool;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.FieldInfo;
+import javassist.bytecode.MethodInfo;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.InspectionHelper.ClassInfo;
+
+/**
+ * A query of the {@link ScanTool}. Matches by names only, no class is loaded, so classes whose dependencies are missing
+ * can be scanned as well.
+ *
+ * @author hoersch
+ */
+abstract class ScanQuery {
+    private final String _kind;
+
+    final String typeName;
+
+    ScanQuery(String kind, String typeName) {
+        _kind = kind;
+        this.typeName = typeName;
+    }
+
+    /**
+     * @param option the option of the command line without leading dashes
+     * @param typeName the argument of the option
+     * @return the query or <code>null</code> if the option is no query
+     */
+    static ScanQuery of(String option, String typeName) {
+        switch (option) {
+            case "annotated":
+                return new Annotated(typeName);
+            case "implements":
+                return new Subtype("implements", typeName, false);
+            case "assignable":
+                return new Subtype("assignable", typeName, true);
+            case "member-annotated":
+                return new MemberAnnotated(typeName);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param query as of {@link #toString()}, i.e. <code>implements:a.Type</code>
+     * @return the query or <code>null</code> if it is no query
+     */
+    static ScanQuery parse(String query) {
+        int colon = query.indexOf(':');
+        return colon < 0 ? null : of(query.substring(0, colon), query.substring(colon + 1));
+    }
+
+    /**
+     * @param type
+     * @param helper
+     * @return the matched members, an empty string for a match of the class itself
+     */
+    abstract List<String> matches(ClassFile type, InspectionHelper helper);
+
+    @Override
+    public String toString() {
+        return _kind + ":" + typeName;
+    }
+
+    static boolean isAnnotated(List<?> attributes, String annotation) {
+        for (Object attribute : attributes) {
+            if (attribute instanceof AnnotationsAttribute && ((AnnotationsAttribute) attribute).getAnnotation(annotation) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Annotated extends ScanQuery {
+        Annotated(String annotation) {
+            super("annotated", annotation);
+        }
+
+        @Override
+        List<String> matches(ClassFile type, InspectionHelper helper) {
+            return isAnnotated(type.getAttributes(), typeName) ? Lists.newArrayList("") : Lists.<String> newArrayList();
+        }
+    }
+
+    private static final class MemberAnnotated extends ScanQuery {
+        MemberAnnotated(String annotation) {
+            super("member-annotated", annotation);
+        }
+
+        @Override
+        List<String> matches(ClassFile type, InspectionHelper helper) {
+            List<String> members = Lists.newArrayList();
+            for (Object field : type.getFields()) {
+                if (isAnnotated(((FieldInfo) field).getAttributes(), typeName)) {
+                    members.add(((FieldInfo) field).getName());
+                }
+            }
+            for (Object method : type.getMethods()) {
+                MethodInfo methodInfo = (MethodInfo) method;
+                if (isAnnotated(methodInfo.getAttributes(), typeName)) {
+                    members.add(methodInfo.getName() + methodInfo.getDescriptor());
+                }
+            }
+            return members;
+        }
+    }
+
+    /**
+     * Walks the hierarchy by name, remembering the answer for each super type.
+     */
+    private static final class Subtype extends ScanQuery {
+        private final boolean _includingType;
+
+        private final Map<String, Boolean> _subtypes = Maps.newHashMap();
+
+        Subtype(String kind, String typeName, boolean includingType) {
+            super(kind, typeName);
+            _includingType = includingType;
+        }
+
+        @Override
+        List<String> matches(ClassFile type, InspectionHelper helper) {
+            boolean matches = type.getName().equals(typeName) ? _includingType : isSubtype(helper.toClassInfo(type), helper);
+            return matches ? Lists.newArrayList("") : Lists.<String> newArrayList();
+        }
+
+        private boolean isSubtype(ClassInfo classInfo, InspectionHelper helper) {
+            Boolean known = _subtypes.get(classInfo.getName());
+            if (known != null) {
+                return known.booleanValue();
+            }
+            List<String> supertypes = Lists.newArrayList(classInfo.getInterfaces());
+            if (classInfo.getSuperclass() != null) {
+                supertypes.add(0, classInfo.getSuperclass());
+            }
+            boolean subtype = false;
+            for (String supertype : supertypes) {
+                if (supertype.equals(typeName) || isSubtype(supertype, helper)) {
+                    subtype = true;
+                    break;
+                }
+            }
+            _subtypes.put(classInfo.getName(), Boolean.valueOf(subtype));
+            return subtype;
+        }
+
+        private boolean isSubtype(String name, InspectionHelper helper) {
+            if (name.equals(Object.class.getName())) {
+                return false;
+            }
+            try {
+                return isSubtype(helper.getClassInfo(name), helper);
+            } catch (ClassNotFoundException | IOException e) {
+                _subtypes.put(name, Boolean.FALSE);
+                return false;
+            }
+        }
+    }
+}
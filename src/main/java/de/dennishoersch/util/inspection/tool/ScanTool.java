@@ -0,0 +1,170 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.tool;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.ConsoleAppender;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Scans jars and class directories from the command line. All queries are answered in one streaming pass, the matches
+ * are written to stdout as they are found, one line each, and a throughput summary is printed to stderr. Stdout only
+ * gets the matches, logging goes to stderr.
+ * <p>
+ * Usage:
+ * <code>ScanTool --root &lt;jar or directory&gt; [--root ...] [--package &lt;name&gt; ...] [--format ndjson|csv] &lt;query&gt; [&lt;query&gt; ...]</code>
+ * <p>
+ * Queries:
+ * <ul>
+ * <li><code>--annotated &lt;annotation&gt;</code>: classes annotated with the annotation</li>
+ * <li><code>--implements &lt;type&gt;</code>: subclasses and implementations of the type</li>
+ * <li><code>--assignable &lt;type&gt;</code>: same as <code>--implements</code> but including the type itself</li>
+ * <li><code>--member-annotated &lt;annotation&gt;</code>: fields and methods annotated with the annotation</li>
+ * </ul>
+ * Types are matched by their names, the scanned classes are never loaded.
+ *
+ * @author hoersch
+ */
+public final class ScanTool {
+
+    private static final String USAGE = "Usage: " + ScanTool.class.getName()
+            + " --root <jar or directory> [--root ...] [--package <name> ...] [--format ndjson|csv]"
+            + " (--annotated <annotation> | --implements <type> | --assignable <type> | --member-annotated <annotation>) ...";
+
+    private ScanTool() {
+    }
+
+    /**
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        int status = run(args, System.out, System.err);
+        System.out.flush();
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Parses the arguments and runs the scan.
+     *
+     * @param args
+     * @param out receives the matches
+     * @param err receives the usage and the summary
+     * @return the exit status, 0 on success
+     * @throws Exception
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) throws Exception {
+        logToStderr();
+        List<File> roots = Lists.newArrayList();
+        List<String> packages = Lists.newArrayList();
+        List<ScanQuery> queries = Lists.newArrayList();
+        ResultWriter writer = ResultWriter.NDJSON;
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                return usage(err, "Missing argument of '" + args[i] + "'");
+            }
+            String option = args[i].substring(2);
+            String value = args[i + 1];
+            if (option.equals("root")) {
+                File root = new File(value).getAbsoluteFile();
+                if (!root.exists()) {
+                    return usage(err, "Root '" + value + "' does not exist");
+                }
+                roots.add(root);
+            } else if (option.equals("package")) {
+                packages.add(value);
+            } else if (option.equals("format")) {
+                try {
+                    writer = ResultWriter.valueOf(value.toUpperCase(Locale.ENGLISH));
+                } catch (IllegalArgumentException e) {
+                    return usage(err, "Unknown format '" + value + "'");
+                }
+            } else {
+                ScanQuery query = ScanQuery.of(option, value);
+                if (query == null) {
+                    return usage(err, "Unknown option '" + args[i] + "'");
+                }
+                queries.add(query);
+            }
+        }
+        if (roots.isEmpty() || queries.isEmpty()) {
+            return usage(err, "At least one root and one query are required");
+        }
+        scan(roots, packages, queries, writer, out, err);
+        return 0;
+    }
+
+    private static void scan(List<File> roots, List<String> packages, List<ScanQuery> queries, final ResultWriter writer, final PrintStream out, PrintStream err) throws Exception {
+        ScanInspector inspector = new ScanInspector(queries, new ScanInspector.MatchHandler() {
+            @Override
+            public void match(ScanQuery query, String className, String member) {
+                writer.write(out, query.toString(), className, member);
+            }
+        });
+        writer.writeHeader(out);
+        long start = System.nanoTime();
+        inspector.scan(roots, packages);
+        out.flush();
+        printSummary(err, inspector, start, System.nanoTime());
+    }
+
+    /**
+     * Each class is read, parsed and inspected before the next one, so the time not spent inspecting is taken as the
+     * read and parse phase.
+     */
+    private static void printSummary(PrintStream err, ScanInspector inspector, long start, long end) {
+        long totalNanos = end - start;
+        long readAndParseNanos = totalNanos - inspector.getInspectionNanos();
+        double seconds = Math.max(totalNanos, 1) / 1e9;
+        err.println(String.format(Locale.ENGLISH, "Scanned %d classes (%d bytes) in %.3f s: %.0f classes/s, %.0f bytes/s, %d matches", //
+                Long.valueOf(inspector.getClasses()), Long.valueOf(inspector.getBytes()), Double.valueOf(seconds), //
+                Double.valueOf(inspector.getClasses() / seconds), Double.valueOf(inspector.getBytes() / seconds), Long.valueOf(inspector.getMatches())));
+        err.println(String.format(Locale.ENGLISH, "Phases: read and parse %d ms, inspect %d ms", //
+                Long.valueOf(TimeUnit.NANOSECONDS.toMillis(readAndParseNanos)), Long.valueOf(TimeUnit.NANOSECONDS.toMillis(inspector.getInspectionNanos()))));
+    }
+
+    /**
+     * Keeps stdout machine readable: the console appenders write to stderr, and the scan only logs warnings and
+     * errors.
+     */
+    private static void logToStderr() {
+        for (Enumeration<?> appenders = Logger.getRootLogger().getAllAppenders(); appenders.hasMoreElements();) {
+            Object appender = appenders.nextElement();
+            if (appender instanceof ConsoleAppender) {
+                ((ConsoleAppender) appender).setTarget(ConsoleAppender.SYSTEM_ERR);
+                ((ConsoleAppender) appender).activateOptions();
+            }
+        }
+        Logger.getLogger("de.dennishoersch.util").setLevel(Level.WARN);
+    }
+
+    private static int usage(PrintStream err, String message) {
+        err.println(message);
+        err.println(USAGE);
+        return 1;
+    }
+}
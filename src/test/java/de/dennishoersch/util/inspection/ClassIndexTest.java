@@ -0,0 +1,123 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+import de.dennishoersch.util.inspection.testpackage.PackagedAnnotatedAndMethodAnnotatedTestClass;
+import de.dennishoersch.util.inspection.testpackage.PackagedAnnotatedTestClass;
+import de.dennishoersch.util.inspection.testpackage_with_generics.AbstractHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.GenericHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.Handler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.OrderHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.PaymentHandler;
+
+/**
+ * @author hoersch
+ */
+public class ClassIndexTest {
+
+    /** */
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    /**
+     * Every name is found by the perfect hash and decoded from its block, unknown names are not found.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testLookupOfManyNames() throws IOException {
+        ClassIndex.Builder builder = ClassIndex.builder();
+        List<String> names = Lists.newArrayList();
+        for (int i = 0; i < 5000; i++) {
+            String name = "pkg" + i % 7 + ".sub.Class" + i + (i % 3 == 0 ? "ä" : "");
+            names.add(name);
+            builder.addClass(name, 0x0001, i == 0 ? null : names.get(i / 2), Collections.<String> emptyList(), i % 10 == 0 ? Arrays.asList("a.Marker") : Collections.<String> emptyList());
+        }
+        ClassIndex index = ClassIndex.of(ByteBuffer.wrap(builder.toByteArray()));
+
+        assertEquals(5000, index.size());
+        for (int i = 1; i < names.size(); i++) {
+            assertTrue(index.contains(names.get(i)));
+            assertEquals(names.get(i / 2), index.getSuperclass(names.get(i)));
+        }
+        assertFalse(index.contains("a.Marker"));
+        assertFalse(index.contains("pkg0.sub.Unknown"));
+        assertEquals(500, index.getClassesAnnotatedWith("a.Marker").size());
+        assertEquals(4999, index.getSubtypes(names.get(0)).size());
+        assertEquals(Collections.emptyList(), index.getSubtypes("pkg0.sub.Unknown"));
+    }
+
+    /**
+     * @throws IOException
+     */
+    @Test(expected = IOException.class)
+    public void testRejectsOtherContent() throws IOException {
+        ClassIndex.of(ByteBuffer.wrap(new byte[100]));
+    }
+
+    /**
+     * @throws IOException
+     */
+    @Test
+    public void testEmptyIndex() throws IOException {
+        ClassIndex index = ClassIndex.of(ByteBuffer.wrap(ClassIndex.builder().toByteArray()));
+        assertEquals(0, index.size());
+        assertFalse(index.contains("a.A"));
+        assertEquals(Collections.emptyList(), index.getClassesAnnotatedWith("a.Marker"));
+    }
+
+    /**
+     * @throws IOException
+     */
+    @Test
+    public void testWriteAndOpen() throws IOException {
+        File file = new File(_folder.getRoot(), "classes.idx");
+        ClassInspectionUtil.writeClassIndex(file, "de.dennishoersch.util.inspection.testpackage_with_generics");
+        ClassIndex index = ClassIndex.open(file);
+
+        assertEquals(Arrays.asList(AbstractHandler.class.getName(), GenericHandler.class.getName(), OrderHandler.class.getName(), PaymentHandler.class.getName()),
+                index.getSubtypes(Handler.class.getName()));
+        assertEquals(AbstractHandler.class.getName(), index.getSuperclass(OrderHandler.class.getName()));
+        assertEquals(Arrays.asList(Handler.class.getName()), index.getInterfaces(PaymentHandler.class.getName()));
+        assertEquals(Object.class.getName(), index.getSuperclass(Handler.class.getName()));
+        assertTrue(Modifier.isAbstract(index.getModifiers(AbstractHandler.class.getName())));
+        assertTrue(Modifier.isInterface(index.getModifiers(Handler.class.getName())));
+
+        index = ClassInspectionUtil.writeClassIndex(file, "de.dennishoersch.util.inspection.testpackage");
+        assertEquals(Arrays.asList(PackagedAnnotatedTestClass.class.getName()), index.getClassesAnnotatedWith(ClassInspectorTestAnnotationOnlyOnType.class.getName()));
+        assertEquals(Arrays.asList(PackagedAnnotatedAndMethodAnnotatedTestClass.class.getName()),
+                index.getClassesAnnotatedWith(ClassInspectorTestAnnotationOnlyOnTypeAndMethod.class.getName()));
+        assertFalse(index.contains(Handler.class.getName()));
+    }
+}
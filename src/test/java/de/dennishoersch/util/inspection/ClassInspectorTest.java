@@ -15,24 +15,56 @@
  */
 package de.dennishoersch.util.inspection;
 
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
 
 import junit.framework.TestCase;
 
 import org.junit.Test;
 
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
 
+import de.dennishoersch.util.inspection.impl.collect.ParallelClassCollector;
+import de.dennishoersch.util.inspection.impl.inspect.ClassesAssignableFrom;
+import de.dennishoersch.util.inspection.impl.inspect.ClassesImplementing;
 import de.dennishoersch.util.inspection.testpackage.PackagedAnnotatedAndMethodAnnotatedTestClass;
 import de.dennishoersch.util.inspection.testpackage.PackagedAnnotatedTestClass;
 import de.dennishoersch.util.inspection.testpackage.PackagedNotAnnotatedTestClass;
+import de.dennishoersch.util.inspection.testpackage_with_calls.Caller;
+import de.dennishoersch.util.inspection.testpackage_with_calls.LegacyDao;
 import de.dennishoersch.util.inspection.testpackage_with_classhierarchy.BaseClass;
 import de.dennishoersch.util.inspection.testpackage_with_classhierarchy.BaseClassExtendingClass1;
 import de.dennishoersch.util.inspection.testpackage_with_classhierarchy.BaseClassExtendingClass2;
 import de.dennishoersch.util.inspection.testpackage_with_classhierarchy.ClassWithInnerClassExtendingFromSuperBaseClass;
 import de.dennishoersch.util.inspection.testpackage_with_classhierarchy.SuperBaseClass;
 import de.dennishoersch.util.inspection.testpackage_with_classhierarchy.SuperBaseClassExtendingClass;
+import de.dennishoersch.util.inspection.testpackage_with_generics.Converter;
+import de.dennishoersch.util.inspection.testpackage_with_generics.GenericHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.Handler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.OrderEvent;
+import de.dennishoersch.util.inspection.testpackage_with_generics.OrderHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.PaymentEvent;
+import de.dennishoersch.util.inspection.testpackage_with_generics.PaymentHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.StringToInteger;
 import de.dennishoersch.util.inspection.testpackage_with_interface.TestInterface;
+import de.dennishoersch.util.inspection.testpackage_with_jdk_superclass.ListExtendingJdkClass;
+import de.dennishoersch.util.inspection.testpackage_with_members.Configurations;
 import de.dennishoersch.util.inspection.testpackage_with_interface.sub.SubOfTestClass2;
 import de.dennishoersch.util.inspection.testpackage_with_interface.sub.TestClass1;
 import de.dennishoersch.util.inspection.testpackage_with_interface.sub.TestClass2;
@@ -106,6 +138,22 @@ public class ClassInspectorTest extends TestCase {
 				"de.dennishoersch.util.inspection.testpackage_with_classhierarchy.ClassWithInnerClassExtendingFromSuperBaseClass$PrivateInnerClass"));
 	}
 
+	/**
+	 *
+	 */
+	@Test
+	public void testFindClassesAssignableFromSuperBaseClassFiltered() {
+		ScanFilter filter = ScanFilter.builder().excludeClass("*$*").excludePackage(this.getClass().getPackage().getName() + ".impl").build();
+		Collection<Class<? extends SuperBaseClass>> classes = ClassInspectionUtil.findElements(new ClassesAssignableFrom<SuperBaseClass>(SuperBaseClass.class), "de.dennishoersch.util", filter);
+
+		assertEquals("Number of found classes", 5, classes.size());
+		assertTrue("Contains SuperBaseClass.class", classes.contains(SuperBaseClass.class));
+		assertTrue("Contains BaseClass.class", classes.contains(BaseClass.class));
+		assertTrue("Contains BaseClassExtendingClass1.class", classes.contains(BaseClassExtendingClass1.class));
+		assertTrue("Contains BaseClassExtendingClass2.class", classes.contains(BaseClassExtendingClass2.class));
+		assertTrue("Contains SuperBaseClassExtendingClass.class", classes.contains(SuperBaseClassExtendingClass.class));
+	}
+
 	/**
 	 *
 	 */
@@ -123,6 +171,167 @@ public class ClassInspectorTest extends TestCase {
 		assertTrue("Contains TestEnum.class", classes.contains(TestEnum.class));
 	}
 
+	/**
+	 *
+	 */
+	@Test
+	public void testFindClassesImplementingThroughJdkSuperclass() {
+		Collection<Class<? extends RandomAccess>> classes = ClassInspectionUtil.findClassesImplementing(RandomAccess.class, ListExtendingJdkClass.class.getPackage().getName());
+
+		assertEquals("Number of found classes", 1, classes.size());
+		assertTrue("Contains ListExtendingJdkClass.class", classes.contains(ListExtendingJdkClass.class));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testFindClassesImplementingOnClasspath() {
+		Collection<Class<? extends TestInterface>> classes = ClassInspectionUtil.findClassesImplementingOnClasspath(TestInterface.class);
+
+		assertEquals("Number of found classes", 4, classes.size());
+		assertTrue("Contains TestClass1.class", classes.contains(TestClass1.class));
+		assertTrue("Contains TestClass2.class", classes.contains(TestClass2.class));
+		assertTrue("Contains SubOfTestClass2.class", classes.contains(SubOfTestClass2.class));
+		assertTrue("Contains TestEnum.class", classes.contains(TestEnum.class));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindMethodCallSites() throws Exception {
+		Collection<MethodCallSite> callSites = ClassInspectionUtil.findMethodCallSites(LegacyDao.class.getMethod("execute", String.class), LegacyDao.class.getPackage().getName());
+
+		assertEquals("Number of found call sites", 2, callSites.size());
+		for (MethodCallSite callSite : callSites) {
+			assertEquals(Caller.class.getName(), callSite.getCallingClass());
+			assertEquals("deleteAll", callSite.getCallingMethod());
+			assertTrue("Has line number", callSite.getLineNumber() > 0);
+		}
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testFindImplementationsByTypeArgument() {
+		TypeArgumentIndex<?> handlers = ClassInspectionUtil.findImplementationsByTypeArgument(Handler.class, Handler.class.getPackage().getName());
+
+		assertEquals("Number of found implementations", 3, handlers.getImplementations().size());
+		assertEquals(Collections.singleton(OrderHandler.class), handlers.getImplementations(OrderEvent.class));
+		assertEquals(Collections.singleton(PaymentHandler.class), handlers.getImplementations(PaymentEvent.class));
+		assertEquals(Collections.singletonList(null), handlers.getTypeArguments(GenericHandler.class));
+
+		TypeArgumentIndex<?> converters = ClassInspectionUtil.findImplementationsByTypeArgument(Converter.class, Converter.class.getPackage().getName());
+		assertEquals(Collections.singleton(StringToInteger.class), converters.getImplementations(String.class, Integer.class));
+		assertEquals(Collections.singleton(StringToInteger.class), converters.getImplementationsByParameter(1, Integer.class));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindMethodsAndFieldsBySignature() throws Exception {
+		String packageName = Configurations.class.getPackage().getName();
+		Collection<Method> methods = ClassInspectionUtil.findMethods(MemberSignature.builder().withModifiers(Modifier.PUBLIC | Modifier.STATIC).ofType(Properties.class).build(), packageName);
+
+		assertEquals("Number of found methods", 2, methods.size());
+		assertTrue("Contains defaults()", methods.contains(Configurations.class.getMethod("defaults")));
+		assertTrue("Contains forName(String)", methods.contains(Configurations.class.getMethod("forName", String.class)));
+
+		methods = ClassInspectionUtil.findMethods(MemberSignature.builder().named("for*").withParameters(String.class).build(), packageName);
+		assertEquals("Number of found methods", 1, methods.size());
+
+		Collection<Field> fields = ClassInspectionUtil.findFields(MemberSignature.builder().ofType(DataSource.class).build(), packageName);
+		assertEquals("Number of found fields", 1, fields.size());
+		assertEquals("_dataSource", Iterables.getOnlyElement(fields).getName());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testStreamClassesAssignableFromOnClasspath() {
+		Collection<Class<? extends SuperBaseClass>> classes = ClassInspectionUtil.streamElementsOnClasspath(new ClassesAssignableFrom<SuperBaseClass>(SuperBaseClass.class));
+
+		assertEquals("Same classes as collecting first", ClassInspectionUtil.findElementsOnClasspath(new ClassesAssignableFrom<SuperBaseClass>(SuperBaseClass.class)), classes);
+		assertTrue("Contains BaseClassExtendingClass1.class", classes.contains(BaseClassExtendingClass1.class));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindClassesImplementingAsync() throws Exception {
+		Future<Collection<Class<? extends TestInterface>>> future = ClassInspectionUtil.findClassesImplementingAsync(TestInterface.class, TestInterface.class.getPackage().getName());
+
+		Collection<Class<? extends TestInterface>> classes = future.get(10, TimeUnit.SECONDS);
+
+		assertEquals("Number of found classes", 4, classes.size());
+		assertTrue("Contains TestClass1.class", classes.contains(TestClass1.class));
+		assertTrue("Contains TestClass2.class", classes.contains(TestClass2.class));
+		assertTrue("Contains SubOfTestClass2.class", classes.contains(SubOfTestClass2.class));
+		assertTrue("Contains TestEnum.class", classes.contains(TestEnum.class));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testCancelledScanReturnsPartialResult() {
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+
+		ScanResult<Class<? extends TestInterface>> result = ClassInspectionUtil.findElements(new ClassesImplementing<TestInterface>(TestInterface.class), TestInterface.class.getPackage().getName(), token);
+
+		assertEquals("Outcome", ScanResult.Outcome.CANCELLED, result.getOutcome());
+		assertFalse("Complete", result.isComplete());
+		assertEquals("Number of found classes", 0, result.getElements().size());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testInterruptedScanIsCancelled() {
+		CancellationToken token = CancellationToken.withTimeout(1, TimeUnit.MINUTES);
+
+		Thread.currentThread().interrupt();
+		ScanResult<Class<? extends TestInterface>> result;
+		try {
+			result = ClassInspectionUtil.findElements(new ClassesImplementing<TestInterface>(TestInterface.class), TestInterface.class.getPackage().getName(), token);
+		} finally {
+			assertTrue("Interrupt is kept", Thread.interrupted());
+		}
+
+		assertEquals("Outcome", ScanResult.Outcome.CANCELLED, result.getOutcome());
+		assertFalse("Token is not cancelled", token.isCancelled());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testTimedOutScan() {
+		CancellationToken token = CancellationToken.withTimeout(0, TimeUnit.MILLISECONDS);
+
+		ScanResult<Class<? extends TestInterface>> result = ClassInspectionUtil.findElements(new ClassesImplementing<TestInterface>(TestInterface.class), TestInterface.class.getPackage().getName(), token);
+
+		assertEquals("Outcome", ScanResult.Outcome.TIMED_OUT, result.getOutcome());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testScanWithTokenCompletes() {
+		ScanResult<Class<? extends TestInterface>> result = ClassInspectionUtil.findElements(new ClassesImplementing<TestInterface>(TestInterface.class), TestInterface.class.getPackage().getName(), CancellationToken.withTimeout(1, TimeUnit.MINUTES));
+
+		assertTrue("Complete", result.isComplete());
+		assertEquals("Number of found classes", 4, result.getElements().size());
+	}
+
 	/**
 	 *
 	 */
@@ -177,4 +386,60 @@ public class ClassInspectorTest extends TestCase {
 			assertEquals("Number of annotated fields", 0, classMetadata.getAnnotatedMethods().size());
 		}
 	}
+
+	/**
+	 * The index answers the same as the scans, and knows the retention and
+	 * element type of each annotation.
+	 */
+	@Test
+	public void testAnnotationIndex() {
+		String packageName = this.getClass().getPackage().getName();
+		AnnotationIndex index = ClassInspectionUtil.buildAnnotationIndex(packageName);
+
+		assertEquals(Sets.newHashSet(ClassInspectionUtil.findAnnotatedClasses(ClassInspectorTestAnnotationOnlyOnType.class, packageName)),
+				Sets.newHashSet(index.findAnnotatedClasses(ClassInspectorTestAnnotationOnlyOnType.class)));
+
+		Collection<ClassAnnotationMetadata> elements = index.findAnnotatedElements(ClassInspectorTestAnnotationOnlyOnTypeAndMethod.class);
+		assertEquals(1, elements.size());
+		ClassAnnotationMetadata classMetadata = elements.iterator().next();
+		assertEquals(PackagedAnnotatedAndMethodAnnotatedTestClass.class, classMetadata.getRelatedClass());
+		assertTrue(classMetadata.isRelateedClassAnnotated());
+		assertEquals(1, classMetadata.getAnnotatedMethods().size());
+		assertEquals("someMethod", classMetadata.getAnnotatedMethods().iterator().next().getName());
+
+		AnnotationIndex.Posting posting = index.getPostings(ClassInspectorTestAnnotationOnlyOnTypeAndMethod.class.getName()).get(1);
+		assertEquals(ElementType.METHOD, posting.getElementType());
+		assertEquals("()V", posting.getDescriptor());
+		assertEquals(RetentionPolicy.RUNTIME, posting.getRetention());
+		assertTrue(index.getAnnotations().contains(Retention.class.getName()));
+		assertTrue(index.getPostings(Override.class.getName()).isEmpty());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void testCollectInParallel() {
+		String packageName = TestInterface.class.getPackage().getName();
+		Supplier<ClassesImplementing<TestInterface>> factory = new Supplier<ClassesImplementing<TestInterface>>() {
+			@Override
+			public ClassesImplementing<TestInterface> get() {
+				return new ClassesImplementing<TestInterface>(TestInterface.class);
+			}
+		};
+		Set<Class<? extends TestInterface>> expected = ImmutableSet.<Class<? extends TestInterface>> of(TestClass1.class, TestClass2.class, SubOfTestClass2.class,
+				TestEnum.class);
+
+		ParallelClassCollector<?, Class<? extends TestInterface>> perWorker = new ParallelClassCollector<>(InspectionCollectors.perWorker(factory), packageName);
+		perWorker.setParallelism(3);
+		Collection<Class<? extends TestInterface>> classes = perWorker.scan().getElements();
+		assertEquals(4, classes.size());
+		assertEquals(expected, Sets.newHashSet(classes));
+
+		ParallelClassCollector<?, Class<? extends TestInterface>> shared = new ParallelClassCollector<>(InspectionCollectors.shared(factory.get()), packageName);
+		shared.setParallelism(3);
+		assertEquals(expected, Sets.newHashSet(shared.scan().getElements()));
+
+		assertEquals(expected, Sets.newHashSet(ClassInspectionUtil.collectElements(InspectionCollectors.perWorker(factory), packageName)));
+	}
 }
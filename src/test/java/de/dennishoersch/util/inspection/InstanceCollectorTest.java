@@ -16,19 +16,40 @@
 
 package de.dennishoersch.util.inspection;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.hamcrest.Description;
 import org.hamcrest.TypeSafeMatcher;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import de.dennishoersch.util.inspection.find_instances.TestInterface;
+import de.dennishoersch.util.inspection.find_instances.subpackage.TestClass;
+import de.dennishoersch.util.inspection.find_instances.subpackage.TestEnum;
+import de.dennishoersch.util.inspection.find_instances_failing.Creatable;
+import de.dennishoersch.util.inspection.find_instances_failing.FailingOnInit;
+import de.dennishoersch.util.inspection.find_instances_failing.SlowToCreate;
 
 /**
  * @author hoersch
@@ -36,6 +57,10 @@ import de.dennishoersch.util.inspection.find_instances.TestInterface;
  */
 public class InstanceCollectorTest {
 
+    /** Output directory of generated registries. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     /**
      * Test method for {@link InstanceCollector#instances()}.
      */
@@ -48,6 +73,122 @@ public class InstanceCollectorTest {
         assertThat(Collections2.transform(instanceCollector.instances(), toName()), containsAll("EINS", "ZWEI", "ABC", "DEF", "TestClass"));
     }
 
+    /**
+     * Test method for {@link InstanceCollector#instancesOf(Class)}.
+     */
+    @Test
+    public void testLazyInstancesOf() {
+        InstanceCollector<TestInterface> instanceCollector = InstanceCollector.lazy(TestInterface.class, TestInterface.class.getPackage().getName());
+
+        assertThat(instanceCollector.implementations(), size(3));
+        assertThat(Collections2.transform(instanceCollector.instancesOf(TestEnum.class), toName()), containsAll("EINS", "ZWEI"));
+        assertThat(instanceCollector.instancesOf(TestClass.class), size(1));
+        assertSame(instanceCollector.instancesOf(TestClass.class).iterator().next(), instanceCollector.instancesOf(TestClass.class).iterator().next());
+        assertThat(instanceCollector.instances(), size(5));
+    }
+
+    /**
+     * Test method for {@link InstanceCollector#parallel(Class, String, java.util.concurrent.Executor)}.
+     */
+    @Test
+    public void testParallelInstances() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            InstanceCollector<TestInterface> instanceCollector = InstanceCollector.parallel(TestInterface.class, TestInterface.class.getPackage().getName(), executor);
+
+            assertThat(Collections2.transform(instanceCollector.instances(), toName()), containsAll("EINS", "ZWEI", "ABC", "DEF", "TestClass"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test that a failed creation is reported after all other instances are created.
+     */
+    @Test
+    public void testParallelInstancesWaitsForAllOnFailure() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            InstanceCollector.parallel(Creatable.class, Creatable.class.getPackage().getName(), executor);
+            fail("Failure of " + FailingOnInit.class + " expected");
+        } catch (UncheckedExecutionException e) {
+            assertTrue(e.getCause() instanceof ExceptionInInitializerError);
+            assertTrue("Other creations are finished", SlowToCreate.created);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test that a generated {@link ServiceRegistry} is used instead of scanning.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testInstancesFromRegistry() throws Exception {
+        File registry = ServiceRegistry.write(folder.getRoot(), TestInterface.class, TestInterface.class.getPackage().getName(), Arrays.asList(TestClass.class));
+
+        InstanceCollector<TestInterface> instanceCollector = withClassLoaderSeeing(folder.getRoot(), new Callable<InstanceCollector<TestInterface>>() {
+            @Override
+            public InstanceCollector<TestInterface> call() {
+                return InstanceCollector.lazy(TestInterface.class, TestInterface.class.getPackage().getName());
+            }
+        });
+        assertEquals(ImmutableSet.of(TestClass.class), instanceCollector.implementations());
+
+        Files.append("#stale\n", registry, Charsets.UTF_8);
+        instanceCollector = withClassLoaderSeeing(folder.getRoot(), new Callable<InstanceCollector<TestInterface>>() {
+            @Override
+            public InstanceCollector<TestInterface> call() {
+                return InstanceCollector.lazy(TestInterface.class, TestInterface.class.getPackage().getName());
+            }
+        });
+        assertThat("Stale registry is ignored", instanceCollector.implementations(), size(3));
+    }
+
+    /**
+     * Test that a registry found twice, i.e. in the build output and in the packaged jar, registers each
+     * implementation once.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testInstancesFromDuplicateRegistry() throws Exception {
+        File output = folder.newFolder("classes");
+        File packaged = folder.newFolder("jar");
+        String basePackage = TestInterface.class.getPackage().getName();
+        ServiceRegistry.write(output, TestInterface.class, basePackage, Arrays.asList(TestClass.class));
+        ServiceRegistry.write(packaged, TestInterface.class, basePackage, Arrays.asList(TestClass.class));
+
+        InstanceCollector<TestInterface> instanceCollector = withClassLoaderSeeing(new Callable<InstanceCollector<TestInterface>>() {
+            @Override
+            public InstanceCollector<TestInterface> call() {
+                return new InstanceCollector<>(TestInterface.class, TestInterface.class.getPackage().getName());
+            }
+        }, output, packaged);
+        assertEquals(ImmutableSet.of(TestClass.class), instanceCollector.implementations());
+        assertThat(instanceCollector.instances(), size(1));
+    }
+
+    private static <V> V withClassLoaderSeeing(File directory, Callable<V> callable) throws Exception {
+        return withClassLoaderSeeing(callable, directory);
+    }
+
+    private static <V> V withClassLoaderSeeing(Callable<V> callable, File... directories) throws Exception {
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        URL[] urls = new URL[directories.length];
+        for (int i = 0; i < directories.length; i++) {
+            urls[i] = directories[i].toURI().toURL();
+        }
+        try (URLClassLoader classloader = new URLClassLoader(urls, contextClassLoader)) {
+            thread.setContextClassLoader(classloader);
+            return callable.call();
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
     private static Function<TestInterface, String> toName() {
         return new Function<TestInterface, String>() {
             @Override
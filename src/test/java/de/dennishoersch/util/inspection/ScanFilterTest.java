@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author hoersch
+ */
+public class ScanFilterTest {
+
+    /**
+     *
+     */
+    @Test
+    public void testAcceptsEverythingWithoutRules() {
+        assertTrue(ScanFilter.ALL.acceptsRoot("/some/lib.jar"));
+        assertTrue(ScanFilter.ALL.acceptsPackage("com.acme"));
+        assertTrue(ScanFilter.ALL.acceptsClass("com.acme.Foo"));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testLongestPackagePrefixDecides() {
+        ScanFilter filter = ScanFilter.builder().includePackage("com.acme").excludePackage("com.acme.test").includePackage("com.acme.test.keep").build();
+
+        assertTrue(filter.acceptsPackage("com.acme"));
+        assertTrue(filter.acceptsPackage("com/acme/service"));
+        assertFalse(filter.acceptsPackage("com.acmex"));
+        assertFalse(filter.acceptsPackage("org.other"));
+        assertFalse(filter.acceptsPackage("com.acme.test"));
+        assertFalse(filter.acceptsPackage("com.acme.test.sub"));
+        assertTrue(filter.acceptsPackage("com.acme.test.keep.sub"));
+
+        assertTrue("Sub package is included", filter.acceptsPackageTree("com.acme.test"));
+        assertTrue("Sub package is included", filter.acceptsPackageTree("com"));
+        assertFalse(filter.acceptsPackageTree("com.acme.test.other"));
+        assertFalse("Only a prefix of an included package", filter.acceptsPackageTree("com.ac"));
+        assertFalse("Only a prefix of an included package", filter.acceptsPackageTree("com/acme/test/ke"));
+        assertTrue(filter.acceptsPackageTree("com/acme/test/"));
+        assertTrue(filter.acceptsPackageTree(""));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testClassGlobsAndPatterns() {
+        ScanFilter filter = ScanFilter.builder().excludeClass("*$$Proxy*").excludeClass("*_Generated").excludeClassPattern(".*\\.Test[A-Z]\\w*").build();
+
+        assertTrue(filter.acceptsClass("com.acme.Service"));
+        assertFalse(filter.acceptsClass("com.acme.Service$$Proxy12"));
+        assertFalse(filter.acceptsClass("com.acme.Mapper_Generated"));
+        assertFalse(filter.acceptsClass("com.acme.TestService"));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testRootGlobs() {
+        ScanFilter filter = ScanFilter.builder().excludeRoot("vendor-*.jar").excludeRoot("/opt/**/classes").build();
+
+        assertFalse(filter.acceptsRoot("/home/user/.m2/vendor-core-1.0.jar"));
+        assertTrue(filter.acceptsRoot("/home/user/.m2/acme-core-1.0.jar"));
+        assertFalse(filter.acceptsRoot("/opt/app/build/classes/"));
+        assertFalse("Windows separators", filter.acceptsRoot("\\opt\\app\\build\\classes\\"));
+        assertFalse("Windows separators", filter.acceptsRoot("C:\\libs\\vendor-core-1.0.jar"));
+        assertTrue(filter.acceptsRoot("/home/app/build/classes"));
+    }
+}
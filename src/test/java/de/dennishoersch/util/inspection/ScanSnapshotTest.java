@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import de.dennishoersch.util.inspection.impl.inspect.AnnotatedElementsAnnotatedWith;
+import de.dennishoersch.util.inspection.impl.inspect.ClassesImplementing;
+import de.dennishoersch.util.inspection.impl.inspect.TypeDependencies;
+import de.dennishoersch.util.inspection.testpackage.PackagedAnnotatedAndMethodAnnotatedTestClass;
+import de.dennishoersch.util.inspection.testpackage.PackagedAnnotatedTestClass;
+import de.dennishoersch.util.inspection.testpackage.PackagedNotAnnotatedTestClass;
+import de.dennishoersch.util.inspection.testpackage_with_generics.AbstractHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.GenericHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.Handler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.OrderHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.PaymentHandler;
+
+/**
+ * @author hoersch
+ */
+public class ScanSnapshotTest {
+
+    /**
+     *
+     */
+    @Test
+    public void testDiffPerQuery() {
+        ScanSnapshot older = new ScanSnapshot(ImmutableMap.of("a.A", 1L, "a.B", 2L, "a.C", 3L), ImmutableMap.of("plugins", Arrays.asList("a.A", "a.B", "a.C")));
+        ScanSnapshot newer = new ScanSnapshot(ImmutableMap.of("a.A", 1L, "a.B", 20L, "a.D", 4L), ImmutableMap.of("plugins", Arrays.asList("a.D", "a.B", "a.A"),
+                "endpoints", Arrays.asList("a.A")));
+
+        SnapshotDiff diff = older.diff(newer);
+
+        assertEquals(Arrays.asList("endpoints", "plugins"), diff.getQueries());
+        assertEquals(Arrays.asList("a.D"), diff.getAdded("plugins"));
+        assertEquals(Arrays.asList("a.C"), diff.getRemoved("plugins"));
+        assertEquals(Arrays.asList("a.B"), diff.getChanged("plugins"));
+        assertEquals(Arrays.asList("a.A"), diff.getAdded("endpoints"));
+        assertFalse(diff.isEmpty());
+        assertTrue(newer.diff(newer).isEmpty());
+    }
+
+    /**
+     * @throws IOException
+     */
+    @Test
+    public void testQueryNamesWithSpacesSurviveExport() throws IOException {
+        ScanSnapshot snapshot = new ScanSnapshot(ImmutableMap.of("a.A", 1L, "a.B", 2L), ImmutableMap.of("implementing a.Plugin", Arrays.asList("a.B"),
+                "100% odd\tname", Arrays.asList("a.A")));
+
+        StringWriter out = new StringWriter();
+        snapshot.writeTo(out);
+        ScanSnapshot read = ScanSnapshot.readFrom(new StringReader(out.toString()));
+
+        assertEquals(snapshot.getQueries(), read.getQueries());
+        assertEquals(Arrays.asList("a.B"), read.getMatches("implementing a.Plugin"));
+        assertEquals(Arrays.asList("a.A"), read.getMatches("100% odd\tname"));
+        assertTrue(read.diff(snapshot).isEmpty());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testRejectsMalformedSnapshot() {
+        String header = "# class-inspection snapshot 1\n";
+        for (String snapshot : Arrays.asList(header + "class 2 a.B\nclass 1 a.A\n", header + "class 1 a.A\nclass 1 a.A\n", header + "class 1 a.A\nquery q 1\n",
+                header + "class 1 a.A\nquery q%2 0\n", header + "class 1 a.A\nquery q 0\nquery q 0\n", header + "class x a.A\n")) {
+            try {
+                ScanSnapshot.readFrom(new StringReader(snapshot));
+                fail("Malformed snapshot read: " + snapshot);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * @throws IOException
+     */
+    @Test
+    public void testSnapshotOfScanSurvivesExport() throws IOException {
+        ScanSnapshot snapshot = ClassInspectionUtil.snapshot(Collections.singletonMap("handlers", new ClassesImplementing<>(Handler.class)), Handler.class.getPackage().getName());
+
+        assertEquals(Arrays.asList(AbstractHandler.class.getName(), GenericHandler.class.getName(), OrderHandler.class.getName(), PaymentHandler.class.getName()), snapshot.getMatches("handlers"));
+
+        StringWriter out = new StringWriter();
+        snapshot.writeTo(out);
+        ScanSnapshot read = ScanSnapshot.readFrom(new StringReader(out.toString()));
+
+        assertEquals(snapshot.getClasses(), read.getClasses());
+        assertEquals(snapshot.getMatches("handlers"), read.getMatches("handlers"));
+        assertEquals(snapshot.getHash(OrderHandler.class.getName()), read.getHash(OrderHandler.class.getName()));
+        assertTrue(snapshot.diff(read).isEmpty());
+
+        StringWriter again = new StringWriter();
+        read.writeTo(again);
+        assertEquals("Deterministic export", out.toString(), again.toString());
+    }
+
+    /**
+     * Queries are matched by their final elements, also the ones with memoized or single elements.
+     */
+    @Test
+    public void testSnapshotOfAnnotatedElementsAndTypeDependencies() {
+        String packageName = PackagedAnnotatedTestClass.class.getPackage().getName();
+        ScanSnapshot snapshot = ClassInspectionUtil.snapshot(ImmutableMap.of("annotated", new AnnotatedElementsAnnotatedWith(ClassInspectorTestAnnotationOnlyOnTypeAndMethod.class),
+                "dependencies", new TypeDependencies()), packageName);
+
+        assertEquals(Arrays.asList(PackagedAnnotatedAndMethodAnnotatedTestClass.class.getName()), snapshot.getMatches("annotated"));
+        assertEquals(ClassInspectionUtil.findAnnotatedElements(ClassInspectorTestAnnotationOnlyOnTypeAndMethod.class, packageName).size(), snapshot.getMatches("annotated").size());
+        assertEquals(Arrays.asList(PackagedAnnotatedAndMethodAnnotatedTestClass.class.getName(), PackagedAnnotatedTestClass.class.getName(),
+                PackagedNotAnnotatedTestClass.class.getName()), snapshot.getMatches("dependencies"));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import de.dennishoersch.util.inspection.testpackage_with_calls.Caller;
+import de.dennishoersch.util.inspection.testpackage_with_calls.LegacyDao;
+import de.dennishoersch.util.inspection.testpackage_with_calls.NotCalling;
+import de.dennishoersch.util.inspection.testpackage_with_classhierarchy.BaseClass;
+import de.dennishoersch.util.inspection.testpackage_with_classhierarchy.BaseClassExtendingClass1;
+import de.dennishoersch.util.inspection.testpackage_with_classhierarchy.SuperBaseClass;
+
+/**
+ * @author hoersch
+ */
+public class TypeDependencyGraphTest {
+
+    /**
+     *
+     */
+    @Test
+    public void testReverseAndTransitiveLookups() {
+        // a -> b -> c, d -> c
+        TypeDependencyGraph graph = new TypeDependencyGraph(Arrays.asList("a", "b", "c", "d"), Arrays.asList(new int[] { 1 }, new int[] { 2 }, null, new int[] { 2 }));
+
+        assertEquals(Arrays.asList("a", "b", "d"), graph.getClasses());
+        assertEquals(ImmutableSet.of("b"), graph.getDependencies("a"));
+        assertEquals(ImmutableSet.of("b", "d"), graph.getDependents("c"));
+        assertEquals(ImmutableSet.of("b", "c"), graph.getTransitiveDependencies("a"));
+        assertEquals(ImmutableSet.of("a", "b", "d"), graph.getTransitiveDependents("c"));
+        assertEquals(Collections.emptySet(), graph.getDependents("unknown"));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testFindTypeDependencies() {
+        TypeDependencyGraph graph = ClassInspectionUtil.findTypeDependencies(LegacyDao.class.getPackage().getName());
+
+        assertTrue(graph.getDependencies(Caller.class.getName()).contains(LegacyDao.class.getName()));
+        assertTrue(graph.getDependencies(Caller.class.getName()).contains(Integer.class.getName()));
+        assertEquals(ImmutableSet.of(Caller.class.getName(), NotCalling.class.getName()), graph.getDependents(LegacyDao.class.getName()));
+        assertFalse(graph.getDependencies(LegacyDao.class.getName()).contains(LegacyDao.class.getName()));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testTransitiveDependentsOfSuperClass() {
+        TypeDependencyGraph graph = ClassInspectionUtil.findTypeDependencies(SuperBaseClass.class.getPackage().getName());
+
+        assertTrue(graph.getTransitiveDependencies(BaseClassExtendingClass1.class.getName()).contains(SuperBaseClass.class.getName()));
+        assertTrue(graph.getTransitiveDependents(SuperBaseClass.class.getName()).contains(BaseClass.class.getName()));
+        assertTrue(graph.getTransitiveDependents(SuperBaseClass.class.getName()).contains(BaseClassExtendingClass1.class.getName()));
+    }
+}
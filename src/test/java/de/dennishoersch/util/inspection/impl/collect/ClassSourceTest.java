@@ -0,0 +1,183 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.NotFoundException;
+import javassist.bytecode.ClassFile;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+import de.dennishoersch.util.inspection.ClassInspector;
+import de.dennishoersch.util.inspection.ClassSource;
+import de.dennishoersch.util.inspection.ClassSources;
+import de.dennishoersch.util.inspection.InspectionCollectors;
+import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.ScanFilter;
+import de.dennishoersch.util.inspection.testpackage_with_interface.sub.SubOfTestClass2;
+import de.dennishoersch.util.inspection.testpackage_with_interface.sub.TestClass1;
+import de.dennishoersch.util.inspection.testpackage_with_interface.sub.TestClass2;
+import de.dennishoersch.util.inspection.testpackage_with_interface.sub.TestEnum;
+
+/**
+ * @author hoersch
+ */
+public class ClassSourceTest {
+
+    private static final String PACKAGE = TestClass1.class.getPackage().getName();
+
+    /**
+     * Generated classes are scanned from memory, their super types are resolved from the same source.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testScansGeneratedClasses() throws Exception {
+        ClassPool pool = generate("generated.Base", "generated.Proxy");
+
+        Map<String, String> superclasses = ClassCollector.of(new Superclasses(), InMemoryClassSource.of(pool, "generated.Base", "generated.Proxy"))
+                .findAndLetInspect().getElements().iterator().next();
+
+        assertEquals(ImmutableMap.of("generated.Base", Object.class.getName(), "generated.Proxy", "generated.Base"), superclasses);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testMixesSourcesWithRoots() throws Exception {
+        String proxy = PACKAGE + ".GeneratedProxy";
+        ClassPool pool = generate(proxy, "generated.Other");
+
+        ClassCollector<Map<String, String>, Superclasses> collector = new ClassCollector<>(new Superclasses(), PACKAGE);
+        collector.addSource(InMemoryClassSource.of(pool, proxy, "generated.Other"));
+        Map<String, String> superclasses = collector.findAndLetInspect().getElements().iterator().next();
+
+        assertEquals(ImmutableSet.of(TestClass1.class.getName(), TestClass2.class.getName(), SubOfTestClass2.class.getName(), TestEnum.class.getName(), proxy),
+                superclasses.keySet());
+    }
+
+    /**
+     * A class found in a root wins over the same class in a source.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRootWinsOverSource() throws Exception {
+        ClassPool pool = generate("generated.Base", TestClass1.class.getName());
+
+        ClassCollector<Map<String, String>, Superclasses> collector = new ClassCollector<>(new Superclasses(), PACKAGE);
+        collector.addSource(InMemoryClassSource.of(pool, TestClass1.class.getName()));
+        Map<String, String> superclasses = collector.findAndLetInspect().getElements().iterator().next();
+        assertEquals(Object.class.getName(), superclasses.get(TestClass1.class.getName()));
+
+        collector = new ClassCollector<>(new Superclasses(), PACKAGE);
+        collector.addSource(InMemoryClassSource.of(pool, TestClass1.class.getName()));
+        collector.setStreaming(true);
+        assertEquals("Each class inspected once", 4, collector.scan().getInspectedClasses());
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testAppliesFilter() throws Exception {
+        ClassPool pool = generate("generated.a.A", "generated.b.B");
+        InMemoryClassSource source = InMemoryClassSource.of(pool, "generated.a.A", "generated.b.B");
+
+        ClassCollector<Map<String, String>, Superclasses> collector = ClassCollector.of(new Superclasses(), source);
+        collector.setFilter(ScanFilter.builder().excludePackage("generated.b").build());
+
+        assertEquals(ImmutableSet.of("generated.a.A"), collector.findAndLetInspect().getElements().iterator().next().keySet());
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testCollectsSourcesInParallel() throws Exception {
+        ClassPool pool = generate("generated.Base", "generated.Proxy");
+
+        ParallelClassCollector<?, Map<String, String>> collector = ParallelClassCollector.of(InspectionCollectors.shared(new Superclasses()),
+                InMemoryClassSource.of(pool, "generated.Base", "generated.Proxy"));
+        collector.setParallelism(2);
+        Map<String, String> superclasses = collector.scan().getElements().iterator().next();
+
+        assertEquals(ImmutableMap.of("generated.Base", Object.class.getName(), "generated.Proxy", "generated.Base"), superclasses);
+    }
+
+    /**
+     * The map of class files is copied, later changes are not seen.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCopiesClassFilesMap() throws Exception {
+        ClassPool pool = generate("generated.Base");
+        Map<String, byte[]> classes = Maps.newHashMap();
+        classes.put("generated.Base", pool.get("generated.Base").toBytecode());
+
+        ClassSource source = ClassSources.inMemory(classes);
+        classes.clear();
+
+        assertEquals(ImmutableSet.of("generated.Base"), ClassCollector.of(new Superclasses(), source).findAndLetInspect().getElements().iterator().next().keySet());
+    }
+
+    /**
+     * @return a pool with the classes, each one extending the one before
+     */
+    private static ClassPool generate(String... classNames) throws NotFoundException {
+        ClassPool pool = new ClassPool(true);
+        CtClass superclass = pool.get(Object.class.getName());
+        for (String className : classNames) {
+            CtClass generated = pool.makeClass(className, superclass);
+            superclass = generated;
+        }
+        return pool;
+    }
+
+    /**
+     * Collects the superclasses of the inspected classes, as resolved by the helper.
+     */
+    private static final class Superclasses implements ClassInspector<Map<String, String>> {
+        private final Map<String, String> _superclasses = Maps.newTreeMap();
+
+        @Override
+        public void inspect(ClassFile type, InspectionHelper helper) {
+            try {
+                _superclasses.put(type.getName(), helper.getClassInfo(type.getName()).getSuperclass());
+            } catch (IOException | ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public Collection<Map<String, String>> getElements() {
+            return ImmutableSet.of(_superclasses);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import javassist.bytecode.ClassFile;
+
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+import de.dennishoersch.util.inspection.InspectionHelper.ClassInfo;
+import de.dennishoersch.util.inspection.testpackage_with_generics.AbstractHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.Handler;
+
+/**
+ * @author hoersch
+ */
+public class InspectionHelperImplTest {
+
+    /**
+     * The header of an inspected class is extracted once and resolved from then on.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHeaderOfInspectedClass() throws Exception {
+        InspectionHelperImpl helper = new InspectionHelperImpl(getClass().getClassLoader());
+        ClassFile type;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(AbstractHandler.class.getName().replace('.', '/') + ".class")) {
+            type = InspectionHelperImpl.toClassFile(ByteStreams.toByteArray(in));
+        }
+        ClassInfo classInfo = helper.toClassInfo(type);
+
+        assertEquals(AbstractHandler.class.getName(), classInfo.getName());
+        assertArrayEquals(new String[] { Handler.class.getName() }, classInfo.getInterfaces());
+        assertTrue(Modifier.isAbstract(classInfo.getModifiers()));
+        assertSame(classInfo, helper.toClassInfo(type));
+        assertSame(classInfo, helper.getClassInfo(AbstractHandler.class.getName()));
+    }
+
+    /**
+     * Headers read by a class loader are kept for the next scan with the same class loader.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHeadersKeptAcrossScans() throws Exception {
+        ClassLoader classloader = getClass().getClassLoader();
+        ClassInfo classInfo = new InspectionHelperImpl(classloader).getClassInfo(Handler.class.getName());
+
+        assertSame(classInfo, new InspectionHelperImpl(classloader).getClassInfo(Handler.class.getName()));
+        assertTrue(Modifier.isInterface(classInfo.getModifiers()));
+
+        URL classes = Handler.class.getProtectionDomain().getCodeSource().getLocation();
+        try (URLClassLoader other = new URLClassLoader(new URL[] { classes }, null)) {
+            assertNotSame(classInfo, new InspectionHelperImpl(other).getClassInfo(Handler.class.getName()));
+        }
+    }
+
+    /**
+     * Names interned by a scan are dropped with it, only the names of the cached headers are kept with the class
+     * loader.
+     */
+    @Test
+    public void testInternDoesNotFeedClassLoaderNames() {
+        ClassLoader classloader = getClass().getClassLoader();
+        NameTable loaderNames = LoaderClassInfos.of(classloader).getNames();
+        int size = loaderNames.size();
+        String name = "not.a.Class" + System.nanoTime();
+
+        InspectionHelperImpl helper = new InspectionHelperImpl(classloader);
+        assertSame(helper.intern(name), helper.intern(new String(name)));
+        assertEquals(size, loaderNames.size());
+        assertNotSame(helper.intern(name), new InspectionHelperImpl(classloader).intern(new String(name)));
+    }
+}
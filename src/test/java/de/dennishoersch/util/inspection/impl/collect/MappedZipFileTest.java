@@ -0,0 +1,156 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+
+/**
+ * @author hoersch
+ */
+public class MappedZipFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * @throws IOException
+     */
+    @Test
+    public void testReadsStoredAndDeflatedEntries() throws IOException {
+        byte[] stored = "stored content".getBytes(Charsets.UTF_8);
+        byte[] deflated = Strings.repeat("deflated content ", 2000).getBytes(Charsets.UTF_8);
+        File file = folder.newFile("test.jar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            out.putNextEntry(new ZipEntry("com/acme/"));
+            putStored(out, "com/acme/Stored.class", stored);
+            out.putNextEntry(new ZipEntry("com/acme/Deflated.class"));
+            out.write(deflated);
+            out.putNextEntry(new ZipEntry("org/other/Other.class"));
+            out.write(stored);
+            out.putNextEntry(new ZipEntry("com/acme/readme.txt"));
+            out.write(stored);
+        }
+
+        try (MappedZipFile zip = MappedZipFile.open(file)) {
+            List<MappedZipFile.Item> items = zip.entries("com/acme/", ".class");
+
+            assertEquals(2, items.size());
+            assertEquals("com/acme/Stored.class", items.get(0).name);
+            assertArrayEquals(stored, zip.read(items.get(0)));
+            assertEquals("com/acme/Deflated.class", items.get(1).name);
+            assertArrayEquals(deflated, zip.read(items.get(1)));
+            assertEquals(4, zip.entries("", "").size());
+            assertNull(zip.getManifest());
+        }
+    }
+
+    /**
+     * @throws IOException
+     */
+    @Test
+    public void testReadsManifest() throws IOException {
+        File file = folder.newFile("manifest.jar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            out.putNextEntry(new ZipEntry(JarFile.MANIFEST_NAME));
+            out.write("Manifest-Version: 1.0\r\nClass-Path: lib/a.jar\r\n\r\n".getBytes(Charsets.UTF_8));
+        }
+
+        try (MappedZipFile zip = MappedZipFile.open(file)) {
+            assertEquals("lib/a.jar", zip.getManifest().getMainAttributes().getValue(Attributes.Name.CLASS_PATH));
+        }
+    }
+
+    /**
+     * @throws IOException
+     */
+    @Test
+    public void testClosedFileIsNotRead() throws IOException {
+        File file = folder.newFile("closed.jar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            out.putNextEntry(new ZipEntry("com/acme/Deflated.class"));
+            out.write("content".getBytes(Charsets.UTF_8));
+        }
+
+        MappedZipFile zip = MappedZipFile.open(file);
+        MappedZipFile.Item item = zip.entries("", "").get(0);
+        zip.close();
+        zip.close();
+
+        try {
+            zip.read(item);
+            fail("closed file must not be read");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("closed"));
+        }
+    }
+
+    /**
+     * More than 65535 entries need the zip64 end of central directory.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testReadsZip64() throws IOException {
+        File file = folder.newFile("zip64.jar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            for (int i = 0; i < 0x10000 + 10; i++) {
+                out.putNextEntry(new ZipEntry("p/C" + i + ".class"));
+                out.write(i);
+            }
+        }
+
+        try (MappedZipFile zip = MappedZipFile.open(file)) {
+            List<MappedZipFile.Item> items = zip.entries("p/", ".class");
+
+            assertEquals(0x10000 + 10, items.size());
+            MappedZipFile.Item last = items.get(items.size() - 1);
+            assertEquals("p/C" + (0x10000 + 9) + ".class", last.name);
+            assertArrayEquals(new byte[] { (byte) (0x10000 + 9) }, zip.read(last));
+        }
+    }
+
+    private static void putStored(ZipOutputStream out, String name, byte[] content) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        entry.setCrc(crc.getValue());
+        out.putNextEntry(entry);
+        out.write(content);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.InspectionHelper.ClassInfo;
+import de.dennishoersch.util.inspection.testpackage_with_generics.AbstractHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.Handler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.OrderHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.PaymentHandler;
+
+/**
+ * @author hoersch
+ */
+public class NameTableTest {
+
+    /**
+     *
+     */
+    @Test
+    public void testCanonicalInstances() {
+        NameTable names = new NameTable();
+        String name = names.intern(new String("a.B"));
+
+        assertSame(name, names.intern(new String("a.B")));
+        String[] interfaces = names.intern(new String[] { new String("a.B"), "a.C" });
+        assertSame(name, interfaces[0]);
+        assertNull(names.intern((String) null));
+        assertEquals(2, names.size());
+    }
+
+    /**
+     * Headers and class infos of one scan share the names.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHelperSharesNames() throws Exception {
+        InspectionHelper helper = new InspectionHelperImpl(getClass().getClassLoader());
+        ClassInfo abstractHandler = helper.getClassInfo(AbstractHandler.class.getName());
+        ClassInfo paymentHandler = helper.getClassInfo(PaymentHandler.class.getName());
+        ClassInfo orderHandler = helper.getClassInfo(OrderHandler.class.getName());
+
+        assertSame(abstractHandler.getInterfaces()[0], paymentHandler.getInterfaces()[0]);
+        assertSame(abstractHandler.getName(), orderHandler.getSuperclass());
+        assertSame(abstractHandler.getSuperclass(), paymentHandler.getSuperclass());
+        assertSame(helper.intern(new String(Handler.class.getName())), paymentHandler.getInterfaces()[0]);
+    }
+}
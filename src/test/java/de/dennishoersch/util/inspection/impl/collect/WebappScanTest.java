@@ -0,0 +1,202 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.impl.collect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javassist.bytecode.ClassFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+
+import de.dennishoersch.util.inspection.ClassInspector;
+import de.dennishoersch.util.inspection.ClassSource;
+import de.dennishoersch.util.inspection.InspectionHelper;
+import de.dennishoersch.util.inspection.ScanFilter;
+import de.dennishoersch.util.inspection.testpackage_with_interface.sub.TestClass1;
+import de.dennishoersch.util.inspection.testpackage_with_interface.sub.TestClass2;
+
+/**
+ * @author hoersch
+ */
+public class WebappScanTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * @throws IOException
+     */
+    @Test
+    public void testScansClassesAndLibJars() throws IOException {
+        File webapp = folder.newFolder("webapp");
+        File classFile = new File(webapp, "WEB-INF/classes/" + classFileName(TestClass1.class));
+        Files.createParentDirs(classFile);
+        Files.write(Resources.toByteArray(TestClass1.class.getResource(TestClass1.class.getSimpleName() + ".class")), classFile);
+        File lib = new File(webapp, "WEB-INF/lib/lib.jar");
+        Files.createParentDirs(lib);
+        writeJar(lib, TestClass2.class);
+        Files.write(new byte[0], new File(lib.getParentFile(), "notes.txt"));
+
+        assertEquals(ImmutableSet.of(new File(webapp, "WEB-INF/classes"), lib), ImmutableSet.copyOf(ClasspathRoots.webapp(webapp)));
+
+        Collection<String> names = ClassCollector.webapp(new ClassNames(), webapp).findAndLetInspect().getElements();
+        assertEquals(ImmutableSet.of(TestClass1.class.getName(), TestClass2.class.getName()), names);
+    }
+
+    /**
+     * @throws IOException
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsDirectoryWithoutWebInf() throws IOException {
+        ClasspathRoots.webapp(folder.newFolder("empty"));
+    }
+
+    /**
+     * @throws IOException
+     */
+    @Test
+    public void testResolvesContainerUrls() throws IOException {
+        File jar = folder.newFile("lib.jar");
+        writeJar(jar, TestClass1.class);
+        File classes = folder.newFolder("classes", "com", "acme");
+        String jarPath = jar.getAbsoluteFile().toURI().getPath();
+
+        assertEquals(jar, ClasspathRoots.toLocalFile(new URL("jar:file:" + jarPath + "!/com/acme")).getAbsoluteFile());
+        assertEquals(jar, ClasspathRoots.toLocalFile(url("wsjar:file:" + jarPath + "!/com/acme")).getAbsoluteFile());
+        assertEquals(jar, ClasspathRoots.toLocalFile(url("zip:" + jarPath + "!/com/acme")).getAbsoluteFile());
+        assertEquals(jar, ClasspathRoots.toLocalFile(url("vfs:" + jarPath + "/com/acme/")).getAbsoluteFile());
+        assertEquals(classes, ClasspathRoots.toLocalFile(url("vfs:" + classes.getAbsoluteFile().toURI().getPath())).getAbsoluteFile());
+
+        File war = folder.newFile("app.war");
+        assertNull(ClasspathRoots.toLocalFile(url("vfs:" + war.getAbsoluteFile().toURI().getPath() + "/WEB-INF/lib/lib.jar/com/acme/")));
+        assertNull(ClasspathRoots.toLocalFile(url("bundleresource://12.fwk1/com/acme/")));
+    }
+
+    /**
+     * @throws IOException
+     */
+    @Test
+    public void testReusesListingOfUnchangedJar() throws IOException {
+        File jar = folder.newFile("lib.jar");
+        writeJar(jar, TestClass1.class);
+
+        JarListings.Listing listing;
+        try (MappedZipFile zip = MappedZipFile.open(jar)) {
+            listing = JarListings.of(jar, zip);
+            assertEquals(1, listing.classEntries(zip, "").size());
+        }
+        try (MappedZipFile zip = MappedZipFile.open(jar)) {
+            assertSame(listing, JarListings.of(jar, zip));
+        }
+
+        writeJar(jar, TestClass1.class, TestClass2.class);
+        jar.setLastModified(listing.lastModified + 2000);
+        try (MappedZipFile zip = MappedZipFile.open(jar)) {
+            JarListings.Listing changed = JarListings.of(jar, zip);
+            assertNotSame(listing, changed);
+            assertEquals(2, changed.classEntries(zip, "").size());
+        }
+    }
+
+    /**
+     * A package is matched up to the separator, <code>com/acme</code> does not contain <code>com/acmex</code>.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testCollectsPackageOfJarOnly() throws IOException {
+        File jar = folder.newFile("prefix.jar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+            for (String name : Arrays.asList("com/acme/A.class", "com/acme/sub/B.class", "com/acmex/C.class")) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(new byte[] { 1 });
+            }
+        }
+
+        final Set<String> names = Sets.newLinkedHashSet();
+        try (JarClassSource source = new JarClassSource(jar)) {
+            source.collect("com/acme", ScanFilter.ALL, new ClassSource.Handler() {
+                @Override
+                public boolean handle(String className, ClassSource.Content content) {
+                    names.add(className);
+                    return true;
+                }
+            });
+        }
+        assertEquals(ImmutableSet.of("com.acme.A", "com.acme.sub.B"), names);
+    }
+
+    private static String classFileName(Class<?> clazz) {
+        return clazz.getName().replace('.', '/') + ".class";
+    }
+
+    private static void writeJar(File jar, Class<?>... classes) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+            for (Class<?> clazz : classes) {
+                out.putNextEntry(new ZipEntry(classFileName(clazz)));
+                out.write(Resources.toByteArray(clazz.getResource(clazz.getSimpleName() + ".class")));
+            }
+        }
+    }
+
+    /**
+     * A URL of a scheme without registered handler, as the ones of servlet containers.
+     */
+    private static URL url(String spec) throws IOException {
+        return new URL(null, spec, new URLStreamHandler() {
+            @Override
+            protected URLConnection openConnection(URL u) throws IOException {
+                throw new IOException("Not supported: " + u);
+            }
+        });
+    }
+
+    private static final class ClassNames implements ClassInspector<String> {
+        private final Set<String> _names = Sets.newHashSet();
+
+        @Override
+        public void inspect(ClassFile type, InspectionHelper helper) {
+            _names.add(type.getName());
+        }
+
+        @Override
+        public Collection<String> getElements() {
+            return _names;
+        }
+    }
+}
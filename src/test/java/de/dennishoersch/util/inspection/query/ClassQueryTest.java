@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.query;
+
+import static de.dennishoersch.util.inspection.query.ClassCondition.and;
+import static de.dennishoersch.util.inspection.query.ClassCondition.annotatedWith;
+import static de.dennishoersch.util.inspection.query.ClassCondition.loaded;
+import static de.dennishoersch.util.inspection.query.ClassCondition.nameMatches;
+import static de.dennishoersch.util.inspection.query.ClassCondition.not;
+import static de.dennishoersch.util.inspection.query.ClassCondition.or;
+import static de.dennishoersch.util.inspection.query.ClassCondition.subtypeOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+
+import org.junit.Test;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+
+import de.dennishoersch.util.inspection.ClassInspectorTestAnnotationOnlyOnType;
+import de.dennishoersch.util.inspection.testpackage.PackagedAnnotatedTestClass;
+import de.dennishoersch.util.inspection.testpackage.PackagedNotAnnotatedTestClass;
+import de.dennishoersch.util.inspection.testpackage_with_classhierarchy.BaseClass;
+import de.dennishoersch.util.inspection.testpackage_with_classhierarchy.BaseClassExtendingClass1;
+import de.dennishoersch.util.inspection.testpackage_with_classhierarchy.BaseClassExtendingClass2;
+import de.dennishoersch.util.inspection.testpackage_with_classhierarchy.SomeClass1;
+import de.dennishoersch.util.inspection.testpackage_with_classhierarchy.SomeClass2;
+import de.dennishoersch.util.inspection.testpackage_with_classhierarchy.SuperBaseClass;
+import de.dennishoersch.util.inspection.testpackage_with_classhierarchy.SuperBaseClassExtendingClass;
+
+/**
+ * @author hoersch
+ */
+public class ClassQueryTest {
+
+    /**
+     *
+     */
+    @Test
+    public void testSubtypesWithoutInnerClasses() {
+        Collection<Class<?>> classes = ClassQuery.where(and(subtypeOf(SuperBaseClass.class), not(nameMatches("*$*")))).find(SuperBaseClass.class.getPackage().getName());
+
+        assertEquals("Number of found classes", 5, classes.size());
+        assertTrue("Contains SuperBaseClass.class", classes.contains(SuperBaseClass.class));
+        assertTrue("Contains BaseClass.class", classes.contains(BaseClass.class));
+        assertTrue("Contains BaseClassExtendingClass1.class", classes.contains(BaseClassExtendingClass1.class));
+        assertTrue("Contains BaseClassExtendingClass2.class", classes.contains(BaseClassExtendingClass2.class));
+        assertTrue("Contains SuperBaseClassExtendingClass.class", classes.contains(SuperBaseClassExtendingClass.class));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testAnnotatedClasses() {
+        Collection<Class<?>> classes = ClassQuery.where(annotatedWith(ClassInspectorTestAnnotationOnlyOnType.class)).find(PackagedAnnotatedTestClass.class.getPackage().getName());
+
+        assertEquals("Number of found classes", 1, classes.size());
+        assertTrue("Contains PackagedAnnotatedTestClass.class", classes.contains(PackagedAnnotatedTestClass.class));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testLoadedConditionOnlyDecidesWhatCheaperConditionsLeaveOpen() {
+        final Collection<String> loaded = Lists.newArrayList();
+        Predicate<Class<?>> simpleNameStartsWithSome = new Predicate<Class<?>>() {
+            @Override
+            public boolean apply(Class<?> input) {
+                loaded.add(input.getName());
+                return input.getSimpleName().startsWith("Some");
+            }
+        };
+        Collection<Class<?>> classes = ClassQuery.where(or(nameMatches("*Class1"), loaded(simpleNameStartsWithSome))).find(SuperBaseClass.class.getPackage().getName());
+
+        assertEquals("Number of found classes", 3, classes.size());
+        assertTrue("Contains BaseClassExtendingClass1.class", classes.contains(BaseClassExtendingClass1.class));
+        assertTrue("Contains SomeClass1.class", classes.contains(SomeClass1.class));
+        assertTrue("Contains SomeClass2.class", classes.contains(SomeClass2.class));
+        assertFalse("Name match decided without the predicate", loaded.contains(BaseClassExtendingClass1.class.getName()));
+    }
+
+    /**
+     * @throws IOException
+     */
+    @Test
+    public void testRawBytesRejectClassesNotMentioningTheAnnotation() throws IOException {
+        QueryInspector inspector = new QueryInspector(annotatedWith(ClassInspectorTestAnnotationOnlyOnType.class));
+
+        assertTrue(inspector.acceptsClassName(PackagedNotAnnotatedTestClass.class.getName()));
+        assertFalse(inspector.acceptsClassContent(PackagedNotAnnotatedTestClass.class.getName(), contentOf(PackagedNotAnnotatedTestClass.class)));
+        assertTrue(inspector.acceptsClassContent(PackagedAnnotatedTestClass.class.getName(), contentOf(PackagedAnnotatedTestClass.class)));
+    }
+
+    private static byte[] contentOf(Class<?> type) throws IOException {
+        try (InputStream in = type.getResourceAsStream(type.getSimpleName() + ".class")) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+}
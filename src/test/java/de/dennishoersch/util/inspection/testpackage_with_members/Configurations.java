@@ -0,0 +1,42 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.testpackage_with_members;
+
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+public class Configurations {
+    private DataSource _dataSource;
+
+    private static Properties _defaults;
+
+    public static Properties defaults() {
+        return _defaults;
+    }
+
+    public static Properties forName(String name) {
+        return _defaults;
+    }
+
+    public Properties current() {
+        return _defaults;
+    }
+
+    public DataSource getDataSource() {
+        return _dataSource;
+    }
+}
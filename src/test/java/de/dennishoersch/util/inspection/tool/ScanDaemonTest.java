@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.tool;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.io.Files;
+
+import de.dennishoersch.util.inspection.testpackage_with_generics.AbstractHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.GenericHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.Handler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.OrderHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.PaymentHandler;
+
+/**
+ *
+ * @author hoersch
+ */
+public class ScanDaemonTest {
+
+    /** */
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    private ScanDaemon _daemon;
+
+    /**
+     * @throws Exception
+     */
+    @Before
+    public void startDaemon() throws Exception {
+        _daemon = new ScanDaemon(0);
+        _daemon.start();
+    }
+
+    /**
+     * @throws Exception
+     */
+    @After
+    public void stopDaemon() throws Exception {
+        _daemon.close();
+    }
+
+    private static File classes() throws Exception {
+        return new File(ScanDaemonTest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    }
+
+    /**
+     * The daemon answers the same as a scan in process.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testAnswersLikeInProcess() throws Exception {
+        ScanDaemonClient client = new ScanDaemonClient(_daemon.getPort());
+        List<File> roots = Collections.singletonList(classes());
+        String packageName = Handler.class.getPackage().getName();
+
+        ImmutableSortedSet<String> expected = ImmutableSortedSet.of(AbstractHandler.class.getName(), GenericHandler.class.getName(), OrderHandler.class.getName(),
+                PaymentHandler.class.getName());
+        assertEquals(expected, client.findClassesImplementing(Handler.class.getName(), roots, packageName));
+        // Answered from the index
+        assertEquals(expected, client.findClassesImplementing(Handler.class.getName(), roots, packageName));
+
+        _daemon.close();
+        assertEquals(expected, client.findClassesImplementing(Handler.class.getName(), roots, packageName));
+    }
+
+    /**
+     * A changed root is parsed again.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testInvalidatesChangedRoot() throws Exception {
+        ScanDaemonClient client = new ScanDaemonClient(_daemon.getPort());
+        File root = _folder.newFolder("classes");
+        copyClass(Handler.class, root);
+        copyClass(PaymentHandler.class, root);
+        List<File> roots = Collections.singletonList(root);
+
+        assertEquals(ImmutableSortedSet.of(PaymentHandler.class.getName()), client.findClassesImplementing(Handler.class.getName(), roots, null));
+
+        copyClass(GenericHandler.class, root);
+        assertEquals(ImmutableSortedSet.of(GenericHandler.class.getName(), PaymentHandler.class.getName()),
+                client.findClassesImplementing(Handler.class.getName(), roots, null));
+    }
+
+    private static void copyClass(Class<?> clazz, File root) throws Exception {
+        String path = clazz.getName().replace('.', '/') + ".class";
+        File target = new File(root, path);
+        Files.createParentDirs(target);
+        Files.copy(new File(classes(), path), target);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.dennishoersch.util.inspection.tool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.apache.log4j.ConsoleAppender;
+import org.apache.log4j.Logger;
+import org.apache.log4j.SimpleLayout;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+
+import de.dennishoersch.util.inspection.ClassInspectorTestAnnotationOnlyOnTypeAndMethod;
+import de.dennishoersch.util.inspection.testpackage.PackagedAnnotatedAndMethodAnnotatedTestClass;
+import de.dennishoersch.util.inspection.testpackage_with_generics.AbstractHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.GenericHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.Handler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.OrderHandler;
+import de.dennishoersch.util.inspection.testpackage_with_generics.PaymentHandler;
+
+/**
+ *
+ * @author hoersch
+ */
+public class ScanToolTest {
+
+    private final ByteArrayOutputStream _out = new ByteArrayOutputStream();
+
+    private final ByteArrayOutputStream _err = new ByteArrayOutputStream();
+
+    private static String root() throws Exception {
+        return new File(ScanToolTest.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    }
+
+    /**
+     * Runs the tool with stdout of this process captured as well and a console appender logging everything to it, so
+     * log lines written to stdout would show up.
+     */
+    private int run(String... args) throws Exception {
+        PrintStream out = new PrintStream(_out, true, "UTF-8");
+        PrintStream stdout = System.out;
+        // Not configured by the constructor, that would open a writer on stdout to be closed when following
+        ConsoleAppender console = new ConsoleAppender();
+        console.setLayout(new SimpleLayout());
+        console.setFollow(true);
+        console.activateOptions();
+        System.setOut(out);
+        Logger.getRootLogger().addAppender(console);
+        try {
+            return ScanTool.run(args, out, new PrintStream(_err, true, "UTF-8"));
+        } finally {
+            Logger.getRootLogger().removeAppender(console);
+            System.setOut(stdout);
+        }
+    }
+
+    private List<String> lines() {
+        return Ordering.natural().sortedCopy(Splitter.on('\n').omitEmptyStrings().split(new String(_out.toByteArray(), Charsets.UTF_8)));
+    }
+
+    /**
+     * Several queries in one pass, written as NDJSON.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testNdjson() throws Exception {
+        String annotation = ClassInspectorTestAnnotationOnlyOnTypeAndMethod.class.getName();
+        String handler = Handler.class.getName();
+        assertEquals(0, run("--root", root(), //
+                "--package", Handler.class.getPackage().getName(), "--package", PackagedAnnotatedAndMethodAnnotatedTestClass.class.getPackage().getName(), //
+                "--implements", handler, "--annotated", annotation, "--member-annotated", annotation));
+
+        String clazz = PackagedAnnotatedAndMethodAnnotatedTestClass.class.getName();
+        List<String> expected = Lists.newArrayList( //
+                "{\"query\":\"annotated:" + annotation + "\",\"class\":\"" + clazz + "\"}", //
+                "{\"query\":\"implements:" + handler + "\",\"class\":\"" + AbstractHandler.class.getName() + "\"}", //
+                "{\"query\":\"implements:" + handler + "\",\"class\":\"" + GenericHandler.class.getName() + "\"}", //
+                "{\"query\":\"implements:" + handler + "\",\"class\":\"" + OrderHandler.class.getName() + "\"}", //
+                "{\"query\":\"implements:" + handler + "\",\"class\":\"" + PaymentHandler.class.getName() + "\"}", //
+                "{\"query\":\"member-annotated:" + annotation + "\",\"class\":\"" + clazz + "\",\"member\":\"someMethod()V\"}");
+        assertEquals(Ordering.natural().sortedCopy(expected), lines());
+        for (String line : lines()) {
+            assertTrue("Not a JSON object: " + line, line.startsWith("{\"query\":\"") && line.endsWith("\"}"));
+        }
+        assertTrue(new String(_err.toByteArray(), Charsets.UTF_8).contains("classes/s"));
+    }
+
+    /**
+     * The type itself is assignable from itself, written as CSV.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCsv() throws Exception {
+        assertEquals(0, run("--root", root(), "--package", Handler.class.getPackage().getName(), "--format", "csv", "--assignable", AbstractHandler.class.getName()));
+
+        String query = "assignable:" + AbstractHandler.class.getName();
+        List<String> expected = Lists.newArrayList("query,class,member", //
+                query + "," + AbstractHandler.class.getName() + ",", //
+                query + "," + OrderHandler.class.getName() + ",");
+        assertEquals(Ordering.natural().sortedCopy(expected), lines());
+        for (String line : lines()) {
+            assertEquals("Not a CSV row: " + line, 3, Iterables.size(Splitter.on(',').split(line)));
+        }
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testUsage() throws Exception {
+        assertEquals(1, run("--root", root()));
+        assertEquals(1, run("--root", root(), "--unknown", "x"));
+        assertEquals(0, _out.size());
+    }
+}